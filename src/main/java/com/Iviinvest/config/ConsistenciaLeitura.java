@@ -0,0 +1,149 @@
+package com.Iviinvest.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Controla a tolerância de atraso da réplica por usuário.
+ * <p>
+ * Depois que um usuário grava no primário, suas leituras seguem no primário durante
+ * a janela de tolerância, para que ele sempre veja as próprias escritas
+ * (read-your-writes) mesmo que a réplica ainda não as tenha recebido.
+ * <p>
+ * O instante da última escrita vai para o cliente num cookie assinado (HMAC-SHA256 de
+ * usuário e instante), então a próxima requisição respeita a janela em qualquer instância
+ * da aplicação. A memória local cobre clientes que não devolvem cookies, mas só na mesma
+ * instância: sem cookies, o balanceador precisa de sessões fixas (sticky sessions).
+ * <p>
+ * Tracks the replica staleness tolerance per user.
+ * After a user writes to the primary, their reads stay on the primary during the
+ * tolerance window, so they always see their own writes (read-your-writes) even if
+ * the replica has not received them yet.
+ * The time of the last write goes to the client in a signed cookie (HMAC-SHA256 of user
+ * and time), so the next request honours the window on any application instance. The
+ * local memory covers clients that do not send cookies back, but only on the same
+ * instance: without cookies, the load balancer needs sticky sessions.
+ */
+public class ConsistenciaLeitura {
+
+    static final String COOKIE = "ivi_escrita";
+
+    private static final int MAX_USUARIOS = 100_000;
+
+    private final Cache<String, Boolean> escritasRecentes;
+    private final Duration tolerancia;
+    private final SecretKeySpec chave;
+    private final Clock relogio;
+
+    /**
+     * @param tolerancia Atraso máximo esperado da réplica | Maximum expected replica lag
+     * @param segredo Chave do HMAC do cookie, igual em todas as instâncias | Cookie HMAC key, the same on every instance
+     */
+    public ConsistenciaLeitura(Duration tolerancia, String segredo) {
+        this(tolerancia, segredo, Clock.systemUTC());
+    }
+
+    ConsistenciaLeitura(Duration tolerancia, String segredo, Clock relogio) {
+        this.tolerancia = tolerancia;
+        this.chave = new SecretKeySpec(segredo.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.relogio = relogio;
+        this.escritasRecentes = Caffeine.newBuilder()
+                .maximumSize(MAX_USUARIOS)
+                .expireAfterWrite(tolerancia)
+                .build();
+    }
+
+    /**
+     * Registra uma escrita do usuário, reiniciando a janela de tolerância.
+     * <p>
+     * Records a write by the user, restarting the tolerance window.
+     */
+    public void registrarEscrita(String usuario) {
+        escritasRecentes.put(usuario, Boolean.TRUE);
+
+        HttpServletResponse resposta = requisicaoAtual() instanceof ServletRequestAttributes atributos
+                ? atributos.getResponse() : null;
+        if (resposta != null && !resposta.isCommitted()) {
+            long instante = relogio.millis();
+            Cookie cookie = new Cookie(COOKIE, instante + "." + assinar(usuario, instante));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, tolerancia.toSeconds()));
+            cookie.setAttribute("SameSite", "Lax");
+            resposta.addCookie(cookie);
+        }
+    }
+
+    /**
+     * Indica se o usuário pode ler da réplica.
+     * <p>
+     * Indicates whether the user may read from the replica.
+     */
+    public boolean podeLerDaReplica(String usuario) {
+        return escritasRecentes.getIfPresent(usuario) == null && !escreveuEmOutraInstancia(usuario);
+    }
+
+    // Cookie válido, do mesmo usuário e ainda dentro da janela
+    // Valid cookie, for the same user and still inside the window
+    private boolean escreveuEmOutraInstancia(String usuario) {
+        if (!(requisicaoAtual() instanceof ServletRequestAttributes atributos)) {
+            return false;
+        }
+        HttpServletRequest requisicao = atributos.getRequest();
+        if (requisicao.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : requisicao.getCookies()) {
+            if (!COOKIE.equals(cookie.getName())) {
+                continue;
+            }
+            String[] partes = cookie.getValue().split("\\.", 2);
+            if (partes.length != 2) {
+                continue;
+            }
+            long instante;
+            try {
+                instante = Long.parseLong(partes[0]);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            long decorrido = relogio.millis() - instante;
+            if (decorrido >= 0 && decorrido < tolerancia.toMillis()
+                    && MessageDigest.isEqual(assinar(usuario, instante).getBytes(StandardCharsets.US_ASCII),
+                                             partes[1].getBytes(StandardCharsets.US_ASCII))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String assinar(String usuario, long instante) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(chave);
+            byte[] assinatura = mac.doFinal((usuario + "." + instante).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(assinatura);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 indisponível", e);
+        }
+    }
+
+    private static RequestAttributes requisicaoAtual() {
+        return RequestContextHolder.getRequestAttributes();
+    }
+}
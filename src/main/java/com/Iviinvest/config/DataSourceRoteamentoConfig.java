@@ -0,0 +1,72 @@
+package com.Iviinvest.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Separa leituras e escritas entre o banco primário e uma réplica.
+ * <p>
+ * Ativada apenas quando {@code app.datasource.replica.url} está preenchida; sem ela a
+ * aplicação usa o DataSource único configurado pelo Spring Boot. O primário continua
+ * configurado por {@code spring.datasource.*} e a réplica por {@code app.datasource.replica.*}.
+ * <p>
+ * Splits reads and writes between the primary database and a replica.
+ * Enabled only when {@code app.datasource.replica.url} is filled in; without it the application
+ * uses the single DataSource configured by Spring Boot. The primary is still configured
+ * through {@code spring.datasource.*} and the replica through {@code app.datasource.replica.*}.
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica.url:}'.isBlank()")
+public class DataSourceRoteamentoConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primarioDataSource(DataSourceProperties propriedades) {
+        return propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${app.datasource.replica.url}") String url,
+            @Value("${app.datasource.replica.username:${spring.datasource.username:}}") String usuario,
+            @Value("${app.datasource.replica.password:${spring.datasource.password:}}") String senha) {
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(usuario)
+                .password(senha)
+                .build();
+        replica.setPoolName("iviinvest-replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public ConsistenciaLeitura consistenciaLeitura(
+            @Value("${app.datasource.replica.tolerancia-segundos:5}") long toleranciaSegundos,
+            @Value("${app.datasource.replica.segredo-cookie:${jwt.secret}}") String segredo) {
+        return new ConsistenciaLeitura(Duration.ofSeconds(toleranciaSegundos), segredo);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primarioDataSource") DataSource primario,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ConsistenciaLeitura consistencia) {
+        return new LazyConnectionDataSourceProxy(new RoteamentoDataSource(primario, replica, consistencia));
+    }
+}
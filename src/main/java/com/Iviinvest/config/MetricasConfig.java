@@ -0,0 +1,27 @@
+package com.Iviinvest.config;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Filtros aplicados pelo Spring Boot a todos os registros de métricas.
+ * <p>
+ * O consumo de tokens por usuário usa o id como tag; para não criar uma série por
+ * usuário sem limite, só os primeiros {@code ia.tokens.usuarios-maximos} ganham série e
+ * os demais são descartados (o total por rota continua completo em {@code ia.tokens}).
+ * <p>
+ * Filters applied by Spring Boot to every meter registry. Per-user token usage uses the
+ * id as a tag; to avoid an unbounded series per user, only the first
+ * {@code ia.tokens.usuarios-maximos} get a series and the rest are dropped (the per-route
+ * total in {@code ia.tokens} stays complete).
+ */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public MeterFilter limiteUsuariosTokens(@Value("${ia.tokens.usuarios-maximos:1000}") int usuariosMaximos) {
+        return MeterFilter.maximumAllowableTags("ia.tokens.usuario", "usuario", usuariosMaximos, MeterFilter.deny());
+    }
+}
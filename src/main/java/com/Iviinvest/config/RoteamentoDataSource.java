@@ -0,0 +1,78 @@
+package com.Iviinvest.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * DataSource que envia transações somente leitura para a réplica e todo o resto para o primário.
+ * <p>
+ * Só lê da réplica quem está autenticado e não gravou dentro da janela de tolerância
+ * ({@link ConsistenciaLeitura}); fluxos anônimos (cadastro, login, 2FA, recuperação)
+ * ficam sempre no primário. Precisa ser envolvido por um
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, para que a
+ * conexão seja escolhida depois que a transação já marcou se é somente leitura.
+ * <p>
+ * DataSource that sends read-only transactions to the replica and everything else to the primary.
+ * Only authenticated users that have not written within the tolerance window
+ * ({@link ConsistenciaLeitura}) read from the replica; anonymous flows (sign up, login,
+ * 2FA, recovery) always stay on the primary. It must be wrapped by a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so the
+ * connection is chosen after the transaction has flagged whether it is read-only.
+ */
+public class RoteamentoDataSource extends AbstractRoutingDataSource {
+
+    enum Destino { PRIMARIO, REPLICA }
+
+    private final ConsistenciaLeitura consistencia;
+
+    public RoteamentoDataSource(DataSource primario, DataSource replica, ConsistenciaLeitura consistencia) {
+        this.consistencia = consistencia;
+        setTargetDataSources(Map.of(Destino.PRIMARIO, primario, Destino.REPLICA, replica));
+        setDefaultTargetDataSource(primario);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String usuario = usuarioAutenticado();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (usuario != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                registrarEscrita(usuario);
+            }
+            return Destino.PRIMARIO;
+        }
+
+        return usuario != null && consistencia.podeLerDaReplica(usuario) ? Destino.REPLICA : Destino.PRIMARIO;
+    }
+
+    private void registrarEscrita(String usuario) {
+        consistencia.registrarEscrita(usuario);
+
+        // A janela de tolerância conta a partir do commit
+        // The tolerance window counts from the commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    consistencia.registrarEscrita(usuario);
+                }
+            });
+        }
+    }
+
+    private static String usuarioAutenticado() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return auth.getName();
+    }
+}
@@ -1,6 +1,7 @@
 package com.Iviinvest.config;
 
 import com.Iviinvest.security.JwtAuthenticationFilter;
+import com.Iviinvest.security.RateLimitFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -11,6 +12,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.http.HttpMethod;
+import jakarta.servlet.DispatcherType;
 
 /**
  * Configuração principal de segurança da aplicação.
@@ -28,18 +30,22 @@ import org.springframework.http.HttpMethod;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     /**
-     * Construtor para injeção de dependência do filtro JWT.
+     * Construtor para injeção de dependência dos filtros JWT e de limitação de taxa.
      *
      * @param jwtAuthenticationFilter Filtro de autenticação JWT
+     * @param rateLimitFilter Filtro de limitação de taxa
      *
-     * Constructor for JWT authentication filter dependency injection.
+     * Constructor for JWT authentication and rate limiting filters dependency injection.
      *
      * @param jwtAuthenticationFilter JWT authentication filter
+     * @param rateLimitFilter Rate limiting filter
      */
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, RateLimitFilter rateLimitFilter) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     /**
@@ -65,6 +71,10 @@ public class SecurityConfig {
                 // Configura as autorizações de requisições
                 // Configures request authorizations
                 .authorizeHttpRequests(auth -> auth
+                        // Redespachos assíncronos (SSE) já foram autorizados na requisição original
+                        // Async re-dispatches (SSE) were already authorized on the original request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Permite acesso ao console H2 (apenas para desenvolvimento)
                         // Allows access to H2 console (development only)
                         .requestMatchers("/h2-console/**").permitAll()
@@ -110,7 +120,11 @@ public class SecurityConfig {
 
                 // Adiciona nosso filtro JWT antes do filtro de autenticação padrão
                 // Adds our JWT filter before the default authentication filter
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+
+                // Limita a taxa dos endpoints públicos antes de qualquer outro processamento
+                // Rate limits public endpoints before any other processing
+                .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -3,13 +3,15 @@ package com.Iviinvest.controller;
 import com.Iviinvest.dto.*;
 import com.Iviinvest.util.EmailUtils;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
-import org.springframework.transaction.annotation.Transactional;
 import com.Iviinvest.model.*;
-import com.Iviinvest.repository.CarteiraPercentualRepository;
 import com.Iviinvest.service.IAService;
 import com.Iviinvest.service.ObjetivoUsuarioService;
 import com.Iviinvest.service.UsuarioService;
 import com.Iviinvest.service.CarteiraUsuarioService;
+import com.Iviinvest.service.CarteiraVisaoService;
+import com.Iviinvest.service.CarteiraOperacaoService;
+import com.Iviinvest.service.EspeculacaoAtivosService;
+import com.Iviinvest.service.DeduplicacaoRequisicoes;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -24,15 +26,8 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.web.bind.annotation.*;
-import com.Iviinvest.service.CarteiraAtivoService;
-import com.Iviinvest.service.PrecoAtivoService;
-import org.springframework.beans.BeanUtils;
-
-import com.Iviinvest.service.CarteiraAtivoService;
-import com.Iviinvest.service.PrecoAtivoService;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.stream.Collectors;
 
 
 
@@ -51,10 +46,11 @@ public class CarteiraUsuarioController {
     private final IAService iaService;
     private final UsuarioService usuarioService;
     private final ObjetivoUsuarioService objetivoService;
-    private final CarteiraPercentualRepository percentualRepo;
     private final CarteiraUsuarioService usuarioCarteiraService;
-    private final CarteiraAtivoService carteiraAtivoService;
-    private final PrecoAtivoService   precoAtivoService;
+    private final CarteiraVisaoService carteiraVisaoService;
+    private final CarteiraOperacaoService carteiraOperacaoService;
+    private final EspeculacaoAtivosService especulacaoAtivos;
+    private final DeduplicacaoRequisicoes deduplicacao;
 
 
 
@@ -62,18 +58,20 @@ public class CarteiraUsuarioController {
             IAService iaService,
             UsuarioService usuarioService,
             ObjetivoUsuarioService objetivoService,
-            CarteiraPercentualRepository percentualRepo,
             CarteiraUsuarioService usuarioCarteiraService,
-            CarteiraAtivoService carteiraAtivoService,
-            PrecoAtivoService precoAtivoService
+            CarteiraVisaoService carteiraVisaoService,
+            CarteiraOperacaoService carteiraOperacaoService,
+            EspeculacaoAtivosService especulacaoAtivos,
+            DeduplicacaoRequisicoes deduplicacao
     ) {
         this.iaService              = iaService;
         this.usuarioService         = usuarioService;
         this.objetivoService        = objetivoService;
-        this.percentualRepo         = percentualRepo;
         this.usuarioCarteiraService = usuarioCarteiraService;
-        this.carteiraAtivoService   = carteiraAtivoService;
-        this.precoAtivoService      = precoAtivoService;
+        this.carteiraVisaoService   = carteiraVisaoService;
+        this.carteiraOperacaoService = carteiraOperacaoService;
+        this.especulacaoAtivos      = especulacaoAtivos;
+        this.deduplicacao           = deduplicacao;
     }
 
 
@@ -85,8 +83,11 @@ public class CarteiraUsuarioController {
      */
     /**
      * Gera percentuais ideais (conservadora e agressiva) com base no último objetivo do usuário.
+     * Perfis cobertos pela tabela de regras não chamam a IA, salvo com {@code ia=true}.
+     * Repetições da mesma requisição (ou da mesma {@code Idempotency-Key}) reaproveitam o resultado.
      */
     @Operation(summary = "Gerar percentuais de carteira por IA",
+            description = "Perfis cobertos pela tabela de alocação são resolvidos sem IA; use ia=true para forçar a IA.",
             security = @SecurityRequirement(name = "bearerAuth"))
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Percentuais gerados com sucesso",
@@ -112,16 +113,29 @@ public class CarteiraUsuarioController {
     })
     @PostMapping("/percentuais/gerar")
     public ResponseEntity<?> gerarPercentuais(
-            @AuthenticationPrincipal User userDetails
+            @AuthenticationPrincipal User userDetails,
+            @RequestParam(name = "ia", defaultValue = "false") boolean usarIa,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia
     ) throws Exception {
-        Usuario u = usuarioService.findByEmail(userDetails.getUsername());
+        Usuario u = usuarioService.referenciaPorEmail(userDetails.getUsername());
         ObjetivoUsuario obj = objetivoService
                 .buscarUltimoPorUsuario(u)
                 .orElseThrow(() -> new RuntimeException("Objetivo não encontrado"));
 
-        // chama IA
-        String promptPct = iaService.gerarPromptDistribuicao(obj);
-        JSONObject respPct = iaService.chamarOpenAI(promptPct);
+        // toque duplo / nova tentativa do app: anexa à chamada em andamento ou repete a recente
+        Map<String, Map<String,Integer>> pctMap = deduplicacao.executar(
+                userDetails.getUsername(), "percentuais/gerar", obj.getId() + ":" + usarIa, chaveIdempotencia,
+                () -> gerarPercentuais(obj, usarIa));
+
+        return ResponseEntity.ok(pctMap);
+    }
+
+    private Map<String, Map<String,Integer>> gerarPercentuais(ObjetivoUsuario obj, boolean usarIa) {
+        // tabela de regras; IA se fora da cobertura ou pedida (alocação local se a IA cair)
+        JSONObject respPct = iaService.gerarDistribuicao(obj, usarIa);
+
+        // o app pede os ativos logo em seguida: já começa a gerá-los em segundo plano
+        especulacaoAtivos.iniciar(obj, respPct);
 
         // converte JSONObject → Map<String,Map<String,Integer>>
         Map<String, Map<String,Integer>> pctMap = new LinkedHashMap<>();
@@ -133,8 +147,7 @@ public class CarteiraUsuarioController {
             }
             pctMap.put(tipo, segMap);
         }
-
-        return ResponseEntity.ok(pctMap);
+        return pctMap;
     }
 
     /**
@@ -168,23 +181,25 @@ public class CarteiraUsuarioController {
     @PostMapping("/ativos/gerar")
     public ResponseEntity<?> gerarAtivos(
             @AuthenticationPrincipal User userDetails,
-            @RequestBody Map<String, Map<String,Integer>> distribuicao
+            @RequestBody Map<String, Map<String,Integer>> distribuicao,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia
     ) throws Exception {
-        Usuario u = usuarioService.findByEmail(userDetails.getUsername());
+        Usuario u = usuarioService.referenciaPorEmail(userDetails.getUsername());
         ObjetivoUsuario obj = objetivoService
                 .buscarUltimoPorUsuario(u)
                 .orElseThrow(() -> new RuntimeException("Objetivo não encontrado"));
 
-        // chama IA para obter JSON com "carteira":{...}
-        JSONObject allCarteiras = iaService
-                .chamarOpenAI(
-                        iaService.gerarPromptAtivos(
-                                obj,
-                                new JSONObject(distribuicao),
-                                "ambas"  // pode ser "conservadora", "agressiva" ou "ambas"
-                        )
-                )
-                .getJSONObject("carteira");
+        Map<String, Map<String,List<String>>> result = deduplicacao.executar(
+                userDetails.getUsername(), "ativos/gerar", obj.getId() + ":" + distribuicao, chaveIdempotencia,
+                () -> gerarAtivos(obj, distribuicao));
+
+        return ResponseEntity.ok(result);
+    }
+
+    private Map<String, Map<String,List<String>>> gerarAtivos(ObjetivoUsuario obj,
+                                                             Map<String, Map<String,Integer>> distribuicao) {
+        // usa a geração antecipada, se houver; senão chama IA (ou a alocação local)
+        JSONObject allCarteiras = especulacaoAtivos.gerarAtivos(obj, new JSONObject(distribuicao));
 
         // converte JSONObject → Map<String,Map<String,List<String>>>
         Map<String, Map<String,List<String>>> result = new LinkedHashMap<>();
@@ -201,8 +216,7 @@ public class CarteiraUsuarioController {
             }
             result.put(tipo, ativosPorSegmento);
         }
-
-        return ResponseEntity.ok(result);
+        return result;
     }
 
     @Operation(summary = "Buscar carteira selecionada do usuário",
@@ -239,86 +253,15 @@ public class CarteiraUsuarioController {
             @AuthenticationPrincipal User userDetails,
             @RequestParam String tipo   // "conservadora" ou "agressiva"
     ) {
-        // 1) busca usuário e objetivo
-        Usuario u = usuarioService.findByEmail(userDetails.getUsername());
-        ObjetivoUsuario obj = objetivoService
-                .buscarUltimoPorUsuario(u)
-                .orElseThrow(() -> new RuntimeException("Objetivo não encontrado"));
-
-        Long userId = u.getId(), objId = obj.getId();
-
-        // 2) busca percentuais
-        List<CarteiraPercentual> pctList = percentualRepo
-                .findByUsuarioIdAndObjetivoIdAndTipoCarteira(userId, objId, tipo);
-
-        Map<String,Integer> percentuais = pctList.stream()
-                .collect(Collectors.toMap(
-                        CarteiraPercentual::getSegmento,
-                        CarteiraPercentual::getPercentual
-                ));
-
-        // 3) busca ativos
-        List<CarteiraAtivo> ativosList = carteiraAtivoService
-                .buscarPorObjetivoETipo(obj, tipo);
-
-        Map<String,List<CarteiraResponseDTO.AtivoDTO>> ativos = ativosList.stream()
-                .collect(Collectors.groupingBy(
-                        CarteiraAtivo::getSegmento,
-                        Collectors.mapping(a ->
-                                        new CarteiraResponseDTO.AtivoDTO(
-                                                a.getNomeAtivo(),
-                                                a.getPrecoUnitario(),
-                                                a.getQuantidadeCotas()
-                                        ),
-                                Collectors.toList()
-                        )
-                ));
-
-        // 4) monta e retorna
-        CarteiraResponseDTO response = new CarteiraResponseDTO(percentuais, ativos);
-        return ResponseEntity.ok(response);
-    }
+        // 1) busca usuário
+        Usuario u = usuarioService.referenciaPorEmail(userDetails.getUsername());
 
-    // Métodos auxiliares dentro do controller (pode mover para um service):
-    private void salvarPercentuais(Usuario u, ObjetivoUsuario obj, String tipo,
-                                   Map<String,Integer> mapaPct) {
-        mapaPct.forEach((segmento, pct) -> {
-            CarteiraPercentual cp = new CarteiraPercentual();
-            cp.setUsuario(u);
-            cp.setObjetivo(obj);
-            cp.setTipoCarteira(tipo);
-            cp.setSegmento(segmento);
-            cp.setPercentual(pct);
-            percentualRepo.save(cp);
-        });
-    }
+        // 2) objetivo + percentuais + ativos em uma única consulta
+        CarteiraVisaoService.CarteiraVisao visao = carteiraVisaoService
+                .buscar(u.getId(), null, tipo)
+                .orElseThrow(() -> new RuntimeException("Objetivo não encontrado"));
 
-    private void salvarAtivosManuais(Usuario u, ObjetivoUsuario obj, String tipo,
-                                     Map<String,List<String>> ativosPorSegmento,
-                                     Map<String,Integer> distribuicaoPct) {
-        double valorTotal = obj.getValorInicial();
-        ativosPorSegmento.forEach((segmento, lista) -> {
-            int pctSegmento = distribuicaoPct.getOrDefault(segmento, 0);
-            double valorSegmento = valorTotal * pctSegmento / 100.0;
-            int qtdAtivos = lista.size();
-            double valorPorAtivo = qtdAtivos>0 ? valorSegmento/qtdAtivos : 0;
-
-            for (String ticker : lista) {
-                double preco = precoAtivoService.buscarPreco(ticker);
-                int quantidade = preco>0 ? (int)Math.floor(valorPorAtivo/preco) : 0;
-                if (quantidade<=0) continue;
-
-                CarteiraAtivo ca = new CarteiraAtivo();
-                ca.setUsuario(u);
-                ca.setObjetivo(obj);
-                ca.setTipoCarteira(tipo);
-                ca.setSegmento(segmento);
-                ca.setNomeAtivo(ticker);
-                ca.setPrecoUnitario(preco);
-                ca.setQuantidadeCotas(quantidade);
-                carteiraAtivoService.salvar(ca);
-            }
-        });
+        return ResponseEntity.ok(visao.carteira());
     }
 
     @Operation(summary = "Selecionar e salvar carteira do usuário",
@@ -345,7 +288,6 @@ public class CarteiraUsuarioController {
             )
     })
     @PostMapping("/selecionar")
-    @Transactional  // garante transação ativa para deleteAll + saves
     public ResponseEntity<?> selecionarCarteira(
             @AuthenticationPrincipal User userDetails,
             @RequestParam("tipo") String tipo,
@@ -367,19 +309,14 @@ public class CarteiraUsuarioController {
         String email = userDetails.getUsername();
         String maskedEmail = EmailUtils.mask(email);
         log.info("[XYZ] - Ação com email: {}", maskedEmail);
-        Usuario u = usuarioService.findByEmail(email);
+        Usuario u = usuarioService.referenciaPorEmail(email);
 
         ObjetivoUsuario obj = objetivoService
                 .buscarUltimoPorUsuario(u)
                 .orElseThrow(() -> new RuntimeException("Objetivo não encontrado"));
 
-        // 2) limpa registros antigos
-        percentualRepo.deleteAllByUsuarioIdAndObjetivoId(u.getId(), obj.getId());
-        carteiraAtivoService.deleteAllByUsuarioIdAndObjetivoId(u.getId(), obj.getId());
-
-        // 3) persiste percentuais e ativos — agora garantido não ser nulo
-        salvarPercentuais(u, obj, tipo, request.getPercentuais());
-        salvarAtivosManuais(u, obj, tipo, request.getAtivos(), request.getPercentuais());
+        // 2) busca cotações e, numa transação curta, troca percentuais e ativos antigos
+        carteiraOperacaoService.selecionarCarteira(u, obj, tipo, request.getPercentuais(), request.getAtivos());
 
         return ResponseEntity.ok("Carteira '" + tipo + "' salva com sucesso.");
     }
@@ -434,50 +371,17 @@ public class CarteiraUsuarioController {
             @RequestParam(required = false) Long objetivoId   // ← novo parâmetro
     ) {
         // 1) busca o usuário pelo e-mail do token
-        Usuario u = usuarioService.findByEmail(userDetails.getUsername());
-
-        // 2) decide qual ObjetivoUsuario usar: passado ou último
-        ObjetivoUsuario objEntity;
-        if (objetivoId != null) {
-            objEntity = objetivoService
-                    .buscarPorIdEUsuario(objetivoId, u)
-                    .orElseThrow(() ->
-                            new ResponseStatusException(HttpStatus.NOT_FOUND, "Objetivo não encontrado"));
-        } else {
-            objEntity = objetivoService
-                    .buscarUltimoPorUsuario(u)
-                    .orElseThrow(() ->
-                            new ResponseStatusException(HttpStatus.NOT_FOUND, "Nenhum objetivo encontrado"));
-        }
+        Usuario u = usuarioService.referenciaPorEmail(userDetails.getUsername());
+
+        // 2) objetivo (passado ou último) + percentuais + ativos em uma única consulta
+        CarteiraVisaoService.CarteiraVisao visao = carteiraVisaoService
+                .buscar(u.getId(), objetivoId, tipoCarteira)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        objetivoId != null ? "Objetivo não encontrado" : "Nenhum objetivo encontrado"));
 
-        // 3) converte entidade → DTO
-        ObjetivoUsuarioDTO objetivoDto = new ObjetivoUsuarioDTO();
-        BeanUtils.copyProperties(objEntity, objetivoDto);
-
-        // 4) monta mapa de percentuais
-        List<CarteiraPercentual> pctList = percentualRepo
-                .findByUsuarioIdAndObjetivoIdAndTipoCarteira(u.getId(), objEntity.getId(), tipoCarteira);
-        Map<String,Integer> percentuais = pctList.stream()
-                .collect(Collectors.toMap(
-                        CarteiraPercentual::getSegmento,
-                        CarteiraPercentual::getPercentual
-                ));
-
-        // 5) monta mapa de ativos
-        List<CarteiraAtivo> ativosList = carteiraAtivoService
-                .buscarPorObjetivoETipo(objEntity, tipoCarteira);
-        Map<String,List<CarteiraResponseDTO.AtivoDTO>> ativos = ativosList.stream()
-                .collect(Collectors.groupingBy(
-                        CarteiraAtivo::getSegmento,
-                        Collectors.mapping(a ->
-                                        new CarteiraResponseDTO.AtivoDTO(
-                                                a.getNomeAtivo(),
-                                                a.getPrecoUnitario(),
-                                                a.getQuantidadeCotas()
-                                        ),
-                                Collectors.toList()
-                        )
-                ));
+        ObjetivoUsuarioDTO objetivoDto = visao.objetivo();
+        Map<String,Integer> percentuais = visao.carteira().getPercentuais();
+        Map<String,List<CarteiraResponseDTO.AtivoDTO>> ativos = visao.carteira().getAtivos();
 
         // 6) geração de exemplo para o gráfico (substitua pela sua lógica real)
         List<PontoDTO> grafico = new ArrayList<>();
@@ -2,6 +2,8 @@ package com.Iviinvest.controller;
 
 import com.Iviinvest.dto.ChatRequestDTO;
 import com.Iviinvest.model.Usuario;
+import com.Iviinvest.service.ChatStreamService;
+import com.Iviinvest.service.DeduplicacaoRequisicoes;
 import com.Iviinvest.service.IAService;
 import com.Iviinvest.service.UsuarioService;
 import com.Iviinvest.util.EmailUtils;
@@ -12,14 +14,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -33,10 +40,20 @@ public class ChatController {
 
     private final UsuarioService usuarioService;
     private final IAService iaService;
+    private final ChatStreamService chatStreamService;
+    private final DeduplicacaoRequisicoes deduplicacao;
+    private final long streamTimeoutMs;
 
-    public ChatController(UsuarioService usuarioService, IAService iaService) {
+    public ChatController(UsuarioService usuarioService,
+                          IAService iaService,
+                          ChatStreamService chatStreamService,
+                          DeduplicacaoRequisicoes deduplicacao,
+                          @Value("${chat.stream.timeout-ms:120000}") long streamTimeoutMs) {
         this.usuarioService = usuarioService;
         this.iaService = iaService;
+        this.chatStreamService = chatStreamService;
+        this.deduplicacao = deduplicacao;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
 
     @Operation(
@@ -59,7 +76,8 @@ public class ChatController {
     @PostMapping
     public ResponseEntity<?> conversarComIa(
             @AuthenticationPrincipal User userDetails,
-            @RequestBody @Valid ChatRequestDTO pergunta) {
+            @RequestBody @Valid ChatRequestDTO pergunta,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia) {
 
         String email = userDetails.getUsername();
         String masked = EmailUtils.mask(email);
@@ -67,12 +85,23 @@ public class ChatController {
 
 
         try {
-            Usuario usuario = usuarioService.findByEmail(email);
+            // pergunta repetida em seguida (toque duplo, nova tentativa) não gera outra chamada à IA
+            String resposta = deduplicacao.executar(email, "chat", pergunta.getQuestion(), chaveIdempotencia, () -> {
+                Usuario usuario = usuarioService.referenciaPorEmail(email);
+                return iaService.responderPergunta(pergunta.getQuestion(), usuario).getString("resposta");
+            });
 
-            JSONObject respostaJson = iaService.responderPergunta(pergunta.getQuestion(), usuario);
-
-            return ResponseEntity.ok(Map.of("resposta", respostaJson.getString("resposta")));
+            return ResponseEntity.ok(Map.of("resposta", resposta));
 
+        } catch (ResponseStatusException e) {
+            // IA sobrecarregada: repassa o status para o cliente tentar de novo
+            // AI overloaded: forwards the status so the client retries
+            log.warn("[CHAT] - IA indisponível para {}: {}", masked, e.getReason());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of(
+                    "status", String.valueOf(e.getStatusCode().value()),
+                    "error", HttpStatus.valueOf(e.getStatusCode().value()).name(),
+                    "message", e.getReason()
+            ));
         } catch (Exception e) {
             log.error("[CHAT] - Erro ao gerar resposta da IA para {}: {}", masked, e.getMessage(), e);
             return ResponseEntity.internalServerError().body(Map.of(
@@ -82,4 +111,83 @@ public class ChatController {
             ));
         }
     }
+
+    @Operation(
+            summary = "Enviar pergunta para IA com resposta em streaming",
+            description = "Transmite a resposta da IA via Server-Sent Events à medida que é gerada. "
+                    + "Eventos: 'delta' ({\"texto\": ...}) para cada trecho, 'fim' ao concluir e 'erro' em caso de falha.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transmissão iniciada",
+                    content = @Content(mediaType = "text/event-stream",
+                            examples = @ExampleObject(
+                                    value = "event:delta\ndata:{\"texto\":\"A carteira foi\"}\n\nevent:fim\ndata:{}\n\n"
+                            ))),
+            @ApiResponse(responseCode = "409", description = "A mesma pergunta ainda está sendo transmitida")
+    })
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter conversarComIaStream(
+            @AuthenticationPrincipal User userDetails,
+            @RequestBody @Valid ChatRequestDTO pergunta,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia) {
+
+        String email = userDetails.getUsername();
+        String masked = EmailUtils.mask(email);
+        log.info("[CHAT] - Mensagem (stream) recebida de {}: {}", masked, pergunta.getQuestion());
+
+        // Mesma chave do chat sem stream: pergunta repetida enquanto a anterior é transmitida recebe 409
+        // Same key as the non-streamed chat: a question repeated while the previous one streams gets 409
+        Runnable liberar = deduplicacao.reservar(email, "chat", pergunta.getQuestion(), chaveIdempotencia);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        ChatStreamService.Transmissao transmissao;
+        try {
+            Long usuarioId = usuarioService.buscarResumoPorEmail(email).id();
+            transmissao = chatStreamService.transmitir(pergunta.getQuestion(), usuarioId,
+                    new ChatStreamService.Destino() {
+                        @Override
+                        public void delta(String texto) throws IOException {
+                            emitter.send(SseEmitter.event().name("delta").data(Map.of("texto", texto)));
+                        }
+    
+                        @Override
+                        public void concluir() {
+                            try {
+                                emitter.send(SseEmitter.event().name("fim").data(Map.of()));
+                                emitter.complete();
+                            } catch (IOException | IllegalStateException e) {
+                                emitter.completeWithError(e);
+                            }
+                        }
+    
+                        @Override
+                        public void falhar(Throwable erro) {
+                            log.error("[CHAT] - Erro na transmissão da IA para {}: {}", masked, erro.getMessage());
+                            try {
+                                emitter.send(SseEmitter.event().name("erro").data(Map.of(
+                                        "status", "502",
+                                        "error", "BAD_GATEWAY",
+                                        "message", "Erro ao processar a resposta da IA"
+                                )));
+                                emitter.complete();
+                            } catch (IOException | IllegalStateException e) {
+                                emitter.completeWithError(e);
+                            }
+                        }
+                    });
+        } catch (RuntimeException e) {
+            liberar.run();
+            throw e;
+        }
+
+        // Cliente desconectou ou estourou o tempo: para de ler do provedor e libera a pergunta
+        // Client disconnected or timed out: stop reading from the provider and release the question
+        emitter.onTimeout(transmissao::cancelar);
+        emitter.onError(e -> transmissao.cancelar());
+        emitter.onCompletion(() -> {
+            transmissao.cancelar();
+            liberar.run();
+        });
+        return emitter;
+    }
 }
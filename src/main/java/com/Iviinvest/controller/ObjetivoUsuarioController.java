@@ -1,12 +1,12 @@
 package com.Iviinvest.controller;
 
+import com.Iviinvest.dto.ObjetivoHistoricoItemDTO;
 import com.Iviinvest.dto.ObjetivoUsuarioDTO;
+import com.Iviinvest.dto.PaginaCursorDTO;
 import com.Iviinvest.model.Usuario;
 import com.Iviinvest.service.ObjetivoUsuarioService;
 import com.Iviinvest.service.UsuarioService;
 import com.Iviinvest.util.EmailUtils;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -21,7 +21,6 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -35,7 +34,6 @@ public class ObjetivoUsuarioController {
 
     private final ObjetivoUsuarioService objetivoService;
     private final UsuarioService usuarioService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
     public ObjetivoUsuarioController(ObjetivoUsuarioService objetivoService, UsuarioService usuarioService) {
         this.objetivoService = objetivoService;
@@ -82,7 +80,7 @@ public class ObjetivoUsuarioController {
         log.info("[POST] - Solicitado salvamento de objetivo para usuário: {}", maskedEmail);
 
         try {
-            Usuario usuario = usuarioService.findByEmail(email);
+            Usuario usuario = usuarioService.referenciaPorEmail(email);
             objetivoService.salvarObjetivo(usuario, dto);
 
             log.info("[POST] - Objetivo salvo com sucesso para usuário: {}", maskedEmail);
@@ -152,33 +150,12 @@ public class ObjetivoUsuarioController {
 
 
         try {
-            Usuario usuario = usuarioService.findByEmail(email);
+            Usuario usuario = usuarioService.referenciaPorEmail(email);
 
-            return objetivoService.buscarUltimoPorUsuario(usuario)
-                    .map(objetivo -> {
-                        try {
-                            List<String> setoresEvitar = objectMapper.readValue(objetivo.getSetoresEvitar(), new TypeReference<>() {});
-                            ObjetivoUsuarioDTO dto = new ObjetivoUsuarioDTO();
-                            dto.setObjetivo(objetivo.getObjetivo());
-                            dto.setPrazo(objetivo.getPrazo());
-                            dto.setValorInicial(objetivo.getValorInicial());
-                            dto.setAporteMensal(objetivo.getAporteMensal());
-                            dto.setPatrimonioAtual(objetivo.getPatrimonioAtual());
-                            dto.setLiquidez(objetivo.getLiquidez());
-                            dto.setSetoresEvitar(setoresEvitar);
-                            dto.setDataCriacao(objetivo.getDataCriacao());
-
-                            log.info("[GET] - Último objetivo encontrado e retornado para usuário: {}", maskedEmail);
-                            return ResponseEntity.ok(dto);
-
-                        } catch (Exception ex) {
-                            log.error("[GET] - Erro ao ler setores evitados para usuário {}: {}", maskedEmail, ex.getMessage(), ex);
-                            return ResponseEntity.internalServerError().body(Map.of(
-                                    "status", "500",
-                                    "error", "INTERNAL_SERVER_ERROR",
-                                    "message", "Erro ao processar setores evitados."
-                            ));
-                        }
+            return objetivoService.buscarUltimoDTOPorUsuario(usuario)
+                    .<ResponseEntity<?>>map(dto -> {
+                        log.info("[GET] - Último objetivo encontrado e retornado para usuário: {}", maskedEmail);
+                        return ResponseEntity.ok(dto);
                     })
                     .orElseGet(() -> {
                         log.warn("[GET] - Nenhum objetivo encontrado para usuário: {}", maskedEmail);
@@ -207,12 +184,15 @@ public class ObjetivoUsuarioController {
     }
 
     /**
-     * Lista o histórico completo de objetivos de investimento do usuário.
+     * Lista o histórico de objetivos de investimento do usuário, paginado por cursor.
      *
      * @param userDetails Dados do usuário autenticado
-     * @return Lista de Objetivos de investimento
+     * @param cursor ID do último item da página anterior (omitir na primeira página)
+     * @param limite Quantidade de itens por página (máximo 100)
+     * @return Página com os objetivos resumidos e o cursor da próxima página
      */
-    @Operation(summary = "Listar histórico completo de objetivos do usuário",
+    @Operation(summary = "Listar histórico de objetivos do usuário (paginado)",
+            description = "Retorna objetivos resumidos, do mais recente ao mais antigo. Use 'proximoCursor' como 'cursor' para buscar a próxima página; é nulo na última.",
             security = @SecurityRequirement(name = "bearerAuth"))
     @ApiResponses(value = {
             @ApiResponse(
@@ -221,7 +201,7 @@ public class ObjetivoUsuarioController {
                     content = @Content(
                             mediaType = "application/json",
                             examples = @ExampleObject(
-                                    value = "[{\"objetivo\":\"Aposentadoria\",\"prazo\":\"15+ anos\",\"valorInicial\":20000.0,\"aporteMensal\":500.0,\"patrimonioAtual\":50000.0,\"liquidez\":\"Baixa\",\"setoresEvitar\":[\"Criptomoedas\"]}]"
+                                    value = "{\"itens\":[{\"id\":42,\"objetivo\":\"Aposentadoria\",\"prazo\":15,\"valorInicial\":20000.0,\"aporteMensal\":500.0,\"dataCriacao\":\"2025-05-10\"}],\"proximoCursor\":42}"
                             )
                     )
             ),
@@ -238,16 +218,19 @@ public class ObjetivoUsuarioController {
     })
     @GetMapping("/historico")
     public ResponseEntity<?> listarHistoricoObjetivos(
-            @AuthenticationPrincipal org.springframework.security.core.userdetails.User userDetails) {
+            @AuthenticationPrincipal org.springframework.security.core.userdetails.User userDetails,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int limite) {
         String email = userDetails.getUsername();
         String maskedEmail = EmailUtils.mask(email);
         log.info("[GET] - Solicitada listagem do histórico de objetivos para usuário: {}", maskedEmail);
 
         try {
-            Usuario usuario = usuarioService.findByEmail(email);
-            List<ObjetivoUsuarioDTO> objetivos = objetivoService.buscarHistoricoPorUsuario(usuario);
+            Usuario usuario = usuarioService.referenciaPorEmail(email);
+            PaginaCursorDTO<ObjetivoHistoricoItemDTO> pagina =
+                    objetivoService.buscarHistoricoPaginado(usuario, cursor, limite);
 
-            if (objetivos.isEmpty()) {
+            if (cursor == null && pagina.itens().isEmpty()) {
                 log.warn("[GET] - Nenhum objetivo encontrado para usuário: {}", maskedEmail);
                 return ResponseEntity.status(404).body(Map.of(
                         "status", "404",
@@ -256,8 +239,8 @@ public class ObjetivoUsuarioController {
                 ));
             }
 
-            log.info("[GET] - {} objetivos retornados para histórico do usuário: {}", objetivos.size(), maskedEmail);
-            return ResponseEntity.ok(objetivos);
+            log.info("[GET] - {} objetivos retornados para histórico do usuário: {}", pagina.itens().size(), maskedEmail);
+            return ResponseEntity.ok(pagina);
 
         } catch (ResponseStatusException ex) {
             log.error("[GET] - Falha ao buscar histórico para usuário {}: {}", maskedEmail, ex.getReason());
@@ -276,4 +259,67 @@ public class ObjetivoUsuarioController {
         }
     }
 
+    /**
+     * Busca o detalhe completo de um objetivo do histórico do usuário.
+     *
+     * @param userDetails Dados do usuário autenticado
+     * @param id ID do objetivo
+     * @return Objetivo de investimento ou mensagem de erro
+     */
+    @Operation(summary = "Buscar detalhe de um objetivo do histórico",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Objetivo encontrado",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(
+                                    value = "{\"objetivo\":\"Aposentadoria\",\"prazo\":15,\"valorInicial\":20000.0,\"aporteMensal\":500.0,\"patrimonioAtual\":50000.0,\"liquidez\":\"Baixa\",\"setoresEvitar\":[\"Criptomoedas\"],\"dataCriacao\":\"2025-05-10\"}"
+                            )
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Objetivo não encontrado",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(
+                                    value = "{\"status\": \"404\", \"error\": \"NOT_FOUND\", \"message\": \"Objetivo não encontrado.\"}"
+                            )
+                    )
+            )
+    })
+    @GetMapping("/historico/{id}")
+    public ResponseEntity<?> buscarDetalheObjetivo(
+            @AuthenticationPrincipal org.springframework.security.core.userdetails.User userDetails,
+            @PathVariable Long id) {
+        String email = userDetails.getUsername();
+        String maskedEmail = EmailUtils.mask(email);
+        log.info("[GET] - Solicitado detalhe do objetivo {} para usuário: {}", id, maskedEmail);
+
+        try {
+            Usuario usuario = usuarioService.referenciaPorEmail(email);
+
+            return objetivoService.buscarDetalhePorUsuario(usuario, id)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> {
+                        log.warn("[GET] - Objetivo {} não encontrado para usuário: {}", id, maskedEmail);
+                        return ResponseEntity.status(404).body(Map.of(
+                                "status", "404",
+                                "error", "NOT_FOUND",
+                                "message", "Objetivo não encontrado."
+                        ));
+                    });
+
+        } catch (Exception ex) {
+            log.error("[GET] - Erro interno ao buscar objetivo {} para usuário {}: {}", id, maskedEmail, ex.getMessage(), ex);
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "status", "500",
+                    "error", "INTERNAL_SERVER_ERROR",
+                    "message", "Erro inesperado ao buscar objetivo."
+            ));
+        }
+    }
+
 }
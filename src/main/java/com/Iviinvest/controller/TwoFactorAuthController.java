@@ -119,7 +119,7 @@ public class TwoFactorAuthController {
             return ResponseEntity.status(401).body("Código inválido ou expirado");
         }
 
-        var usuario = usuarioService.findByEmail(dto.getEmail());
+        var usuario = usuarioService.referenciaPorEmail(dto.getEmail());
         String jwt = jwtService.generateToken(usuario);
 
         log.info("[2FA VERIFY] Código validado com sucesso para: {}", maskedEmail);
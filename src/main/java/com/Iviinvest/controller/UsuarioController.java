@@ -300,8 +300,7 @@ public class UsuarioController {
         String maskedEmail = EmailUtils.mask(userDetails.getUsername());
         log.info("[DELETE] - Solicitada exclusão para usuário: {}", maskedEmail);
 
-        Usuario usuario = service.findByEmail(email);
-        service.deletar(usuario.getId());
+        service.deletar(service.buscarResumoPorEmail(email).id());
 
         log.info("[DELETE] - Conta do usuário excluída: {}", maskedEmail);
         return ResponseEntity.noContent().build();
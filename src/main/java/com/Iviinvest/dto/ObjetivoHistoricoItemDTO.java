@@ -0,0 +1,20 @@
+package com.Iviinvest.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Item resumido do histórico de objetivos. O detalhe completo é buscado pelo {@code id}.
+ * <p>
+ * Summary item of the goal history. The full detail is fetched by {@code id}.
+ */
+public record ObjetivoHistoricoItemDTO(
+        Long id,
+        String objetivo,
+        Integer prazo,
+        Double valorInicial,
+        Double aporteMensal,
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        LocalDate dataCriacao
+) {}
@@ -1,6 +1,8 @@
 package com.Iviinvest.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -17,7 +19,8 @@ public class ObjetivoUsuarioDTO {
     private Double aporteMensal;
     private Double patrimonioAtual;
     private String liquidez;
-    private List<String> setoresEvitar;
+    // Mesmo limite da coluna objetivo_setores_evitar.setor
+    private List<@NotNull @Size(max = 100) String> setoresEvitar;
 
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate dataCriacao;
@@ -0,0 +1,21 @@
+package com.Iviinvest.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Projeção somente-leitura de um objetivo, preenchida direto pela consulta JPQL.
+ * Os setores evitados são carregados à parte, em lote ({@link SetorEvitadoResumo}).
+ * <p>
+ * Read-only projection of a goal, filled straight from the JPQL query.
+ * Avoided sectors are loaded separately, in batch ({@link SetorEvitadoResumo}).
+ */
+public record ObjetivoUsuarioResumo(
+        Long id,
+        String objetivo,
+        Integer prazo,
+        Double valorInicial,
+        Double aporteMensal,
+        Double patrimonioAtual,
+        String liquidez,
+        LocalDate dataCriacao
+) {}
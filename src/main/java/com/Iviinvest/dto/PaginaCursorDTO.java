@@ -0,0 +1,13 @@
+package com.Iviinvest.dto;
+
+import java.util.List;
+
+/**
+ * Página de uma listagem paginada por cursor.
+ * <p>
+ * Page of a cursor-paginated listing.
+ *
+ * @param itens Itens da página | Page items
+ * @param proximoCursor Cursor da próxima página ou {@code null} na última | Next page cursor or {@code null} on the last one
+ */
+public record PaginaCursorDTO<T>(List<T> itens, Long proximoCursor) {}
@@ -0,0 +1,8 @@
+package com.Iviinvest.dto;
+
+/**
+ * Setor evitado de um objetivo, como retornado pela consulta em lote.
+ * <p>
+ * Avoided sector of a goal, as returned by the batch query.
+ */
+public record SetorEvitadoResumo(Long objetivoId, String setor) {}
@@ -0,0 +1,33 @@
+package com.Iviinvest.dto;
+
+import com.Iviinvest.model.Usuario;
+
+/**
+ * Dados do usuário guardados no cache e-mail → usuário.
+ * <p>
+ * Imutável e sem senha nem token de redefinição: a entidade gerenciada não vai para o
+ * cache, e cada leitura ganha uma cópia própria via {@link #paraUsuario()}.
+ * <p>
+ * User data kept in the email → user cache. Immutable and without password or reset
+ * token: the managed entity never goes into the cache, and each read gets its own copy
+ * through {@link #paraUsuario()}.
+ */
+public record UsuarioResumo(Long id, String email, String perfilInvestidor) {
+
+    public static UsuarioResumo de(Usuario usuario) {
+        return new UsuarioResumo(usuario.getId(), usuario.getEmail(), usuario.getPerfilInvestidor());
+    }
+
+    /**
+     * Nova instância destacada, usada só como referência (id) e para leitura.
+     * <p>
+     * New detached instance, used only as a reference (id) and for reading.
+     */
+    public Usuario paraUsuario() {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setEmail(email);
+        usuario.setPerfilInvestidor(perfilInvestidor);
+        return usuario;
+    }
+}
@@ -10,10 +10,10 @@ public class CarteiraAtivo {
     private String segmento;
     private String nomeAtivo;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Usuario usuario;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private ObjetivoUsuario objetivo;
 
     @Column(nullable = false)
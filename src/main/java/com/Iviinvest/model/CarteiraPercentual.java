@@ -11,10 +11,10 @@ public class CarteiraPercentual {
     private String segmento;
     private Integer percentual;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Usuario usuario;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private ObjetivoUsuario objetivo;
 
     @Column(nullable = false)
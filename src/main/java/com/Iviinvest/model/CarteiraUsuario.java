@@ -3,37 +3,54 @@ package com.Iviinvest.model;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Getter
 @Setter
-@Table(name = "carteiras_usuarios")
+@Table(name = "carteiras_usuarios",
+        uniqueConstraints = @UniqueConstraint(name = CarteiraUsuario.UK_OBJETIVO, columnNames = "objetivo_id"))
 public class CarteiraUsuario {
 
+    /** Uma carteira por objetivo | One portfolio per goal */
+    public static final String UK_OBJETIVO = "uk_carteira_objetivo";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     // Relacionamento com Usuário
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
 
     // Relacionamento com Objetivo
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "objetivo_id", nullable = false)
     private ObjetivoUsuario objetivoUsuario;
 
-    @Column(columnDefinition = "TEXT")
-    private String carteiraConservadoraJson; // JSON bruto da carteira conservadora
-
-    @Column(columnDefinition = "TEXT")
-    private String carteiraAgressivaJson; // JSON bruto da carteira agressiva
+    // Ativos das carteiras conservadora e agressiva, um registro por ticker
+    // Assets of the conservative and aggressive portfolios, one row per ticker
+    @OneToMany(mappedBy = "carteira", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("tipo, segmento, posicao")
+    @BatchSize(size = 50)
+    private List<CarteiraUsuarioItem> itens = new ArrayList<>();
 
 
     @Column
     private String carteiraSelecionada;
 
+    // Controle de concorrência otimista entre gerações simultâneas
+    // Optimistic concurrency control between concurrent generations
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long versao;
+
     // ============== GETTERS E SETTERS ==============
     // ============== GETTERS AND SETTERS ==============
 
@@ -61,20 +78,12 @@ public class CarteiraUsuario {
         this.objetivoUsuario = objetivoUsuario;
     }
 
-    public String getCarteiraConservadoraJson() {
-        return carteiraConservadoraJson;
-    }
-
-    public void setCarteiraConservadoraJson(String carteiraConservadoraJson) {
-        this.carteiraConservadoraJson = carteiraConservadoraJson;
-    }
-
-    public String getCarteiraAgressivaJson() {
-        return carteiraAgressivaJson;
+    public List<CarteiraUsuarioItem> getItens() {
+        return itens;
     }
 
-    public void setCarteiraAgressivaJson(String carteiraAgressivaJson) {
-        this.carteiraAgressivaJson = carteiraAgressivaJson;
+    public void setItens(List<CarteiraUsuarioItem> itens) {
+        this.itens = itens;
     }
 
     public String getCarteiraSelecionada() {
@@ -84,4 +93,8 @@ public class CarteiraUsuario {
     public void setCarteiraSelecionada(String carteiraSelecionada) {
         this.carteiraSelecionada = carteiraSelecionada;
     }
+
+    public Long getVersao() {
+        return versao;
+    }
 }
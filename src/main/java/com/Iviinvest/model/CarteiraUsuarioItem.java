@@ -0,0 +1,78 @@
+package com.Iviinvest.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Ativo de uma carteira gerada: tipo e segmento como enums, ticker como
+ * referência ao dicionário.
+ * <p>
+ * Asset of a generated portfolio: type and segment as enums, ticker as a
+ * reference to the dictionary.
+ */
+@Entity
+@Table(name = "carteira_usuario_itens", indexes = {
+        @Index(name = "idx_item_carteira", columnList = "carteira_usuario_id"),
+        @Index(name = "idx_item_ticker", columnList = "ticker_id")
+})
+public class CarteiraUsuarioItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "carteira_usuario_id", nullable = false)
+    private CarteiraUsuario carteira;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(nullable = false)
+    private TipoCarteira tipo;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(nullable = false)
+    private SegmentoCarteira segmento;
+
+    // Ordem do ativo dentro do segmento | Asset order inside the segment
+    @Column(nullable = false)
+    private short posicao;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ticker_id", nullable = false)
+    private Ticker ticker;
+
+    public CarteiraUsuarioItem() {
+    }
+
+    public CarteiraUsuarioItem(CarteiraUsuario carteira, TipoCarteira tipo, SegmentoCarteira segmento,
+                               short posicao, Ticker ticker) {
+        this.carteira = carteira;
+        this.tipo = tipo;
+        this.segmento = segmento;
+        this.posicao = posicao;
+        this.ticker = ticker;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public CarteiraUsuario getCarteira() {
+        return carteira;
+    }
+
+    public TipoCarteira getTipo() {
+        return tipo;
+    }
+
+    public SegmentoCarteira getSegmento() {
+        return segmento;
+    }
+
+    public short getPosicao() {
+        return posicao;
+    }
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+}
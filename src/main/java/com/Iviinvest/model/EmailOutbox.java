@@ -0,0 +1,151 @@
+package com.Iviinvest.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * E-mail aguardando envio (padrão outbox).
+ * <p>
+ * A requisição HTTP apenas grava a mensagem nesta tabela; o {@code EmailOutboxWorker}
+ * envia em lote e reagenda as falhas com backoff exponencial. Mensagens enviadas são removidas.
+ * <p>
+ * Email waiting to be delivered (outbox pattern).
+ * The HTTP request only writes the message to this table; {@code EmailOutboxWorker}
+ * sends in batches and reschedules failures with exponential backoff. Sent messages are removed.
+ */
+@Entity
+@Table(name = "email_outbox",
+        indexes = @Index(name = "idx_email_outbox_pendentes", columnList = "status, proxima_tentativa"))
+public class EmailOutbox {
+
+    public static final String PENDENTE = "PENDENTE";
+    public static final String FALHOU = "FALHOU";   // Excedeu o número de tentativas | Exceeded max attempts
+
+    // Ocupa o lugar do corpo (códigos, tokens) quando a mensagem desiste; a coluna é NOT NULL
+    // Takes the place of the body (codes, tokens) once the message gives up; the column is NOT NULL
+    public static final String CORPO_REMOVIDO = "[removido]";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    @Column(nullable = false)
+    private String assunto;
+
+    @Column(name = "corpo_texto", nullable = false, length = 4000)
+    private String corpoTexto;
+
+    @Column(name = "corpo_html", length = 4000)
+    private String corpoHtml; // Opcional: quando presente, envia multipart/alternative
+
+    @Column(nullable = false, length = 20)
+    private String status = PENDENTE;
+
+    @Column(nullable = false)
+    private Integer tentativas = 0;
+
+    @Column(name = "proxima_tentativa", nullable = false)
+    private Instant proximaTentativa;
+
+    @Column(name = "ultimo_erro", length = 1000)
+    private String ultimoErro;
+
+    @Column(name = "criado_em", nullable = false, updatable = false)
+    private Instant criadoEm;
+
+    // Reserva otimista entre workers/réplicas | Optimistic claim between workers/replicas
+    @Version
+    private Long versao;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDestinatario() {
+        return destinatario;
+    }
+
+    public void setDestinatario(String destinatario) {
+        this.destinatario = destinatario;
+    }
+
+    public String getAssunto() {
+        return assunto;
+    }
+
+    public void setAssunto(String assunto) {
+        this.assunto = assunto;
+    }
+
+    public String getCorpoTexto() {
+        return corpoTexto;
+    }
+
+    public void setCorpoTexto(String corpoTexto) {
+        this.corpoTexto = corpoTexto;
+    }
+
+    public String getCorpoHtml() {
+        return corpoHtml;
+    }
+
+    public void setCorpoHtml(String corpoHtml) {
+        this.corpoHtml = corpoHtml;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getTentativas() {
+        return tentativas;
+    }
+
+    public void setTentativas(Integer tentativas) {
+        this.tentativas = tentativas;
+    }
+
+    public Instant getProximaTentativa() {
+        return proximaTentativa;
+    }
+
+    public void setProximaTentativa(Instant proximaTentativa) {
+        this.proximaTentativa = proximaTentativa;
+    }
+
+    public String getUltimoErro() {
+        return ultimoErro;
+    }
+
+    public void setUltimoErro(String ultimoErro) {
+        this.ultimoErro = ultimoErro;
+    }
+
+    public Instant getCriadoEm() {
+        return criadoEm;
+    }
+
+    public void setCriadoEm(Instant criadoEm) {
+        this.criadoEm = criadoEm;
+    }
+
+    public Long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(Long versao) {
+        this.versao = versao;
+    }
+}
@@ -4,14 +4,18 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Getter
 @Setter
-@Table(name = "objetivos_usuarios")
+@Table(name = "objetivos_usuarios",
+        indexes = @Index(name = "idx_objetivo_usuario_id", columnList = "usuario_id, id"))
 public class ObjetivoUsuario {
 
     @Id
@@ -19,7 +23,7 @@ public class ObjetivoUsuario {
     private Long id;
 
     // Associação com o usuário
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
 
@@ -39,8 +43,18 @@ public class ObjetivoUsuario {
     @Column(name = "data_criacao", nullable = false, updatable = false)
     private LocalDate dataCriacao;
 
-    @Column(length = 1000)
-    private String setoresEvitar; // Armazena como JSON String
+    // Setores evitados em tabela própria, indexada por setor (permite filtrar em SQL)
+    // Avoided sectors in their own table, indexed by sector (allows filtering in SQL)
+    @ElementCollection
+    @CollectionTable(
+            name = "objetivo_setores_evitar",
+            joinColumns = @JoinColumn(name = "objetivo_id"),
+            indexes = @Index(name = "idx_setor_evitado", columnList = "setor")
+    )
+    @Column(name = "setor", length = 100, nullable = false)
+    @OrderColumn(name = "posicao")
+    @BatchSize(size = 50)
+    private List<String> setoresEvitar = new ArrayList<>();
 
 
     // ============== GETTERS AND SETTERS ==============
@@ -109,11 +123,11 @@ public class ObjetivoUsuario {
         this.liquidez = liquidez;
     }
 
-    public String getSetoresEvitar() {
+    public List<String> getSetoresEvitar() {
         return setoresEvitar;
     }
 
-    public void setSetoresEvitar(String setoresEvitar) {
+    public void setSetoresEvitar(List<String> setoresEvitar) {
         this.setoresEvitar = setoresEvitar;
     }
 
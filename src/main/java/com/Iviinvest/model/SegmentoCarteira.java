@@ -0,0 +1,39 @@
+package com.Iviinvest.model;
+
+import java.util.Optional;
+
+/**
+ * Segmentos de uma carteira.
+ * <p>
+ * Persistido pelo ordinal: novos valores só podem ser acrescentados no final.
+ * <p>
+ * Portfolio segments.
+ * Persisted by ordinal: new values may only be appended at the end.
+ */
+public enum SegmentoCarteira {
+    RENDA_FIXA("rendaFixa"),
+    ACOES("acoes"),
+    FIIS("fiis"),
+    CRIPTO("cripto");
+
+    private final String chave;
+
+    SegmentoCarteira(String chave) {
+        this.chave = chave;
+    }
+
+    /**
+     * Chave usada nos JSONs da API e da IA | Key used in the API and AI JSONs
+     */
+    public String getChave() {
+        return chave;
+    }
+
+    public static Optional<SegmentoCarteira> deChave(String chave) {
+        if (chave == null) return Optional.empty();
+        for (SegmentoCarteira segmento : values()) {
+            if (segmento.chave.equalsIgnoreCase(chave.trim())) return Optional.of(segmento);
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,60 @@
+package com.Iviinvest.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+/**
+ * Dicionário de tickers: cada código de ativo é gravado uma única vez e
+ * referenciado pelo ID nas carteiras geradas.
+ * <p>
+ * Ticker dictionary: each asset code is stored once and referenced by ID
+ * from the generated portfolios.
+ * <p>
+ * Nunca é alterado depois de gravado, por isso é a única entidade no cache de segundo
+ * nível (local a cada réplica): um código em cache não fica desatualizado.
+ * <p>
+ * Never changed once stored, so it is the only entity in the second-level cache
+ * (local to each replica): a cached code cannot go stale.
+ */
+@Entity
+@Table(name = "tickers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "tickers")
+@BatchSize(size = 50)
+public class Ticker {
+
+    /** Tamanho máximo do código | Maximum code length */
+    public static final int TAMANHO_CODIGO = 20;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, unique = true, length = TAMANHO_CODIGO)
+    private String codigo;
+
+    public Ticker() {
+    }
+
+    public Ticker(String codigo) {
+        this.codigo = codigo;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public void setCodigo(String codigo) {
+        this.codigo = codigo;
+    }
+}
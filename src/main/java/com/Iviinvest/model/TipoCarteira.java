@@ -0,0 +1,39 @@
+package com.Iviinvest.model;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Tipos de carteira gerados para o usuário.
+ * <p>
+ * Persistido pelo ordinal: novos valores só podem ser acrescentados no final.
+ * <p>
+ * Portfolio types generated for the user.
+ * Persisted by ordinal: new values may only be appended at the end.
+ */
+public enum TipoCarteira {
+    CONSERVADORA("conservadora"),
+    AGRESSIVA("agressiva");
+
+    private final String chave;
+
+    TipoCarteira(String chave) {
+        this.chave = chave;
+    }
+
+    /**
+     * Chave usada nos JSONs da API e da IA | Key used in the API and AI JSONs
+     */
+    public String getChave() {
+        return chave;
+    }
+
+    public static Optional<TipoCarteira> deChave(String chave) {
+        if (chave == null) return Optional.empty();
+        String normalizada = chave.trim().toLowerCase(Locale.ROOT);
+        for (TipoCarteira tipo : values()) {
+            if (tipo.chave.equals(normalizada)) return Optional.of(tipo);
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,63 @@
+package com.Iviinvest.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Código 2FA pendente, compartilhado entre as réplicas da API.
+ * <p>
+ * Guarda apenas o hash do código. O índice em {@code expira_em} permite remover os vencidos
+ * em lote sem varrer a tabela.
+ * <p>
+ * Pending 2FA code shared between API replicas.
+ * Only the code hash is stored. The index on {@code expira_em} allows batch removal of
+ * expired rows without a full table scan.
+ */
+@Entity
+@Table(name = "two_factor_codes",
+        indexes = @Index(name = "idx_two_factor_codes_expira_em", columnList = "expira_em"))
+public class TwoFactorCode {
+
+    @Id
+    private String email;
+
+    @Column(name = "codigo_hash", nullable = false, length = 64)
+    private String codigoHash;
+
+    @Column(name = "expira_em", nullable = false)
+    private Instant expiraEm;
+
+    public TwoFactorCode() {
+    }
+
+    public TwoFactorCode(String email, String codigoHash, Instant expiraEm) {
+        this.email = email;
+        this.codigoHash = codigoHash;
+        this.expiraEm = expiraEm;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getCodigoHash() {
+        return codigoHash;
+    }
+
+    public void setCodigoHash(String codigoHash) {
+        this.codigoHash = codigoHash;
+    }
+
+    public Instant getExpiraEm() {
+        return expiraEm;
+    }
+
+    public void setExpiraEm(Instant expiraEm) {
+        this.expiraEm = expiraEm;
+    }
+}
@@ -0,0 +1,264 @@
+package com.Iviinvest.perf;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Servidor HTTP local que imita a OpenAI ({@code /v1/chat/completions}) e a brapi
+ * ({@code /api/quote/{ticker}}) para testes de carga e de latência sem rede.
+ * <p>
+ * Cada provedor segue um {@link Cenario}: latência sorteada de uma distribuição
+ * log-normal (mediana e p99), uma taxa de erros com o status configurado e, para o
+ * streaming, um intervalo entre trechos. As respostas vêm de {@code classpath:simulado/}
+ * e trazem os defeitos comuns do modelo (cercas, vírgula final, zeros à esquerda). Com a
+ * mesma semente, a sequência de latências e erros sorteados se repete.
+ * <p>
+ * Local HTTP server that mimics OpenAI and brapi for load and latency tests without
+ * network access. Each provider follows a {@link Cenario}: latency drawn from a
+ * log-normal distribution (median and p99), an error rate with the configured status
+ * and, for streaming, a delay between chunks. Answers come from
+ * {@code classpath:simulado/} and carry the model's usual defects (fences, trailing
+ * comma, leading zeros). With the same seed, the drawn latencies and errors repeat.
+ */
+public class ServidorSimulado implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ServidorSimulado.class);
+
+    // Trecho exclusivo de cada prompt -> arquivo da resposta; sem trecho, resposta de chat
+    // Excerpt unique to each prompt -> answer file; without one, a chat answer
+    private static final Map<String, String> RESPOSTAS_POR_PROMPT = Map.of(
+            "chave carteira", "simulado/openai/ativos.txt",
+            "soma total deve ser 100", "simulado/openai/distribuicao.txt");
+
+    /**
+     * Latência log-normal definida pela mediana e pelo p99; p99 igual à mediana é fixa.
+     * <p>
+     * Log-normal latency defined by median and p99; a p99 equal to the median is fixed.
+     */
+    public record Latencia(long medianaMs, long p99Ms) {
+
+        private static final double Z_P99 = 2.326;
+
+        long sortear(Random random) {
+            if (medianaMs <= 0 || p99Ms <= medianaMs) {
+                return Math.max(0, medianaMs);
+            }
+            double sigma = Math.log((double) p99Ms / medianaMs) / Z_P99;
+            return Math.round(medianaMs * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    /**
+     * Comportamento de um provedor simulado.
+     * <p>
+     * Behaviour of a simulated provider.
+     *
+     * @param taxaErro Fração das requisições que falham (0 a 1) | Fraction of failing requests (0 to 1)
+     * @param statusErro Status HTTP das falhas | HTTP status of failures
+     * @param intervaloTrechoMs Pausa entre trechos no streaming | Pause between streamed chunks
+     */
+    public record Cenario(Latencia latencia, double taxaErro, int statusErro, long intervaloTrechoMs) {}
+
+    private final HttpServer servidor;
+    private final ExecutorService executor;
+    private final Cenario openai;
+    private final Cenario brapi;
+    private final Random sorteioOpenai;
+    private final Random sorteioBrapi;
+    private final Map<String, String> respostas;
+    private final String respostaChat;
+    private final String cotacao;
+    private final AtomicLong sequencia = new AtomicLong();
+
+    /**
+     * @param porta Porta local; 0 escolhe uma livre | Local port; 0 picks a free one
+     * @param semente Semente dos sorteios de latência e erro | Seed for latency and error draws
+     */
+    public ServidorSimulado(int porta, long semente, Cenario openai, Cenario brapi) throws IOException {
+        this.openai = openai;
+        this.brapi = brapi;
+        this.sorteioOpenai = new Random(semente);
+        this.sorteioBrapi = new Random(semente + 1);
+        this.respostas = RESPOSTAS_POR_PROMPT.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> recurso(e.getValue())));
+        this.respostaChat = recurso("simulado/openai/chat.txt");
+        this.cotacao = recurso("simulado/brapi/quote.json");
+
+        // Uma thread por requisição: as latências simuladas são esperas, não trabalho
+        // One thread per request: the simulated latencies are waits, not work
+        AtomicInteger numero = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "servidor-simulado-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.servidor = HttpServer.create(new InetSocketAddress("localhost", porta), 0);
+        servidor.setExecutor(executor);
+        servidor.createContext("/v1/chat/completions", this::chat);
+        servidor.createContext("/api/quote/", this::cotacao);
+    }
+
+    public ServidorSimulado iniciar() {
+        servidor.start();
+        log.info("[SIMULADO] OpenAI e brapi simuladas em http://localhost:{}", porta());
+        return this;
+    }
+
+    public int porta() {
+        return servidor.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void chat(HttpExchange troca) throws IOException {
+        try {
+            String corpo;
+            try (InputStream in = troca.getRequestBody()) {
+                corpo = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            if (falhar(troca, openai, sorteioOpenai)) {
+                return;
+            }
+
+            JSONObject requisicao = new JSONObject(corpo);
+            if (requisicao.optBoolean("stream")) {
+                JSONObject opcoes = requisicao.optJSONObject("stream_options");
+                boolean comUso = opcoes != null && opcoes.optBoolean("include_usage");
+                transmitir(troca, new JSONObject(respostaChat).getString("resposta"), comUso ? corpo.length() / 4 : -1);
+                return;
+            }
+
+            String conteudo = respostas.entrySet().stream()
+                    .filter(e -> corpo.contains(e.getKey()))
+                    .map(Map.Entry::getValue)
+                    .findFirst()
+                    .orElse(respostaChat);
+
+            JSONObject resposta = new JSONObject()
+                    .put("id", "chatcmpl-simulado-" + sequencia.incrementAndGet())
+                    .put("object", "chat.completion")
+                    .put("model", "gpt-4o-mini-simulado")
+                    .put("choices", new JSONArray().put(new JSONObject()
+                            .put("index", 0)
+                            .put("message", new JSONObject().put("role", "assistant").put("content", conteudo))
+                            .put("finish_reason", "stop")))
+                    .put("usage", new JSONObject()
+                            .put("prompt_tokens", corpo.length() / 4)
+                            .put("completion_tokens", conteudo.length() / 4)
+                            .put("total_tokens", corpo.length() / 4 + conteudo.length() / 4));
+            responder(troca, 200, "application/json", resposta.toString());
+        } finally {
+            troca.close();
+        }
+    }
+
+    // Latência até o primeiro trecho, depois uma palavra por intervalo; consumo no fim se pedido
+    // Latency until the first chunk, then one word per interval; usage at the end if asked
+    private void transmitir(HttpExchange troca, String texto, int tokensPrompt) throws IOException {
+        troca.getResponseHeaders().add("Content-Type", "text/event-stream");
+        troca.sendResponseHeaders(200, 0);
+        try (OutputStream out = troca.getResponseBody()) {
+            for (String palavra : texto.split("(?<= )")) {
+                JSONObject delta = new JSONObject().put("choices", new JSONArray().put(new JSONObject()
+                        .put("delta", new JSONObject().put("content", palavra))));
+                out.write(("data: " + delta + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                Thread.sleep(openai.intervaloTrechoMs());
+            }
+            out.write("data: {\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            if (tokensPrompt >= 0) {
+                JSONObject uso = new JSONObject().put("choices", new JSONArray()).put("usage", new JSONObject()
+                        .put("prompt_tokens", tokensPrompt)
+                        .put("completion_tokens", texto.length() / 4)
+                        .put("total_tokens", tokensPrompt + texto.length() / 4));
+                out.write(("data: " + uso + "\n\n").getBytes(StandardCharsets.UTF_8));
+            }
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Cliente cancelou a transmissão | Client cancelled the stream
+        }
+    }
+
+    private void cotacao(HttpExchange troca) throws IOException {
+        try {
+            if (falhar(troca, brapi, sorteioBrapi)) {
+                return;
+            }
+            String ticker = troca.getRequestURI().getPath().substring("/api/quote/".length());
+            // Preço estável por ticker | Stable price per ticker
+            double preco = 5 + Math.floorMod(ticker.hashCode(), 9_500) / 100.0;
+            responder(troca, 200, "application/json", cotacao
+                    .replace("{{ticker}}", ticker)
+                    .replace("{{preco}}", String.format(Locale.ROOT, "%.2f", preco)));
+        } finally {
+            troca.close();
+        }
+    }
+
+    // Espera a latência sorteada e, se sorteado, responde com erro
+    // Waits for the drawn latency and, if drawn, answers with an error
+    private boolean falhar(HttpExchange troca, Cenario cenario, Random sorteio) throws IOException {
+        long latenciaMs;
+        boolean erro;
+        synchronized (sorteio) {
+            latenciaMs = cenario.latencia().sortear(sorteio);
+            erro = sorteio.nextDouble() < cenario.taxaErro();
+        }
+        try {
+            Thread.sleep(latenciaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (erro) {
+            responder(troca, cenario.statusErro(), "application/json",
+                    "{\"error\":{\"message\":\"Erro simulado\",\"type\":\"simulado\"}}");
+        }
+        return erro;
+    }
+
+    private static void responder(HttpExchange troca, int status, String tipo, String corpo) throws IOException {
+        byte[] bytes = corpo.getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().add("Content-Type", tipo);
+        troca.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = troca.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String recurso(String caminho) {
+        try (InputStream in = ServidorSimulado.class.getClassLoader().getResourceAsStream(caminho)) {
+            if (in == null) {
+                throw new IllegalStateException("Recurso simulado não encontrado: " + caminho);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
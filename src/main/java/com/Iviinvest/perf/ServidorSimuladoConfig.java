@@ -0,0 +1,45 @@
+package com.Iviinvest.perf;
+
+import com.Iviinvest.perf.ServidorSimulado.Cenario;
+import com.Iviinvest.perf.ServidorSimulado.Latencia;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+
+/**
+ * Sobe o {@link ServidorSimulado} junto com a aplicação no perfil {@code perf}.
+ * <p>
+ * O perfil aponta {@code openapi.api.url} e {@code brapi.api.url} para o servidor, então
+ * testes de carga medem o serviço com latências e erros reproduzíveis, sem rede nem custo.
+ * <p>
+ * Starts the {@link ServidorSimulado} with the application in the {@code perf} profile.
+ * The profile points {@code openapi.api.url} and {@code brapi.api.url} to the server, so
+ * load tests measure the service with reproducible latencies and errors, without network
+ * access or cost.
+ */
+@Configuration
+@Profile("perf")
+public class ServidorSimuladoConfig {
+
+    @Bean(destroyMethod = "close")
+    public ServidorSimulado servidorSimulado(
+            @Value("${simulado.porta:8089}") int porta,
+            @Value("${simulado.semente:42}") long semente,
+            @Value("${simulado.openai.latencia.mediana-ms:1200}") long openaiMedianaMs,
+            @Value("${simulado.openai.latencia.p99-ms:6000}") long openaiP99Ms,
+            @Value("${simulado.openai.taxa-erro:0.0}") double openaiTaxaErro,
+            @Value("${simulado.openai.status-erro:429}") int openaiStatusErro,
+            @Value("${simulado.openai.intervalo-trecho-ms:30}") long openaiIntervaloMs,
+            @Value("${simulado.brapi.latencia.mediana-ms:150}") long brapiMedianaMs,
+            @Value("${simulado.brapi.latencia.p99-ms:900}") long brapiP99Ms,
+            @Value("${simulado.brapi.taxa-erro:0.0}") double brapiTaxaErro,
+            @Value("${simulado.brapi.status-erro:500}") int brapiStatusErro) throws IOException {
+        return new ServidorSimulado(porta, semente,
+                new Cenario(new Latencia(openaiMedianaMs, openaiP99Ms), openaiTaxaErro, openaiStatusErro, openaiIntervaloMs),
+                new Cenario(new Latencia(brapiMedianaMs, brapiP99Ms), brapiTaxaErro, brapiStatusErro, 0))
+                .iniciar();
+    }
+}
@@ -0,0 +1,21 @@
+package com.Iviinvest.repository;
+
+import com.Iviinvest.model.CarteiraUsuarioItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CarteiraUsuarioItemRepository extends JpaRepository<CarteiraUsuarioItem, Long> {
+
+    /**
+     * Quantas carteiras geradas contêm o ticker (usa o índice por ticker_id).
+     * <p>
+     * How many generated portfolios hold the ticker (uses the ticker_id index).
+     */
+    @Query("""
+            SELECT COUNT(DISTINCT i.carteira.id)
+              FROM CarteiraUsuarioItem i
+             WHERE i.ticker.codigo = :codigo
+            """)
+    long contarCarteirasComTicker(@Param("codigo") String codigo);
+}
@@ -3,9 +3,16 @@ package com.Iviinvest.repository;
 import com.Iviinvest.model.CarteiraUsuario;
 import com.Iviinvest.model.ObjetivoUsuario;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface CarteiraUsuarioRepository extends JpaRepository<CarteiraUsuario, Long> {
     Optional<CarteiraUsuario> findByObjetivoUsuario(ObjetivoUsuario objetivoUsuario);
+
+    // Versão atual da carteira do objetivo, sem carregar a entidade
+    // Current version of the goal's portfolio, without loading the entity
+    @Query("SELECT c.versao FROM CarteiraUsuario c WHERE c.objetivoUsuario.id = :objetivoId")
+    Optional<Long> buscarVersaoPorObjetivoId(@Param("objetivoId") Long objetivoId);
 }
@@ -0,0 +1,31 @@
+package com.Iviinvest.repository;
+
+import com.Iviinvest.model.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // próximas mensagens prontas para envio, das mais antigas para as mais novas
+    List<EmailOutbox> findByStatusAndProximaTentativaLessThanEqualOrderByIdAsc(String status, Instant agora, Pageable pageable);
+
+    // reserva a mensagem até "reservadaAte"; devolve 0 se outro worker chegou antes
+    @Transactional
+    @Modifying
+    @Query("update EmailOutbox e set e.proximaTentativa = :reservadaAte, e.versao = e.versao + 1 " +
+            "where e.id = :id and e.versao = :versao")
+    int reservar(@Param("id") Long id, @Param("versao") Long versao, @Param("reservadaAte") Instant reservadaAte);
+
+    // apaga as mensagens no status dado criadas antes de "limite"
+    @Transactional
+    @Modifying
+    @Query("delete from EmailOutbox e where e.status = :status and e.criadoEm < :limite")
+    int apagarPorStatusCriadasAntes(@Param("status") String status, @Param("limite") Instant limite);
+}
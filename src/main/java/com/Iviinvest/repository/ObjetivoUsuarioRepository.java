@@ -1,9 +1,20 @@
 package com.Iviinvest.repository;
 
+import com.Iviinvest.dto.ObjetivoHistoricoItemDTO;
+import com.Iviinvest.dto.ObjetivoUsuarioResumo;
+import com.Iviinvest.dto.SetorEvitadoResumo;
 import com.Iviinvest.model.ObjetivoUsuario;
 import com.Iviinvest.model.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +22,176 @@ public interface ObjetivoUsuarioRepository extends JpaRepository<ObjetivoUsuario
     Optional<ObjetivoUsuario> findFirstByUsuarioOrderByIdDesc(Usuario usuario);
     List<ObjetivoUsuario> findAllByUsuarioOrderByIdDesc(Usuario usuario);
     Optional<ObjetivoUsuario> findByIdAndUsuario(Long id, Usuario usuario);
+
+    /**
+     * Lista objetivos do usuário como projeção, do mais recente ao mais antigo,
+     * sem carregar entidades nem o {@link Usuario} associado.
+     * <p>
+     * Lists the user's goals as a projection, newest first,
+     * without loading entities or the associated {@link Usuario}.
+     */
+    @Query("""
+            SELECT new com.Iviinvest.dto.ObjetivoUsuarioResumo(
+                   o.id, o.objetivo, o.prazo, o.valorInicial, o.aporteMensal,
+                   o.patrimonioAtual, o.liquidez, o.dataCriacao)
+              FROM ObjetivoUsuario o
+             WHERE o.usuario.id = :usuarioId
+             ORDER BY o.id DESC
+            """)
+    List<ObjetivoUsuarioResumo> listarResumosPorUsuario(@Param("usuarioId") Long usuarioId, Limit limit);
+
+    /**
+     * Busca um objetivo do usuário como projeção.
+     * <p>
+     * Finds one of the user's goals as a projection.
+     */
+    @Query("""
+            SELECT new com.Iviinvest.dto.ObjetivoUsuarioResumo(
+                   o.id, o.objetivo, o.prazo, o.valorInicial, o.aporteMensal,
+                   o.patrimonioAtual, o.liquidez, o.dataCriacao)
+              FROM ObjetivoUsuario o
+             WHERE o.id = :id
+               AND o.usuario.id = :usuarioId
+            """)
+    Optional<ObjetivoUsuarioResumo> buscarResumoPorIdEUsuario(@Param("id") Long id, @Param("usuarioId") Long usuarioId);
+
+    /**
+     * Página do histórico por cursor (keyset): objetivos com ID menor que o cursor,
+     * do mais recente ao mais antigo. Usa o índice (usuario_id, id), então o custo
+     * não depende de quantas páginas já foram lidas.
+     * <p>
+     * History page by cursor (keyset): goals with an ID lower than the cursor, newest
+     * first. Uses the (usuario_id, id) index, so the cost does not depend on how many
+     * pages were already read.
+     *
+     * @param cursor Último ID da página anterior ou {@code null} na primeira | Last ID of the previous page or {@code null} on the first one
+     */
+    @Query("""
+            SELECT new com.Iviinvest.dto.ObjetivoHistoricoItemDTO(
+                   o.id, o.objetivo, o.prazo, o.valorInicial, o.aporteMensal, o.dataCriacao)
+              FROM ObjetivoUsuario o
+             WHERE o.usuario.id = :usuarioId
+               AND (:cursor IS NULL OR o.id < :cursor)
+             ORDER BY o.id DESC
+            """)
+    List<ObjetivoHistoricoItemDTO> listarHistoricoPorUsuario(@Param("usuarioId") Long usuarioId,
+                                                            @Param("cursor") Long cursor,
+                                                            Limit limit);
+
+    /**
+     * Carrega, em uma consulta, os setores evitados de vários objetivos, na ordem informada pelo usuário.
+     * <p>
+     * Loads, in one query, the avoided sectors of several goals, in the order given by the user.
+     */
+    @Query("""
+            SELECT new com.Iviinvest.dto.SetorEvitadoResumo(o.id, s)
+              FROM ObjetivoUsuario o
+              JOIN o.setoresEvitar s
+             WHERE o.id IN :objetivoIds
+             ORDER BY o.id DESC, INDEX(s)
+            """)
+    List<SetorEvitadoResumo> listarSetoresEvitados(@Param("objetivoIds") Collection<Long> objetivoIds);
+
+    /**
+     * IDs dos usuários que evitam um setor em algum objetivo (usa o índice por setor).
+     * <p>
+     * IDs of the users that avoid a sector in any goal (uses the sector index).
+     */
+    @Query("""
+            SELECT DISTINCT o.usuario.id
+              FROM ObjetivoUsuario o
+              JOIN o.setoresEvitar s
+             WHERE s = :setor
+            """)
+    List<Long> listarUsuariosQueEvitamSetor(@Param("setor") String setor);
+
+    /**
+     * Linha da visão agregada da carteira.
+     * <p>
+     * {@code tipoLinha} indica qual grupo de colunas está preenchido:
+     * 'O' = objetivo, 'S' = setor evitado ({@code segmento}, posição em {@code percentual}), 'P' = percentual, 'A' = ativo.
+     * <p>
+     * Row of the aggregated portfolio view.
+     * {@code tipoLinha} tells which group of columns is filled:
+     * 'O' = goal, 'S' = avoided sector ({@code segmento}, position in {@code percentual}), 'P' = percentage, 'A' = asset.
+     */
+    interface CarteiraVisaoLinha {
+        String getTipoLinha();
+        Long getObjetivoId();
+        String getObjetivo();
+        Integer getPrazo();
+        Double getValorInicial();
+        Double getAporteMensal();
+        Double getPatrimonioAtual();
+        String getLiquidez();
+        LocalDate getDataCriacao();
+        String getSegmento();
+        Integer getPercentual();
+        String getNomeAtivo();
+        Double getPrecoUnitario();
+        Integer getQuantidadeCotas();
+    }
+
+    /**
+     * Carrega, em uma única ida ao banco, o objetivo (o informado ou o mais recente do
+     * usuário) com os percentuais e ativos de um tipo de carteira.
+     * <p>
+     * Loads, in a single round trip, the goal (the given one or the user's latest)
+     * with the percentages and assets of a portfolio type.
+     *
+     * @param usuarioId ID do usuário | User ID
+     * @param objetivoId ID do objetivo ou {@code null} para o mais recente | Goal ID or {@code null} for the latest
+     * @param tipo Tipo da carteira | Portfolio type
+     * @return Linhas da visão; vazio se o objetivo não existir | View rows; empty if the goal does not exist
+     * <p>
+     * As tabelas lidas são declaradas como query spaces para que o Hibernate descarregue
+     * antes da consulta só as escritas pendentes nelas, e não a sessão inteira.
+     * <p>
+     * The tables read are declared as query spaces so that before the query Hibernate
+     * auto-flushes only the pending writes to them, not the whole session.
+     */
+    @Query(value = """
+            WITH obj AS (
+                SELECT o.id, o.objetivo, o.prazo, o.valor_inicial, o.aporte_mensal, o.patrimonio_atual,
+                       o.liquidez, o.data_criacao
+                  FROM objetivos_usuarios o
+                 WHERE o.usuario_id = :usuarioId
+                   AND o.id = COALESCE(:objetivoId, o.id)
+                 ORDER BY o.id DESC
+                 FETCH FIRST 1 ROWS ONLY
+            )
+            SELECT 'O' AS tipo_linha, obj.id AS objetivo_id, obj.objetivo, obj.prazo, obj.valor_inicial,
+                   obj.aporte_mensal, obj.patrimonio_atual, obj.liquidez, obj.data_criacao,
+                   CAST(NULL AS VARCHAR(255)) AS segmento, CAST(NULL AS INTEGER) AS percentual,
+                   CAST(NULL AS VARCHAR(255)) AS nome_ativo, CAST(NULL AS DOUBLE PRECISION) AS preco_unitario,
+                   CAST(NULL AS INTEGER) AS quantidade_cotas
+              FROM obj
+            UNION ALL
+            SELECT 'S', obj.id, NULL, NULL, NULL, NULL, NULL, NULL, NULL,
+                   s.setor, s.posicao, NULL, NULL, NULL
+              FROM objetivo_setores_evitar s
+              JOIN obj ON s.objetivo_id = obj.id
+            UNION ALL
+            SELECT 'P', obj.id, NULL, NULL, NULL, NULL, NULL, NULL, NULL,
+                   p.segmento, p.percentual, NULL, NULL, NULL
+              FROM carteira_percentual p
+              JOIN obj ON p.objetivo_id = obj.id
+             WHERE p.usuario_id = :usuarioId
+               AND p.tipo_carteira = :tipo
+            UNION ALL
+            SELECT 'A', obj.id, NULL, NULL, NULL, NULL, NULL, NULL, NULL,
+                   a.segmento, NULL, a.nome_ativo, a.preco_unitario, a.quantidade_cotas
+              FROM carteira_ativo a
+              JOIN obj ON a.objetivo_id = obj.id
+             WHERE a.tipo_carteira = :tipo
+            """, nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "objetivos_usuarios"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "objetivo_setores_evitar"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "carteira_percentual"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "carteira_ativo")
+    })
+    List<CarteiraVisaoLinha> carregarVisaoCarteira(@Param("usuarioId") Long usuarioId,
+                                                   @Param("objetivoId") Long objetivoId,
+                                                   @Param("tipo") String tipo);
 }
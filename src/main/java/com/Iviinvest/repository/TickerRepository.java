@@ -0,0 +1,13 @@
+package com.Iviinvest.repository;
+
+import com.Iviinvest.model.Ticker;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TickerRepository extends JpaRepository<Ticker, Integer> {
+    Optional<Ticker> findByCodigo(String codigo);
+    List<Ticker> findByCodigoIn(Collection<String> codigos);
+}
@@ -0,0 +1,32 @@
+package com.Iviinvest.repository;
+
+import com.Iviinvest.model.TwoFactorCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface TwoFactorCodeRepository extends JpaRepository<TwoFactorCode, String> {
+
+    // troca o código de um e-mail que já tem linha; devolve 0 se ainda não tem
+    @Transactional
+    @Modifying
+    @Query("update TwoFactorCode t set t.codigoHash = :codigoHash, t.expiraEm = :expiraEm where t.email = :email")
+    int atualizar(@Param("email") String email, @Param("codigoHash") String codigoHash,
+                  @Param("expiraEm") Instant expiraEm);
+
+    // remove o código apenas se ainda for o mesmo (uso único entre réplicas)
+    @Transactional
+    @Modifying
+    @Query("delete from TwoFactorCode t where t.email = :email and t.codigoHash = :codigoHash")
+    int deleteByEmailAndCodigoHash(@Param("email") String email, @Param("codigoHash") String codigoHash);
+
+    // remoção em lote dos vencidos, usando o índice de expira_em
+    @Transactional
+    @Modifying
+    @Query("delete from TwoFactorCode t where t.expiraEm < :agora")
+    int deleteExpirados(@Param("agora") Instant agora);
+}
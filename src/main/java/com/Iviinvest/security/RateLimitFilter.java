@@ -0,0 +1,301 @@
+package com.Iviinvest.security;
+
+import com.Iviinvest.util.EmailUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Filtro de limitação de taxa para os endpoints públicos de autenticação.
+ * <p>
+ * Aplica um balde de tokens por IP e outro por e-mail (lido do corpo JSON) para
+ * login (senha e facial), envio de código 2FA e solicitação de recuperação de senha.
+ * Requisições acima do orçamento são rejeitadas com 429 e cabeçalho {@code Retry-After}
+ * antes de qualquer consulta ao banco, hash BCrypt ou envio de e-mail.
+ * <p>
+ * O IP vem de {@code X-Forwarded-For} só quando a conexão chega de um proxy listado em
+ * {@code ratelimit.proxies-confiaveis}; sem a lista, o cabeçalho é ignorado, porque
+ * qualquer cliente poderia forjá-lo para escapar do limite.
+ * <p>
+ * Rate limiting filter for the public authentication endpoints.
+ * Applies one token bucket per IP and another per email (read from the JSON body) to
+ * login (password and face), 2FA code sending and password recovery requests. Requests
+ * above the budget are rejected with 429 and a {@code Retry-After} header before any
+ * database query, BCrypt hash or email send.
+ * The IP comes from {@code X-Forwarded-For} only when the connection arrives from a
+ * proxy listed in {@code ratelimit.proxies-confiaveis}; without the list, the header is
+ * ignored, because any client could forge it to escape the limit.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final int MAX_CORPO_BYTES = 8 * 1024;   // Corpos destes endpoints são pequenos | These bodies are small
+    private static final int MAX_BALDES = 100_000;          // Baldes em memória | Buckets in memory
+
+    // Só literais IPv4/IPv6: um nome de host levaria a uma consulta DNS
+    // IPv4/IPv6 literals only: a host name would trigger a DNS lookup
+    private static final Pattern IP_LITERAL = Pattern.compile(
+            "^(\\d{1,3}\\.){3}\\d{1,3}$|^[0-9a-fA-F:.]*:[0-9a-fA-F:.]*$");
+
+    private final boolean habilitado;
+    private final Map<String, Regra> regras;
+    private final List<IpAddressMatcher> proxiesConfiaveis;
+    private final Cache<String, TokenBucket> baldes;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Orçamento de uma rota: capacidade da rajada e janela de reposição total.
+     * <p>
+     * Route budget: burst capacity and full refill window.
+     */
+    record Regra(int capacidade, long janelaNanos) {}
+
+    public RateLimitFilter(
+            @Value("${ratelimit.enabled:true}") boolean habilitado,
+            @Value("${ratelimit.login.capacidade:10}") int loginCapacidade,
+            @Value("${ratelimit.login.janela-segundos:60}") long loginJanela,
+            @Value("${ratelimit.2fa.capacidade:5}") int doisFatoresCapacidade,
+            @Value("${ratelimit.2fa.janela-segundos:300}") long doisFatoresJanela,
+            @Value("${ratelimit.recover.capacidade:3}") int recoverCapacidade,
+            @Value("${ratelimit.recover.janela-segundos:900}") long recoverJanela,
+            @Value("${ratelimit.face.capacidade:10}") int faceCapacidade,
+            @Value("${ratelimit.face.janela-segundos:60}") long faceJanela,
+            @Value("${ratelimit.proxies-confiaveis:}") String proxiesConfiaveis) {
+        this.habilitado = habilitado;
+        this.regras = Map.of(
+                "/api/v1/auth/login", new Regra(loginCapacidade, TimeUnit.SECONDS.toNanos(loginJanela)),
+                "/api/v1/auth/login-face", new Regra(faceCapacidade, TimeUnit.SECONDS.toNanos(faceJanela)),
+                "/api/v1/auth/2fa/send", new Regra(doisFatoresCapacidade, TimeUnit.SECONDS.toNanos(doisFatoresJanela)),
+                "/api/v1/recover/token", new Regra(recoverCapacidade, TimeUnit.SECONDS.toNanos(recoverJanela))
+        );
+        this.proxiesConfiaveis = Arrays.stream(proxiesConfiaveis.split(","))
+                .map(String::trim)
+                .filter(p -> !p.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+
+        // Um balde parado por uma janela inteira já está cheio: descartá-lo não muda nada
+        // A bucket idle for a whole window is already full: dropping it changes nothing
+        long maiorJanela = regras.values().stream().mapToLong(Regra::janelaNanos).max().orElse(0);
+        this.baldes = Caffeine.newBuilder()
+                .maximumSize(MAX_BALDES)
+                .expireAfterAccess(Duration.ofNanos(maiorJanela))
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !habilitado
+                || !"POST".equalsIgnoreCase(request.getMethod())
+                || !regras.containsKey(rota(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String rota = rota(request);
+        Regra regra = regras.get(rota);
+        long agora = System.nanoTime();
+
+        // 1. Orçamento por IP (não exige ler o corpo) | Per-IP budget (no need to read the body)
+        String ip = ipCliente(request);
+        long espera = consumir(rota + "|ip|" + ip, regra, agora);
+        if (espera > 0) {
+            rejeitar(response, rota, espera, "ip " + ip);
+            return;
+        }
+
+        // 2. Lê o corpo uma única vez para extrair o e-mail | Reads the body once to extract the email
+        byte[] corpo = request.getInputStream().readNBytes(MAX_CORPO_BYTES + 1);
+        if (corpo.length > MAX_CORPO_BYTES) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+
+        String email = extrairEmail(corpo);
+        if (email != null) {
+            espera = consumir(rota + "|email|" + email, regra, agora);
+            if (espera > 0) {
+                rejeitar(response, rota, espera, EmailUtils.mask(email));
+                return;
+            }
+        }
+
+        // 3. Segue com o corpo já lido | Continues with the already read body
+        filterChain.doFilter(new CorpoEmCacheRequest(request, corpo), response);
+    }
+
+    private long consumir(String chave, Regra regra, long agora) {
+        return baldes.get(chave, k -> new TokenBucket(regra.capacidade(), regra.janelaNanos(), agora))
+                .tentarConsumir(agora);
+    }
+
+    /**
+     * IP do cliente: percorre o {@code X-Forwarded-For} da direita para a esquerda enquanto
+     * os saltos forem proxies confiáveis e para no primeiro que não for.
+     * <p>
+     * Client IP: walks {@code X-Forwarded-For} from right to left while the hops are
+     * trusted proxies and stops at the first one that is not.
+     */
+    String ipCliente(HttpServletRequest request) {
+        String ip = request.getRemoteAddr();
+        String encaminhado = request.getHeader("X-Forwarded-For");
+        if (encaminhado == null || !confiavel(ip)) {
+            return ip;
+        }
+        String[] saltos = encaminhado.split(",");
+        for (int i = saltos.length - 1; i >= 0; i--) {
+            String salto = saltos[i].trim();
+            if (!IP_LITERAL.matcher(salto).matches()) {
+                break;   // Valor forjado ou malformado: fica com o último salto confiável | Forged or malformed
+            }
+            ip = salto;
+            if (!confiavel(salto)) {
+                break;
+            }
+        }
+        return ip;
+    }
+
+    private boolean confiavel(String ip) {
+        for (IpAddressMatcher proxy : proxiesConfiaveis) {
+            try {
+                if (proxy.matches(ip)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private String extrairEmail(byte[] corpo) {
+        if (corpo.length == 0) return null;
+        try {
+            JsonNode email = objectMapper.readTree(corpo).get("email");
+            if (email == null || !email.isTextual() || email.asText().isBlank()) return null;
+            return email.asText().trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            // Corpo inválido: o controller responde com o erro adequado
+            // Invalid body: the controller answers with the proper error
+            return null;
+        }
+    }
+
+    private void rejeitar(HttpServletResponse response, String rota, long esperaNanos, String origem) throws IOException {
+        long segundos = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        log.warn("[RATE LIMIT] {} bloqueado para {} por {}s", rota, origem, segundos);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(segundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "status", "429",
+                "error", "TOO_MANY_REQUESTS",
+                "message", "Muitas tentativas. Tente novamente em " + segundos + " segundos."
+        ));
+    }
+
+    private static String rota(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * Requisição que reapresenta o corpo já consumido pelo filtro.
+     * <p>
+     * Request that replays the body already consumed by the filter.
+     */
+    private static class CorpoEmCacheRequest extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        CorpoEmCacheRequest(HttpServletRequest request, byte[] corpo) {
+            super(request);
+            this.corpo = corpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String charset = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(charset)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return corpo.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return corpo.length;
+        }
+    }
+}
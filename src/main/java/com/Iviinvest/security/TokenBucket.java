@@ -0,0 +1,58 @@
+package com.Iviinvest.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balde de tokens lock-free para limitação de taxa.
+ * <p>
+ * Implementado no formato GCRA (Generic Cell Rate Algorithm): todo o estado do balde
+ * cabe em um único {@code long} (o "tempo teórico de chegada"), atualizado via CAS.
+ * Não há locks nem threads de reposição: os tokens são "repostos" implicitamente
+ * pela passagem do tempo.
+ * <p>
+ * Lock-free token bucket for rate limiting.
+ * Implemented as GCRA (Generic Cell Rate Algorithm): the whole bucket state fits in a
+ * single {@code long} (the "theoretical arrival time"), updated through CAS.
+ * There are no locks or refill threads: tokens are implicitly refilled as time passes.
+ */
+public class TokenBucket {
+
+    private final long intervaloNanos;   // Tempo para repor 1 token | Time to refill 1 token
+    private final long toleranciaNanos;  // Rajada permitida além do 1º token | Burst allowed beyond the 1st token
+    private final AtomicLong tat;        // Tempo teórico de chegada | Theoretical arrival time
+
+    /**
+     * @param capacidade Número máximo de requisições em rajada | Maximum burst size
+     * @param janelaNanos Tempo para o balde encher por completo | Time for the bucket to fully refill
+     * @param agoraNanos Instante atual (relógio monotônico) | Current instant (monotonic clock)
+     */
+    public TokenBucket(int capacidade, long janelaNanos, long agoraNanos) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("Capacidade deve ser >= 1 | Capacity must be >= 1");
+        }
+        this.intervaloNanos = Math.max(1, janelaNanos / capacidade);
+        this.toleranciaNanos = intervaloNanos * (capacidade - 1);
+        this.tat = new AtomicLong(agoraNanos);
+    }
+
+    /**
+     * Tenta consumir um token.
+     *
+     * @param agoraNanos Instante atual | Current instant
+     * @return 0 se o token foi consumido; caso contrário, nanos até o próximo token
+     *         | 0 if the token was consumed; otherwise nanos until the next token
+     */
+    public long tentarConsumir(long agoraNanos) {
+        while (true) {
+            long atual = tat.get();
+            long base = Math.max(atual, agoraNanos);
+            long espera = base - agoraNanos - toleranciaNanos;
+            if (espera > 0) {
+                return espera;
+            }
+            if (tat.compareAndSet(atual, base + intervaloNanos)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Alocação determinística, calculada no próprio processo a partir de uma tabela de
+ * regras ({@link TabelaAlocacao}).
+ * <p>
+ * É o caminho rápido da distribuição: perfis cobertos pela tabela (prazo dentro das
+ * faixas, liquidez conhecida) recebem a distribuição em microssegundos, sem IA. É
+ * também a alternativa quando a IA está indisponível; nesse caso sempre responde,
+ * usando a faixa de prazo mais próxima. Sempre soma 100%.
+ * <p>
+ * Deterministic, in-process allocation computed from a rule table.
+ * It is the fast path for the split: profiles covered by the table (term within the
+ * bands, known liquidity) get their split in microseconds, without the AI. It is also
+ * the fallback when the AI is unavailable; then it always answers, using the nearest
+ * term band. Always sums to 100%.
+ */
+@Service
+public class AlocacaoLocalService {
+
+    private static final List<String> TIPOS = List.of("conservadora", "agressiva");
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}");
+
+    private final TabelaAlocacao tabela;
+    private final List<String> segmentos;
+    private final Counter cobertos;
+    private final Counter foraDaCobertura;
+
+    public AlocacaoLocalService(
+            @Value("${alocacao.regras.arquivo:classpath:alocacao/regras.json}") Resource arquivo,
+            MeterRegistry meterRegistry) throws IOException {
+        try (InputStream in = arquivo.getInputStream()) {
+            this.tabela = new ObjectMapper().readValue(in, TabelaAlocacao.class);
+        }
+        tabela.validar();
+        this.segmentos = List.copyOf(tabela.ativos().keySet());
+        this.cobertos = meterRegistry.counter("alocacao.regras", "resultado", "coberto");
+        this.foraDaCobertura = meterRegistry.counter("alocacao.regras", "resultado", "fora");
+    }
+
+    /**
+     * Distribuição pela tabela, se o perfil estiver coberto por ela.
+     * <p>
+     * Split from the table, if the profile is covered by it.
+     *
+     * @return Vazio se o perfil estiver fora da cobertura e precisar da IA
+     *         | Empty if the profile is out of coverage and needs the AI
+     */
+    public Optional<JSONObject> distribuirPorRegra(ObjetivoUsuario objetivo) {
+        Integer prazo = objetivo.getPrazo();
+        Optional<TabelaAlocacao.FaixaPrazo> faixa = prazo == null
+                ? Optional.empty()
+                : tabela.faixasPrazo().stream().filter(f -> f.contem(prazo)).findFirst();
+        if (faixa.isEmpty()
+                || objetivo.getValorInicial() == null
+                || !tabela.liquidez().containsKey(normalizar(objetivo.getLiquidez()))) {
+            foraDaCobertura.increment();
+            return Optional.empty();
+        }
+        cobertos.increment();
+        return Optional.of(aplicar(faixa.get(), objetivo));
+    }
+
+    /**
+     * Distribuição percentual no mesmo formato da IA; sempre responde, mesmo fora da
+     * cobertura (faixa de prazo mais próxima, liquidez desconhecida sem ajuste).
+     * <p>
+     * Percentage split in the same format as the AI; always answers, even out of
+     * coverage (nearest term band, unknown liquidity without adjustment).
+     *
+     * @return {@code {"conservadora":{seg:pct}, "agressiva":{seg:pct}}}
+     */
+    public JSONObject distribuir(ObjetivoUsuario objetivo) {
+        List<TabelaAlocacao.FaixaPrazo> faixas = tabela.faixasPrazo();
+        TabelaAlocacao.FaixaPrazo faixa = objetivo.getPrazo() == null
+                ? faixas.get(faixas.size() / 2)
+                : faixas.stream()
+                        .min(Comparator.comparingInt(f -> f.distancia(objetivo.getPrazo())))
+                        .orElseThrow();
+        return aplicar(faixa, objetivo);
+    }
+
+    /**
+     * Ativos por segmento para as duas carteiras; segmentos com 0% ficam de fora.
+     * <p>
+     * Assets per segment for both portfolios; segments at 0% are left out.
+     *
+     * @param distribuicao Percentuais por carteira | Percentages per portfolio
+     * @return {@code {"conservadora":{seg:[tickers]}, "agressiva":{seg:[tickers]}}}
+     */
+    public JSONObject ativos(ObjetivoUsuario objetivo, JSONObject distribuicao) {
+        int porSegmento = patrimonioPequeno(objetivo)
+                ? tabela.patrimonioPequeno().ativosPorSegmento()
+                : tabela.ativosPorSegmento();
+        JSONObject resultado = new JSONObject();
+        for (String tipo : TIPOS) {
+            JSONObject pct = distribuicao.optJSONObject(tipo);
+            JSONObject carteira = new JSONObject();
+            for (String segmento : segmentos) {
+                if (pct != null && pct.optInt(segmento, 0) > 0) {
+                    List<String> tickers = tabela.ativos().get(segmento);
+                    carteira.put(segmento, new JSONArray(tickers.subList(0, Math.min(porSegmento, tickers.size()))));
+                }
+            }
+            resultado.put(tipo, carteira);
+        }
+        return resultado;
+    }
+
+    private JSONObject aplicar(TabelaAlocacao.FaixaPrazo faixa, ObjetivoUsuario objetivo) {
+        List<TabelaAlocacao.Ajuste> ajustes = new ArrayList<>(
+                tabela.liquidez().getOrDefault(normalizar(objetivo.getLiquidez()), List.of()));
+        if (patrimonioPequeno(objetivo)) {
+            ajustes.addAll(tabela.patrimonioPequeno().ajustes());
+        }
+        if (objetivo.getSetoresEvitar() != null) {
+            tabela.setoresEvitar().forEach((chave, ajustesSetor) -> {
+                if (objetivo.getSetoresEvitar().stream().anyMatch(s -> normalizar(s).contains(chave))) {
+                    ajustes.addAll(ajustesSetor);
+                }
+            });
+        }
+
+        JSONObject resultado = new JSONObject();
+        resultado.put("conservadora", ajustar(faixa.conservadora(), ajustes));
+        resultado.put("agressiva", ajustar(faixa.agressiva(), ajustes));
+        return resultado;
+    }
+
+    private Map<String, Integer> ajustar(Map<String, Integer> base, List<TabelaAlocacao.Ajuste> ajustes) {
+        Map<String, Integer> pct = new LinkedHashMap<>();
+        for (String segmento : segmentos) {
+            pct.put(segmento, base.getOrDefault(segmento, 0));
+        }
+        for (TabelaAlocacao.Ajuste ajuste : ajustes) {
+            int movidos = Math.min(ajuste.pontos(), pct.getOrDefault(ajuste.de(), 0));
+            pct.merge(ajuste.de(), -movidos, Integer::sum);
+            pct.merge(ajuste.para(), movidos, Integer::sum);
+        }
+        return pct;
+    }
+
+    private boolean patrimonioPequeno(ObjetivoUsuario objetivo) {
+        double total = valor(objetivo.getValorInicial()) + valor(objetivo.getPatrimonioAtual());
+        return total < tabela.patrimonioPequeno().abaixoDe();
+    }
+
+    // "Média" -> "media": acentos e caixa não importam | accents and case do not matter
+    private static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        return ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .trim();
+    }
+
+    private static double valor(Double v) {
+        return v != null ? v : 0.0;
+    }
+}
@@ -9,7 +9,9 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CarteiraAtivoService {
@@ -22,14 +24,23 @@ public class CarteiraAtivoService {
         this.precoAtivoService = precoAtivoService;
     }
 
-    public void salvarAtivos(String tipoCarteira,
-                             JSONObject carteiraJson,
-                             Usuario usuario,
-                             ObjetivoUsuario objetivo,
-                             JSONObject distribuicao) {
+    /**
+     * Monta os ativos de uma carteira gerada pela IA, com preço e quantidade de cotas, sem gravar.
+     * <p>
+     * Consulta as cotações, por isso deve rodar fora de transação.
+     * <p>
+     * Builds the assets of an AI generated portfolio, with price and share count, without saving.
+     * Looks up quotes, so it must run outside a transaction.
+     */
+    public List<CarteiraAtivo> montarAtivos(String tipoCarteira,
+                                            JSONObject carteiraJson,
+                                            Usuario usuario,
+                                            ObjetivoUsuario objetivo,
+                                            JSONObject distribuicao) {
 
         String nomeCarteira = objetivo.getObjetivo() + " - " + objetivo.getPrazo();
         double valorTotal = objetivo.getValorInicial();
+        List<CarteiraAtivo> resultado = new ArrayList<>();
 
         for (String segmento : carteiraJson.keySet()) {
 
@@ -65,9 +76,53 @@ public class CarteiraAtivoService {
                 ca.setPrecoUnitario(precoUnitario);
                 ca.setQuantidadeCotas(quantidadeCotas);
 
-                carteiraAtivoRepository.save(ca);
+                resultado.add(ca);
             }
         }
+        return resultado;
+    }
+
+    /**
+     * Monta os ativos escolhidos pelo usuário, dividindo o valor de cada segmento
+     * igualmente entre seus tickers, sem gravar. Deve rodar fora de transação.
+     * <p>
+     * Builds the assets chosen by the user, splitting each segment's value evenly
+     * among its tickers, without saving. Must run outside a transaction.
+     */
+    public List<CarteiraAtivo> montarAtivosManuais(Usuario usuario,
+                                                   ObjetivoUsuario objetivo,
+                                                   String tipo,
+                                                   Map<String, List<String>> ativosPorSegmento,
+                                                   Map<String, Integer> distribuicaoPct) {
+        double valorTotal = objetivo.getValorInicial();
+        List<CarteiraAtivo> resultado = new ArrayList<>();
+        ativosPorSegmento.forEach((segmento, lista) -> {
+            int pctSegmento = distribuicaoPct.getOrDefault(segmento, 0);
+            double valorSegmento = valorTotal * pctSegmento / 100.0;
+            int qtdAtivos = lista.size();
+            double valorPorAtivo = qtdAtivos > 0 ? valorSegmento / qtdAtivos : 0;
+
+            for (String ticker : lista) {
+                double preco = precoAtivoService.buscarPreco(ticker);
+                int quantidade = preco > 0 ? (int) Math.floor(valorPorAtivo / preco) : 0;
+                if (quantidade <= 0) continue;
+
+                CarteiraAtivo ca = new CarteiraAtivo();
+                ca.setUsuario(usuario);
+                ca.setObjetivo(objetivo);
+                ca.setTipoCarteira(tipo);
+                ca.setSegmento(segmento);
+                ca.setNomeAtivo(ticker);
+                ca.setPrecoUnitario(preco);
+                ca.setQuantidadeCotas(quantidade);
+                resultado.add(ca);
+            }
+        });
+        return resultado;
+    }
+
+    public void salvarTodos(List<CarteiraAtivo> ativos) {
+        carteiraAtivoRepository.saveAll(ativos);
     }
 
     @Transactional
@@ -1,14 +1,25 @@
 package com.Iviinvest.service;
 
+import com.Iviinvest.model.CarteiraAtivo;
 import com.Iviinvest.model.CarteiraPercentual;
 import com.Iviinvest.model.CarteiraUsuario;
 import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.Ticker;
+import com.Iviinvest.model.TipoCarteira;
 import com.Iviinvest.model.Usuario;
 import com.Iviinvest.repository.CarteiraPercentualRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -16,12 +27,15 @@ import java.util.stream.Collectors;
 @Service
 public class CarteiraOperacaoService {
 
+    private static final Logger log = LoggerFactory.getLogger(CarteiraOperacaoService.class);
+
     private final UsuarioService usuarioService;
     private final ObjetivoUsuarioService objetivoService;
     private final CarteiraPercentualRepository percentualRepo;
     private final IAService iaService;
     private final CarteiraAtivoService ativoService;
     private final CarteiraUsuarioService usuarioCarteiraService;
+    private final TransactionTemplate transactionTemplate;
 
     public CarteiraOperacaoService(
             UsuarioService usuarioService,
@@ -29,30 +43,44 @@ public class CarteiraOperacaoService {
             CarteiraPercentualRepository percentualRepo,
             IAService iaService,
             CarteiraAtivoService ativoService,
-            CarteiraUsuarioService usuarioCarteiraService) {
+            CarteiraUsuarioService usuarioCarteiraService,
+            TransactionTemplate transactionTemplate) {
         this.usuarioService         = usuarioService;
         this.objetivoService        = objetivoService;
         this.percentualRepo         = percentualRepo;
         this.iaService              = iaService;
         this.ativoService           = ativoService;
         this.usuarioCarteiraService = usuarioCarteiraService;
+        this.transactionTemplate    = transactionTemplate;
     }
 
     /**
      * Gera via IA e salva no banco as DUAS carteiras de ativos
      * (conservadora e agressiva) baseadas nas porcentagens já salvas.
+     * <p>
+     * Roda em três fases para não segurar conexão durante a IA e as cotações:
+     * leitura, chamadas externas sem transação e uma escrita curta que confere a
+     * versão da carteira lida na primeira fase.
+     * <p>
+     * Generates through the AI and saves BOTH asset portfolios (conservative and
+     * aggressive) based on the saved percentages. Runs in three phases so that no
+     * connection is held during the AI and quote calls: read, external calls outside
+     * any transaction, and a short write that checks the portfolio version read in
+     * the first phase.
+     *
+     * @throws ResponseStatusException 409 se outra geração gravou a carteira no meio tempo
+     *                                 | 409 if another generation saved the portfolio meanwhile
      */
-    @Transactional
     public Map<String, Map<String, List<String>>> gerarESalvar(String emailUsuario) throws Exception {
-        // 1) usuário e objetivo
-        Usuario u = usuarioService.findByEmail(emailUsuario);
+        // 1) leitura: usuário, objetivo, percentuais e versão atual da carteira
+        Usuario u = usuarioService.referenciaPorEmail(emailUsuario);
         ObjetivoUsuario obj = objetivoService
                 .buscarUltimoPorUsuario(u)
                 .orElseThrow(() -> new RuntimeException("Objetivo não encontrado"));
 
-        // 2) carrega percentuais e monta JSON de distribuição
         List<CarteiraPercentual> pctList = percentualRepo
                 .findByUsuarioIdAndObjetivoId(u.getId(), obj.getId());
+        Long versaoLida = usuarioCarteiraService.buscarVersaoPorObjetivo(obj).orElse(null);
 
         JSONObject distribuicao = new JSONObject(Map.of(
                 "conservadora", new JSONObject(
@@ -73,50 +101,113 @@ public class CarteiraOperacaoService {
                 )
         ));
 
-        // 3) chama a IA — devolve um único JSON com ambas as carteiras
-        String prompt = iaService.gerarPromptAtivos(obj, distribuicao, null);
-        JSONObject resposta   = iaService.chamarOpenAI(prompt);
-        JSONObject allCarteiras = resposta.getJSONObject("carteira");
-
-        // 4) persiste ativos para cada carteira
-        ativoService.salvarAtivos(
-                "conservadora",
-                allCarteiras.getJSONObject("conservadora"),
-                u, obj,
-                distribuicao
-        );
-        ativoService.salvarAtivos(
-                "agressiva",
-                allCarteiras.getJSONObject("agressiva"),
-                u, obj,
-                distribuicao
-        );
+        // 2) chamadas externas, fora de transação: IA (um único JSON com ambas as carteiras) e cotações
+        JSONObject allCarteiras = iaService.gerarAtivos(obj, distribuicao);
+
+        List<CarteiraAtivo> ativos = new ArrayList<>();
+        ativos.addAll(ativoService.montarAtivos(
+                "conservadora", allCarteiras.getJSONObject("conservadora"), u, obj, distribuicao));
+        ativos.addAll(ativoService.montarAtivos(
+                "agressiva", allCarteiras.getJSONObject("agressiva"), u, obj, distribuicao));
 
-        // 5) salva/atualiza registro em CarteiraUsuario
-        CarteiraUsuario cu = usuarioCarteiraService
-                .buscarPorObjetivo(obj)
-                .orElse(new CarteiraUsuario());
-        cu.setUsuario(u);
-        cu.setObjetivoUsuario(obj);
-        cu.setCarteiraConservadoraJson(allCarteiras
-                .getJSONObject("conservadora")
-                .toString());
-        cu.setCarteiraAgressivaJson(allCarteiras
-                .getJSONObject("agressiva")
-                .toString());
-        // ainda sem seleção; só registramos o preview
-        usuarioCarteiraService.salvar(cu);
-
-        // 6) converte JSONObject → Map<String,List<String>> para retorno
         Map<String, List<String>> consMap = jsonParaListMap(allCarteiras.getJSONObject("conservadora"));
         Map<String, List<String>> aggMap  = jsonParaListMap(allCarteiras.getJSONObject("agressiva"));
 
+        // tickers novos são criados aqui, cada um na sua transação, e não dentro da escrita:
+        // lá eles pediriam uma segunda conexão ao pool com a primeira ainda presa
+        Map<String, Ticker> tickers;
+        try {
+            tickers = usuarioCarteiraService.resolverTickers(List.of(consMap, aggMap));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Resposta inválida da IA: " + e.getMessage());
+        }
+
+        // 3) escrita curta: ativos e CarteiraUsuario (itens com ticker e segmento estruturados)
+        gravarComVersao(versaoLida, () -> {
+            CarteiraUsuario cu = usuarioCarteiraService
+                    .buscarPorObjetivo(obj)
+                    .orElseGet(CarteiraUsuario::new);
+            if (!Objects.equals(cu.getVersao(), versaoLida)) {
+                throw new ObjectOptimisticLockingFailureException(CarteiraUsuario.class, cu.getId());
+            }
+            ativoService.salvarTodos(ativos);
+            cu.setUsuario(u);
+            cu.setObjetivoUsuario(obj);
+            usuarioCarteiraService.definirAtivos(cu, TipoCarteira.CONSERVADORA, consMap, tickers);
+            usuarioCarteiraService.definirAtivos(cu, TipoCarteira.AGRESSIVA, aggMap, tickers);
+            // ainda sem seleção; só registramos o preview
+            usuarioCarteiraService.salvar(cu);
+        });
+
         return Map.of(
                 "conservadora", consMap,
                 "agressiva",    aggMap
         );
     }
 
+    /**
+     * Substitui percentuais e ativos do objetivo pela carteira escolhida pelo usuário.
+     * As cotações são buscadas antes da transação, que só apaga e grava.
+     * <p>
+     * Replaces the goal's percentages and assets with the portfolio chosen by the user.
+     * Quotes are fetched before the transaction, which only deletes and writes.
+     */
+    public void selecionarCarteira(Usuario u, ObjetivoUsuario obj, String tipo,
+                                   Map<String, Integer> percentuais,
+                                   Map<String, List<String>> ativosPorSegmento) {
+        List<CarteiraAtivo> ativos = ativoService.montarAtivosManuais(u, obj, tipo, ativosPorSegmento, percentuais);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            percentualRepo.deleteAllByUsuarioIdAndObjetivoId(u.getId(), obj.getId());
+            ativoService.deleteAllByUsuarioIdAndObjetivoId(u.getId(), obj.getId());
+
+            percentuais.forEach((segmento, pct) -> {
+                CarteiraPercentual cp = new CarteiraPercentual();
+                cp.setUsuario(u);
+                cp.setObjetivo(obj);
+                cp.setTipoCarteira(tipo);
+                cp.setSegmento(segmento);
+                cp.setPercentual(pct);
+                percentualRepo.save(cp);
+            });
+            ativoService.salvarTodos(ativos);
+        });
+    }
+
+    // Só conflito de geração vira 409: versão divergente ou outra geração criou a carteira
+    // do objetivo antes (chave única). Demais erros de integridade sobem como estão.
+    // Only a generation conflict becomes 409: version mismatch or another generation created
+    // the goal's portfolio first (unique key). Other integrity errors propagate as they are.
+    private void gravarComVersao(Long versaoLida, Runnable escrita) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> escrita.run());
+        } catch (OptimisticLockingFailureException e) {
+            throw conflito(versaoLida);
+        } catch (DataIntegrityViolationException e) {
+            if (violouCarteiraUnicaPorObjetivo(e)) {
+                throw conflito(versaoLida);
+            }
+            throw e;
+        }
+    }
+
+    private static ResponseStatusException conflito(Long versaoLida) {
+        log.warn("[CARTEIRA] Geração descartada: carteira alterada desde a versão {}", versaoLida);
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "A carteira foi alterada por outra geração. Tente novamente.");
+    }
+
+    static boolean violouCarteiraUnicaPorObjetivo(DataIntegrityViolationException e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacao && violacao.getConstraintName() != null
+                    && violacao.getConstraintName().toLowerCase(Locale.ROOT).contains(CarteiraUsuario.UK_OBJETIVO)) {
+                return true;
+            }
+        }
+        String mensagem = e.getMostSpecificCause().getMessage();
+        return mensagem != null && mensagem.toLowerCase(Locale.ROOT).contains(CarteiraUsuario.UK_OBJETIVO);
+    }
+
     /** Helper: transforma {"fiis":["HGLG11",...],...} num Map<segmento,List<ticker>> */
     private Map<String, List<String>> jsonParaListMap(JSONObject obj) {
         Map<String, List<String>> result = new LinkedHashMap<>();
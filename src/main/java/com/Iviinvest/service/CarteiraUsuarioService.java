@@ -1,19 +1,37 @@
 package com.Iviinvest.service;
 
 import com.Iviinvest.model.CarteiraUsuario;
+import com.Iviinvest.model.CarteiraUsuarioItem;
 import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.SegmentoCarteira;
+import com.Iviinvest.model.Ticker;
+import com.Iviinvest.model.TipoCarteira;
+import com.Iviinvest.repository.CarteiraUsuarioItemRepository;
 import com.Iviinvest.repository.CarteiraUsuarioRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class CarteiraUsuarioService {
 
     private final CarteiraUsuarioRepository repository;
+    private final CarteiraUsuarioItemRepository itemRepository;
+    private final TickerService tickerService;
 
-    public CarteiraUsuarioService(CarteiraUsuarioRepository repository) {
+    public CarteiraUsuarioService(CarteiraUsuarioRepository repository,
+                                  CarteiraUsuarioItemRepository itemRepository,
+                                  TickerService tickerService) {
         this.repository = repository;
+        this.itemRepository = itemRepository;
+        this.tickerService = tickerService;
     }
 
     public CarteiraUsuario salvar(CarteiraUsuario carteiraUsuario) {
@@ -24,8 +42,87 @@ public class CarteiraUsuarioService {
         return repository.findByObjetivoUsuario(objetivoUsuario);
     }
 
+    /**
+     * Versão atual da carteira do objetivo, se existir.
+     * <p>
+     * Current version of the goal's portfolio, if any.
+     */
+    public Optional<Long> buscarVersaoPorObjetivo(ObjetivoUsuario objetivoUsuario) {
+        return repository.buscarVersaoPorObjetivoId(objetivoUsuario.getId());
+    }
+
     public void excluir(CarteiraUsuario carteira) {
         repository.delete(carteira);
     }
 
+    /**
+     * Confere os segmentos e busca ou cria os tickers de todas as carteiras informadas.
+     * Chamar fora de transação (ver {@link TickerService#resolver}).
+     * <p>
+     * Checks the segments and finds or creates the tickers of all given portfolios.
+     * Call outside any transaction (see {@link TickerService#resolver}).
+     *
+     * @throws IllegalArgumentException se algum segmento ou código for inválido | if any segment or code is invalid
+     */
+    public Map<String, Ticker> resolverTickers(Collection<Map<String, List<String>>> carteiras) {
+        carteiras.forEach(carteira -> carteira.keySet().forEach(CarteiraUsuarioService::segmento));
+        Set<String> codigos = new LinkedHashSet<>();
+        carteiras.forEach(carteira -> carteira.values()
+                .forEach(lista -> lista.forEach(c -> codigos.add(TickerService.normalizar(c)))));
+        return tickerService.resolver(codigos);
+    }
+
+    /**
+     * Substitui os ativos de um tipo de carteira pelos informados (segmento → tickers),
+     * usando tickers já resolvidos por {@link #resolverTickers}.
+     * Um segmento desconhecido recusa tudo e deixa a carteira intacta.
+     * <p>
+     * Replaces the assets of a portfolio type with the given ones (segment → tickers),
+     * using tickers already resolved by {@link #resolverTickers}.
+     * An unknown segment rejects everything and leaves the portfolio untouched.
+     *
+     * @throws IllegalArgumentException se algum segmento for desconhecido | if any segment is unknown
+     */
+    public void definirAtivos(CarteiraUsuario carteira, TipoCarteira tipo, Map<String, List<String>> ativosPorSegmento,
+                              Map<String, Ticker> tickers) {
+        Map<SegmentoCarteira, List<String>> porSegmento = new LinkedHashMap<>();
+        ativosPorSegmento.forEach((chave, lista) -> porSegmento.put(segmento(chave), lista));
+
+        carteira.getItens().removeIf(item -> item.getTipo() == tipo);
+        porSegmento.forEach((segmento, lista) -> {
+            for (int i = 0; i < lista.size(); i++) {
+                Ticker ticker = tickers.get(TickerService.normalizar(lista.get(i)));
+                carteira.getItens().add(new CarteiraUsuarioItem(carteira, tipo, segmento, (short) i, ticker));
+            }
+        });
+    }
+
+    private static SegmentoCarteira segmento(String chave) {
+        return SegmentoCarteira.deChave(chave)
+                .orElseThrow(() -> new IllegalArgumentException("Segmento desconhecido: " + chave));
+    }
+
+    /**
+     * Lê os ativos de um tipo de carteira, agrupados por segmento, sem parsing de JSON.
+     * <p>
+     * Reads the assets of a portfolio type, grouped by segment, without JSON parsing.
+     */
+    public Map<String, List<String>> ativosPorSegmento(CarteiraUsuario carteira, TipoCarteira tipo) {
+        Map<String, List<String>> resultado = new LinkedHashMap<>();
+        for (CarteiraUsuarioItem item : carteira.getItens()) {
+            if (item.getTipo() != tipo) continue;
+            resultado.computeIfAbsent(item.getSegmento().getChave(), s -> new ArrayList<>())
+                    .add(item.getTicker().getCodigo());
+        }
+        return resultado;
+    }
+
+    /**
+     * Quantas carteiras geradas contêm o ticker.
+     * <p>
+     * How many generated portfolios hold the ticker.
+     */
+    public long contarCarteirasComTicker(String codigo) {
+        return itemRepository.contarCarteirasComTicker(TickerService.normalizar(codigo));
+    }
 }
@@ -0,0 +1,96 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.dto.CarteiraResponseDTO;
+import com.Iviinvest.dto.ObjetivoUsuarioDTO;
+import com.Iviinvest.repository.ObjetivoUsuarioRepository;
+import com.Iviinvest.repository.ObjetivoUsuarioRepository.CarteiraVisaoLinha;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Monta a visão da carteira (objetivo + percentuais + ativos) exibida na tela inicial.
+ * <p>
+ * Usa uma única consulta agregada e mapeia as linhas direto para DTOs, sem carregar
+ * entidades gerenciadas.
+ * <p>
+ * Builds the portfolio view (goal + percentages + assets) shown on the home screen.
+ * Uses a single aggregate query and maps the rows straight into DTOs, without loading
+ * managed entities.
+ */
+@Service
+public class CarteiraVisaoService {
+
+    private final ObjetivoUsuarioRepository repository;
+
+    /**
+     * Objetivo e carteira de um tipo, prontos para resposta.
+     * <p>
+     * Goal and portfolio of one type, ready to be returned.
+     */
+    public record CarteiraVisao(ObjetivoUsuarioDTO objetivo, CarteiraResponseDTO carteira) {}
+
+    public CarteiraVisaoService(ObjetivoUsuarioRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Busca a visão da carteira do usuário.
+     * <p>
+     * Finds the user's portfolio view.
+     *
+     * @param usuarioId ID do usuário | User ID
+     * @param objetivoId ID do objetivo ou {@code null} para o mais recente | Goal ID or {@code null} for the latest
+     * @param tipo Tipo da carteira | Portfolio type
+     * @return Visão da carteira; vazio se não houver objetivo | Portfolio view; empty if there is no goal
+     */
+    @Transactional(readOnly = true)
+    public Optional<CarteiraVisao> buscar(Long usuarioId, Long objetivoId, String tipo) {
+        List<CarteiraVisaoLinha> linhas = repository.carregarVisaoCarteira(usuarioId, objetivoId, tipo);
+
+        ObjetivoUsuarioDTO objetivo = null;
+        List<CarteiraVisaoLinha> setores = new ArrayList<>();
+        Map<String, Integer> percentuais = new LinkedHashMap<>();
+        Map<String, List<CarteiraResponseDTO.AtivoDTO>> ativos = new LinkedHashMap<>();
+
+        for (CarteiraVisaoLinha linha : linhas) {
+            switch (linha.getTipoLinha()) {
+                case "O" -> objetivo = paraObjetivoDTO(linha);
+                case "S" -> setores.add(linha);
+                case "P" -> percentuais.put(linha.getSegmento(), linha.getPercentual());
+                case "A" -> ativos
+                        .computeIfAbsent(linha.getSegmento(), s -> new ArrayList<>())
+                        .add(new CarteiraResponseDTO.AtivoDTO(
+                                linha.getNomeAtivo(),
+                                linha.getPrecoUnitario(),
+                                linha.getQuantidadeCotas()));
+                default -> { }
+            }
+        }
+
+        if (objetivo == null) {
+            return Optional.empty();
+        }
+        setores.sort(Comparator.comparing(CarteiraVisaoLinha::getPercentual));
+        objetivo.setSetoresEvitar(setores.stream().map(CarteiraVisaoLinha::getSegmento).toList());
+        return Optional.of(new CarteiraVisao(objetivo, new CarteiraResponseDTO(percentuais, ativos)));
+    }
+
+    private ObjetivoUsuarioDTO paraObjetivoDTO(CarteiraVisaoLinha linha) {
+        ObjetivoUsuarioDTO dto = new ObjetivoUsuarioDTO();
+        dto.setObjetivo(linha.getObjetivo());
+        dto.setPrazo(linha.getPrazo());
+        dto.setValorInicial(linha.getValorInicial());
+        dto.setAporteMensal(linha.getAporteMensal());
+        dto.setPatrimonioAtual(linha.getPatrimonioAtual());
+        dto.setLiquidez(linha.getLiquidez());
+        dto.setDataCriacao(linha.getDataCriacao());
+        return dto;
+    }
+}
@@ -0,0 +1,295 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.service.ConsumoTokensIA.PromptAjustado;
+import com.Iviinvest.service.ConsumoTokensIA.Rota;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Repassa a resposta da IA ao chat à medida que ela é gerada.
+ * <p>
+ * Faz a chamada com {@code stream: true} e consome o corpo SSE do provedor com um
+ * assinante de linhas não bloqueante: cada linha é pedida individualmente
+ * ({@code request(1)}), convertida em delta e descartada, então a memória por
+ * transmissão fica limitada a uma linha, qualquer que seja o tamanho da resposta.
+ * <p>
+ * Relays the AI chat answer as it is generated.
+ * Calls the provider with {@code stream: true} and consumes its SSE body with a
+ * non-blocking line subscriber: each line is requested individually
+ * ({@code request(1)}), turned into a delta and dropped, so memory per stream is
+ * bounded to one line regardless of the answer size.
+ * <p>
+ * O prompt passa pelo orçamento de tokens do chat antes de ocupar vaga, e o consumo
+ * vem do último evento ({@code stream_options.include_usage}).
+ * <p>
+ * The prompt goes through the chat token budget before taking a slot, and the usage
+ * comes from the last event ({@code stream_options.include_usage}).
+ */
+@Service
+public class ChatStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatStreamService.class);
+
+    private static final String PREFIXO_DADOS = "data:";
+    private static final String FIM_STREAM = "[DONE]";
+
+    private final HttpClient httpClient;
+    private final LimitadorIA limitador;
+    private final ConsumoTokensIA consumoTokens;
+    private final String apiKey;
+    private final String apiUrl;
+    private final String modelo;
+    private final Duration timeout;
+
+    /**
+     * Recebe os eventos de uma transmissão. As chamadas são sequenciais.
+     * <p>
+     * Receives the events of a stream. Calls are sequential.
+     */
+    public interface Destino {
+
+        /** Trecho novo da resposta | New piece of the answer */
+        void delta(String texto) throws IOException;
+
+        /** Resposta completa | Answer complete */
+        void concluir();
+
+        /** Falha do provedor ou da conexão | Provider or connection failure */
+        void falhar(Throwable erro);
+    }
+
+    public ChatStreamService(
+            @Value("${openapi.api.key}") String apiKey,
+            @Value("${openapi.api.url:https://api.openai.com/v1/chat/completions}") String apiUrl,
+            @Value("${openapi.api.model:gpt-4o-mini}") String modelo,
+            @Value("${openapi.api.timeout-segundos:60}") long timeoutSegundos,
+            LimitadorIA limitador,
+            ConsumoTokensIA consumoTokens) {
+        this.apiKey = apiKey;
+        this.apiUrl = apiUrl;
+        this.modelo = modelo;
+        this.timeout = Duration.ofSeconds(timeoutSegundos);
+        this.limitador = limitador;
+        this.consumoTokens = consumoTokens;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * Inicia a transmissão da resposta para a pergunta.
+     * <p>
+     * Starts streaming the answer to the question.
+     *
+     * @param pergunta Pergunta do usuário | User question
+     * @param usuarioId Dono da pergunta, se conhecido | Question owner, if known
+     * @param destino Quem recebe os deltas | Who receives the deltas
+     * @return Transmissão em andamento, que pode ser cancelada | Ongoing stream, which can be cancelled
+     * @throws ResponseStatusException 413 se a pergunta não couber no orçamento, 503 se o
+     *                                 limitador não liberar vaga
+     *                                 | 413 if the question does not fit the budget, 503 if
+     *                                 the limiter has no free slot
+     */
+    public Transmissao transmitir(String pergunta, Long usuarioId, Destino destino) {
+        // Pergunta longa demais sai daqui com 413, antes de ocupar vaga na IA
+        // An overly long question leaves here with 413, before taking an AI slot
+        PromptAjustado prompt = consumoTokens.ajustar(Rota.CHAT, PromptChat.texto(pergunta));
+        String body = new JSONObject(Map.of(
+                "model", modelo,
+                "stream", true,
+                "stream_options", Map.of("include_usage", true),
+                "messages", List.of(
+                        Map.of("role", "user", "content", prompt.texto())
+                )
+        )).toString();
+
+        // O timeout vale até os cabeçalhos; depois, quem limita é o cancelamento
+        // The timeout covers the headers; after that, cancellation is the limit
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(apiUrl))
+                .header("Authorization", "Bearer " + apiKey.trim())
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .timeout(timeout)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        // A vaga fica ocupada enquanto a resposta é transmitida
+        // The slot stays taken while the answer is streamed
+        Transmissao transmissao = new Transmissao(destino, limitador.adquirir(OperacaoIA.CHAT),
+                (tokensPrompt, tokensResposta) ->
+                        consumoTokens.registrarUso(prompt, usuarioId, tokensPrompt, tokensResposta));
+        CompletableFuture<HttpResponse<Void>> troca = httpClient.sendAsync(request, info -> info.statusCode() == 200
+                        ? HttpResponse.BodySubscribers.fromLineSubscriber(transmissao)
+                        : HttpResponse.BodySubscribers.replacing(null))
+                .whenComplete((response, erro) -> {
+                    if (erro != null) {
+                        transmissao.falhar(erro);
+                    } else if (response.statusCode() != 200) {
+                        int status = response.statusCode();
+                        transmissao.falhar(new ResponseStatusException(
+                                status == 429 || status >= 500 ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.BAD_GATEWAY,
+                                "IA respondeu HTTP " + status));
+                    }
+                });
+        transmissao.associar(troca);
+        return transmissao;
+    }
+
+    /**
+     * Transmissão em andamento: assina as linhas SSE do provedor e repassa os deltas.
+     * <p>
+     * Ongoing stream: subscribes to the provider's SSE lines and relays the deltas.
+     */
+    public static final class Transmissao implements Flow.Subscriber<String> {
+
+        private final Destino destino;
+        private final LimitadorIA.Permissao permissao;
+        private final BiConsumer<Integer, Integer> registrarUso;
+        private final AtomicBoolean encerrada = new AtomicBoolean();
+        private volatile Flow.Subscription assinatura;
+        private volatile CompletableFuture<?> troca;
+        private volatile boolean cancelada;
+
+        Transmissao(Destino destino, LimitadorIA.Permissao permissao, BiConsumer<Integer, Integer> registrarUso) {
+            this.destino = destino;
+            this.permissao = permissao;
+            this.registrarUso = registrarUso;
+        }
+
+        // Cancelada antes de a troca existir: aborta assim que ela chega
+        // Cancelled before the exchange existed: abort as soon as it arrives
+        void associar(CompletableFuture<?> troca) {
+            this.troca = troca;
+            if (cancelada) {
+                troca.cancel(true);
+            }
+        }
+
+        /**
+         * Interrompe a leitura do provedor, por exemplo quando o cliente desconecta.
+         * Antes dos cabeçalhos, aborta a troca HTTP para não deixar a conexão presa.
+         * <p>
+         * Stops reading from the provider, e.g. when the client disconnects.
+         * Before the headers, aborts the HTTP exchange so the connection is not left hanging.
+         */
+        public void cancelar() {
+            cancelada = true;
+            encerrada.set(true);
+            permissao.liberar(LimitadorIA.Resultado.IGNORADO);
+            CompletableFuture<?> t = troca;
+            if (t != null) {
+                t.cancel(true);
+            }
+            Flow.Subscription s = assinatura;
+            if (s != null) {
+                s.cancel();
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            assinatura = subscription;
+            if (cancelada) {
+                subscription.cancel();
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(String linha) {
+            if (encerrada.get()) {
+                return;
+            }
+            if (linha.startsWith(PREFIXO_DADOS)) {
+                String dados = linha.substring(PREFIXO_DADOS.length()).trim();
+                if (FIM_STREAM.equals(dados)) {
+                    concluir();
+                    assinatura.cancel();
+                    return;
+                }
+                try {
+                    JSONObject evento = new JSONObject(dados);
+                    registrarUso(evento);
+                    String texto = extrairDelta(evento);
+                    if (!texto.isEmpty()) {
+                        destino.delta(texto);
+                    }
+                } catch (IOException e) {
+                    // Cliente desconectou | Client disconnected
+                    log.debug("[CHAT] Transmissão encerrada pelo cliente: {}", e.getMessage());
+                    cancelar();
+                    return;
+                } catch (JSONException e) {
+                    log.warn("[CHAT] Evento inválido da IA ignorado: {}", e.getMessage());
+                }
+            }
+            assinatura.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            falhar(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            concluir();
+        }
+
+        private void concluir() {
+            if (encerrada.compareAndSet(false, true)) {
+                permissao.liberar(LimitadorIA.Resultado.SUCESSO);
+                destino.concluir();
+            }
+        }
+
+        private void falhar(Throwable erro) {
+            if (encerrada.compareAndSet(false, true)) {
+                log.error("[CHAT] Falha na transmissão da IA: {}", erro.getMessage());
+                permissao.liberar(LimitadorIA.indicaSobrecarga(erro)
+                        ? LimitadorIA.Resultado.SOBRECARGA
+                        : LimitadorIA.Resultado.IGNORADO);
+                destino.falhar(erro);
+            }
+        }
+
+        // Só o último evento, sem choices, traz o consumo | Only the last event, without choices, carries the usage
+        private void registrarUso(JSONObject evento) {
+            JSONObject uso = evento.optJSONObject("usage");
+            if (uso != null && uso.has("prompt_tokens") && uso.has("completion_tokens")) {
+                registrarUso.accept(uso.getInt("prompt_tokens"), uso.getInt("completion_tokens"));
+            }
+        }
+
+        private static String extrairDelta(JSONObject evento) {
+            JSONArray choices = evento.optJSONArray("choices");
+            if (choices == null || choices.isEmpty()) {
+                return "";
+            }
+            JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+            return delta != null ? delta.optString("content", "") : "";
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.Iviinvest.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Orçamento e contabilidade de tokens das chamadas à IA.
+ * <p>
+ * Antes do envio, estima os tokens do prompt com o {@link EstimadorTokens} e, se
+ * passar do orçamento da rota, corta as seções opcionais; se nem assim couber, recusa
+ * com 413 em vez de mandar um prompt que deixaria a resposta lenta e cara. Depois da
+ * resposta, registra o consumo informado pelo provedor por rota e por usuário.
+ * <p>
+ * Budget and accounting of AI call tokens. Before sending, estimates the prompt tokens
+ * with the {@link EstimadorTokens} and, if over the route budget, drops the optional
+ * sections; if it still does not fit, rejects with 413 instead of sending a prompt that
+ * would make the answer slow and expensive. After the answer, records the usage
+ * reported by the provider per route and per user.
+ */
+@Component
+public class ConsumoTokensIA {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsumoTokensIA.class);
+
+    /** Rotas que chamam a IA, cada uma com seu orçamento | Routes that call the AI, each with its budget */
+    public enum Rota {
+        DISTRIBUICAO, ATIVOS, CHAT;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    /** Prompt dentro do orçamento e sua estimativa | Prompt within budget and its estimate */
+    record PromptAjustado(Rota rota, String texto, int tokensEstimados) {}
+
+    private final MeterRegistry registry;
+    private final Map<Rota, Integer> orcamentos = new EnumMap<>(Rota.class);
+    private final Map<Rota, DistributionSummary> estimados = new EnumMap<>(Rota.class);
+    private final Map<Rota, Counter> cortes = new EnumMap<>(Rota.class);
+    private final DistributionSummary precisao;
+
+    public ConsumoTokensIA(
+            @Value("${ia.tokens.orcamento.distribuicao:800}") int orcamentoDistribuicao,
+            @Value("${ia.tokens.orcamento.ativos:1200}") int orcamentoAtivos,
+            @Value("${ia.tokens.orcamento.chat:1000}") int orcamentoChat,
+            MeterRegistry registry) {
+        this.registry = registry;
+        orcamentos.put(Rota.DISTRIBUICAO, orcamentoDistribuicao);
+        orcamentos.put(Rota.ATIVOS, orcamentoAtivos);
+        orcamentos.put(Rota.CHAT, orcamentoChat);
+        for (Rota rota : Rota.values()) {
+            estimados.put(rota, DistributionSummary.builder("ia.tokens.estimados")
+                    .description("Tokens estimados do prompt enviado")
+                    .baseUnit("tokens")
+                    .tag("rota", rota.tag())
+                    .register(registry));
+            cortes.put(rota, Counter.builder("ia.prompt.cortes")
+                    .description("Seções opcionais cortadas para caber no orçamento")
+                    .tag("rota", rota.tag())
+                    .register(registry));
+        }
+        this.precisao = DistributionSummary.builder("ia.tokens.estimativa.precisao")
+                .description("Tokens de prompt informados pelo provedor, em % da estimativa local")
+                .baseUnit("percent")
+                .register(registry);
+    }
+
+    /**
+     * Ajusta o prompt ao orçamento da rota, cortando seções opcionais se preciso.
+     * <p>
+     * Fits the prompt into the route budget, dropping optional sections if needed.
+     *
+     * @throws ResponseStatusException 413 se as seções fixas já passam do orçamento
+     *                                 | 413 if the fixed sections alone exceed the budget
+     */
+    PromptAjustado ajustar(Rota rota, PromptIA prompt) {
+        int orcamento = orcamentos.get(rota);
+        for (int cortadas = 0; ; cortadas++) {
+            String texto = prompt.semOpcionais(cortadas);
+            int tokens = EstimadorTokens.estimar(texto);
+            if (tokens <= orcamento) {
+                if (cortadas > 0) {
+                    cortes.get(rota).increment(cortadas);
+                    log.info("[IA] Prompt de {} ajustado ao orçamento: {} seções cortadas, {} tokens",
+                            rota.tag(), cortadas, tokens);
+                }
+                estimados.get(rota).record(tokens);
+                return new PromptAjustado(rota, texto, tokens);
+            }
+            if (cortadas == prompt.opcionais()) {
+                log.warn("[IA] Prompt de {} com ~{} tokens excede o orçamento de {}", rota.tag(), tokens, orcamento);
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Solicitação grande demais para a IA. Reduza o texto e tente novamente.");
+            }
+        }
+    }
+
+    /**
+     * Registra o consumo informado pelo provedor.
+     * <p>
+     * Records the usage reported by the provider.
+     *
+     * @param usuarioId Dono da chamada, se conhecido | Call owner, if known
+     */
+    void registrarUso(PromptAjustado prompt, Long usuarioId, int tokensPrompt, int tokensResposta) {
+        String rota = prompt.rota().tag();
+        registry.counter("ia.tokens", "rota", rota, "tipo", "prompt").increment(tokensPrompt);
+        registry.counter("ia.tokens", "rota", rota, "tipo", "resposta").increment(tokensResposta);
+        // Cardinalidade limitada em MetricasConfig | Cardinality capped in MetricasConfig
+        if (usuarioId != null) {
+            registry.counter("ia.tokens.usuario", "usuario", usuarioId.toString()).increment(tokensPrompt + tokensResposta);
+        }
+        if (prompt.tokensEstimados() > 0) {
+            precisao.record(100.0 * tokensPrompt / prompt.tokensEstimados());
+        }
+    }
+}
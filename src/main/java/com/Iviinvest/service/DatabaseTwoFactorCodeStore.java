@@ -0,0 +1,88 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.TwoFactorCode;
+import com.Iviinvest.repository.TwoFactorCodeRepository;
+import com.Iviinvest.util.HashUtil;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Armazenamento de códigos 2FA em banco, compartilhado entre réplicas.
+ * <p>
+ * O código é gravado como SHA-256 de {@code email:codigo} e comparado em tempo constante.
+ * A remoção condicional no consumo garante uso único mesmo com duas réplicas verificando
+ * o mesmo código ao mesmo tempo.
+ * <p>
+ * Database-backed 2FA code storage shared between replicas.
+ * The code is stored as SHA-256 of {@code email:code} and compared in constant time.
+ * The conditional delete on consume guarantees single use even when two replicas verify
+ * the same code at the same time.
+ * <p>
+ * A gravação tenta primeiro atualizar a linha do e-mail e só insere se ela não existir;
+ * se outra réplica inserir o mesmo e-mail no meio, a chave primária recusa a inserção e
+ * a gravação vira atualização (vale o último código enviado).
+ * <p>
+ * Saving first tries to update the email's row and only inserts if it does not exist;
+ * if another replica inserts the same email in between, the primary key rejects the
+ * insert and the save becomes an update (the last code sent wins).
+ */
+@Component
+@ConditionalOnProperty(name = "twofactor.store", havingValue = "database")
+public class DatabaseTwoFactorCodeStore implements TwoFactorCodeStore {
+
+    // Varre os códigos expirados a cada N gravações | Sweeps expired codes every N writes
+    private static final int VARREDURA_A_CADA = 256;
+
+    private final TwoFactorCodeRepository repository;
+    private final AtomicInteger gravacoes = new AtomicInteger();
+
+    public DatabaseTwoFactorCodeStore(TwoFactorCodeRepository repository) {
+        this.repository = repository;
+    }
+
+    // Sem transação própria: cada passo comita sozinho, para a falha da inserção não
+    // condenar a atualização seguinte
+    // No own transaction: each step commits on its own, so a failed insert does not
+    // doom the update that follows
+    @Override
+    public void salvar(String email, String codigo, Instant expiraEm) {
+        if (gravacoes.incrementAndGet() % VARREDURA_A_CADA == 0) {
+            repository.deleteExpirados(Instant.now());
+        }
+        String codigoHash = hash(email, codigo);
+        if (repository.atualizar(email, codigoHash, expiraEm) == 1) {
+            return;
+        }
+        try {
+            repository.saveAndFlush(new TwoFactorCode(email, codigoHash, expiraEm));
+        } catch (DataIntegrityViolationException e) {
+            repository.atualizar(email, codigoHash, expiraEm);
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean consumir(String email, String codigo, Instant agora) {
+        if (codigo == null) {
+            return false;
+        }
+        return repository.findById(email)
+                .filter(salvo -> !agora.isAfter(salvo.getExpiraEm()))
+                .filter(salvo -> MessageDigest.isEqual(
+                        salvo.getCodigoHash().getBytes(StandardCharsets.US_ASCII),
+                        hash(email, codigo).getBytes(StandardCharsets.US_ASCII)))
+                .map(salvo -> repository.deleteByEmailAndCodigoHash(email, salvo.getCodigoHash()) == 1)
+                .orElse(false);
+    }
+
+    private static String hash(String email, String codigo) {
+        return HashUtil.sha256(email + ":" + codigo);
+    }
+}
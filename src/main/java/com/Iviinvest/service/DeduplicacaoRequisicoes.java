@@ -0,0 +1,221 @@
+package com.Iviinvest.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Evita chamadas pagas à IA duplicadas pelo mesmo usuário (toque duplo, nova tentativa
+ * do cliente).
+ * <p>
+ * A chave é (usuário, endpoint, hash da entrada) ou, se o cliente mandar o cabeçalho
+ * {@code Idempotency-Key}, (usuário, endpoint, chave). Uma requisição igual a outra
+ * ainda em andamento espera e recebe o mesmo resultado (ou a mesma falha); depois de
+ * concluída, o resultado é repetido durante uma janela curta. Falhas não são repetidas.
+ * A mesma {@code Idempotency-Key} com outra entrada gera 422.
+ * <p>
+ * Prevents duplicate paid AI calls by the same user (double tap, client retry).
+ * The key is (user, endpoint, input hash) or, if the client sends the
+ * {@code Idempotency-Key} header, (user, endpoint, key). A request equal to one still
+ * in flight waits and gets the same result (or the same failure); once completed, the
+ * result is replayed for a short window. Failures are not replayed. The same
+ * {@code Idempotency-Key} with a different input results in 422.
+ * <p>
+ * Transmissões (SSE) não têm resultado para repetir: {@link #reservar} só ocupa a chave
+ * enquanto a transmissão dura, e uma requisição igual nesse intervalo recebe 409.
+ * <p>
+ * Streams (SSE) have no result to replay: {@link #reservar} only holds the key while the
+ * stream lasts, and an equal request in that interval gets 409.
+ */
+@Component
+public class DeduplicacaoRequisicoes {
+
+    private final ConcurrentHashMap<Chave, Execucao> emAndamento = new ConcurrentHashMap<>();
+    private final Cache<Chave, Execucao> concluidas;
+    private final long esperaMaximaMs;
+
+    private final Counter executadas;
+    private final Counter anexadas;
+    private final Counter repetidas;
+    private final Counter recusadas;
+
+    private record Chave(String usuario, String endpoint, String identificador) {}
+
+    private record Execucao(String hashEntrada, CompletableFuture<Object> resultado, boolean transmissao) {}
+
+    public DeduplicacaoRequisicoes(
+            @Value("${ia.deduplicacao.janela-segundos:30}") long janelaSegundos,
+            @Value("${openapi.api.timeout-segundos:60}") long esperaMaximaSegundos,
+            MeterRegistry meterRegistry) {
+        this.concluidas = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(janelaSegundos))
+                .maximumSize(10_000)
+                .build();
+        // Margem sobre o timeout da IA: quem espera não desiste antes de quem executa
+        // Margin over the AI timeout: waiters do not give up before the executor does
+        this.esperaMaximaMs = TimeUnit.SECONDS.toMillis(esperaMaximaSegundos) + 5_000;
+        this.executadas = contador(meterRegistry, "executada");
+        this.anexadas = contador(meterRegistry, "anexada");
+        this.repetidas = contador(meterRegistry, "repetida");
+        this.recusadas = contador(meterRegistry, "recusada");
+    }
+
+    /**
+     * Executa a chamada, a não ser que uma igual esteja em andamento ou tenha acabado
+     * de concluir.
+     * <p>
+     * Runs the call, unless an equal one is in flight or has just completed.
+     *
+     * @param usuario Dono da requisição | Request owner
+     * @param endpoint Nome da operação | Operation name
+     * @param entrada O que define a requisição (corpo, parâmetros) | What defines the request (body, params)
+     * @param chaveIdempotencia Cabeçalho {@code Idempotency-Key}, opcional | Optional header
+     * @throws ResponseStatusException 422 se a chave já foi usada com outra entrada
+     *                                 | 422 if the key was already used with another input
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T executar(String usuario, String endpoint, String entrada, String chaveIdempotencia,
+                          LimitadorIA.Chamada<T> chamada) throws Exception {
+        String hash = hash(entrada);
+        Chave chave = chave(usuario, endpoint, hash, chaveIdempotencia);
+
+        Execucao pronta = concluidas.getIfPresent(chave);
+        if (pronta != null) {
+            return (T) repetir(pronta, hash);
+        }
+
+        Execucao nova = new Execucao(hash, new CompletableFuture<>(), false);
+        Execucao existente = emAndamento.putIfAbsent(chave, nova);
+        if (existente != null) {
+            conferirEntrada(existente, hash);
+            if (existente.transmissao()) {
+                throw recusar();
+            }
+            anexadas.increment();
+            return (T) aguardar(existente);
+        }
+
+        try {
+            // Pode ter concluído entre a consulta e o registro | May have completed between lookup and registration
+            pronta = concluidas.getIfPresent(chave);
+            if (pronta != null) {
+                T resultado = (T) repetir(pronta, hash);
+                nova.resultado().complete(resultado);
+                return resultado;
+            }
+
+            executadas.increment();
+            T resultado = chamada.executar();
+            nova.resultado().complete(resultado);
+            concluidas.put(chave, nova);
+            return resultado;
+        } catch (Throwable t) {
+            nova.resultado().completeExceptionally(t);
+            throw t;
+        } finally {
+            emAndamento.remove(chave, nova);
+        }
+    }
+
+    /**
+     * Ocupa a chave durante uma transmissão, que não tem resultado para repetir nem para
+     * compartilhar com quem chegar depois.
+     * <p>
+     * Holds the key during a stream, which has no result to replay or to share with
+     * whoever arrives later.
+     *
+     * @return Libera a chave; pode ser chamado mais de uma vez | Releases the key; may be called more than once
+     * @throws ResponseStatusException 409 se uma requisição igual está em andamento; 422 se a
+     *                                 chave já foi usada com outra entrada
+     *                                 | 409 if an equal request is in flight; 422 if the key
+     *                                 was already used with another input
+     */
+    public Runnable reservar(String usuario, String endpoint, String entrada, String chaveIdempotencia) {
+        String hash = hash(entrada);
+        Chave chave = chave(usuario, endpoint, hash, chaveIdempotencia);
+
+        Execucao nova = new Execucao(hash, new CompletableFuture<>(), true);
+        Execucao existente = emAndamento.putIfAbsent(chave, nova);
+        if (existente != null) {
+            conferirEntrada(existente, hash);
+            throw recusar();
+        }
+        executadas.increment();
+        return () -> {
+            if (emAndamento.remove(chave, nova)) {
+                nova.resultado().complete(null);
+            }
+        };
+    }
+
+    private ResponseStatusException recusar() {
+        recusadas.increment();
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "Pergunta idêntica ainda em andamento. Aguarde a resposta anterior.");
+    }
+
+    private static Chave chave(String usuario, String endpoint, String hash, String chaveIdempotencia) {
+        return new Chave(usuario, endpoint,
+                chaveIdempotencia == null || chaveIdempotencia.isBlank() ? "h:" + hash : "k:" + chaveIdempotencia);
+    }
+
+    private Object repetir(Execucao pronta, String hash) {
+        conferirEntrada(pronta, hash);
+        repetidas.increment();
+        return pronta.resultado().join();
+    }
+
+    private Object aguardar(Execucao execucao) throws Exception {
+        try {
+            return execucao.resultado().get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception causa) {
+                throw causa;
+            }
+            throw (Error) e.getCause();
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                    "Requisição idêntica ainda em processamento. Tente novamente em instantes.");
+        }
+    }
+
+    private static void conferirEntrada(Execucao execucao, String hash) {
+        if (!execucao.hashEntrada().equals(hash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key já usada com outra requisição.");
+        }
+    }
+
+    private static String hash(String entrada) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(entrada.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private static Counter contador(MeterRegistry registry, String resultado) {
+        return Counter.builder("ia.deduplicacao")
+                .description("Requisições às rotas de IA por desfecho da deduplicação")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+}
@@ -0,0 +1,208 @@
+package com.Iviinvest.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Disjuntor (circuit breaker) das chamadas à IA.
+ * <p>
+ * Guarda o desfecho das últimas chamadas numa janela circular; quando a taxa de falhas
+ * (erros ou chamadas lentas) passa do limite, abre e passa a responder direto com a
+ * alternativa local, sem esperar o provedor. Depois do tempo de espera entra em
+ * semi-aberto e deixa passar algumas chamadas de teste: se todas derem certo, fecha;
+ * se uma falhar, abre de novo.
+ * <p>
+ * Circuit breaker for the AI calls.
+ * Keeps the outcome of the latest calls in a ring buffer; when the failure rate (errors
+ * or slow calls) exceeds the threshold it opens and answers straight from the local
+ * fallback, without waiting for the provider. After the wait time it becomes half-open
+ * and lets a few probe calls through: if all succeed it closes, if one fails it opens again.
+ * <p>
+ * Recusas do {@link LimitadorIA} não contam: a chamada nem chegou ao provedor, e contá-las
+ * abriria o disjuntor justamente nos picos de carga. Recebem a alternativa, sem registro.
+ * <p>
+ * {@link LimitadorIA} rejections are not counted: the call never reached the provider, and
+ * counting them would open the breaker precisely at load peaks. They get the fallback,
+ * without being recorded.
+ */
+@Component
+public class DisjuntorIA {
+
+    private static final Logger log = LoggerFactory.getLogger(DisjuntorIA.class);
+
+    public enum Estado { FECHADO, ABERTO, SEMI_ABERTO }
+
+    private final boolean[] janela;
+    private final int chamadasMinimas;
+    private final double taxaFalhaMaxima;
+    private final long chamadaLentaNanos;
+    private final long esperaAbertoNanos;
+    private final int chamadasTeste;
+    private final LongSupplier relogio;
+    private final MeterRegistry meterRegistry;
+    private final Counter alternativas;
+
+    private Estado estado = Estado.FECHADO;
+    private int posicao;
+    private int registradas;
+    private int falhas;
+    private long abertoEm;
+    private int testesLiberados;
+    private int testesComSucesso;
+
+    @Autowired
+    public DisjuntorIA(
+            @Value("${ia.disjuntor.janela:20}") int tamanhoJanela,
+            @Value("${ia.disjuntor.chamadas-minimas:10}") int chamadasMinimas,
+            @Value("${ia.disjuntor.taxa-falha:0.5}") double taxaFalhaMaxima,
+            @Value("${ia.disjuntor.chamada-lenta-ms:20000}") long chamadaLentaMs,
+            @Value("${ia.disjuntor.espera-aberto-ms:30000}") long esperaAbertoMs,
+            @Value("${ia.disjuntor.chamadas-teste:3}") int chamadasTeste,
+            MeterRegistry meterRegistry) {
+        this(tamanhoJanela, chamadasMinimas, taxaFalhaMaxima, chamadaLentaMs, esperaAbertoMs, chamadasTeste,
+                meterRegistry, System::nanoTime);
+    }
+
+    DisjuntorIA(int tamanhoJanela, int chamadasMinimas, double taxaFalhaMaxima, long chamadaLentaMs,
+                long esperaAbertoMs, int chamadasTeste, MeterRegistry meterRegistry, LongSupplier relogio) {
+        this.janela = new boolean[tamanhoJanela];
+        this.chamadasMinimas = Math.min(chamadasMinimas, tamanhoJanela);
+        this.taxaFalhaMaxima = taxaFalhaMaxima;
+        this.chamadaLentaNanos = TimeUnit.MILLISECONDS.toNanos(chamadaLentaMs);
+        this.esperaAbertoNanos = TimeUnit.MILLISECONDS.toNanos(esperaAbertoMs);
+        this.chamadasTeste = chamadasTeste;
+        this.relogio = relogio;
+        this.meterRegistry = meterRegistry;
+        this.alternativas = Counter.builder("ia.disjuntor.alternativa")
+                .description("Respostas servidas pela alocação local")
+                .register(meterRegistry);
+
+        // 0 = fechado, 1 = aberto, 2 = semi-aberto | 0 = closed, 1 = open, 2 = half-open
+        Gauge.builder("ia.disjuntor.estado", this, d -> d.getEstado().ordinal()).register(meterRegistry);
+    }
+
+    /**
+     * Executa a chamada se o disjuntor permitir; senão, ou se ela falhar, usa a alternativa.
+     * <p>
+     * Runs the call if the breaker allows it; otherwise, or if it fails, uses the fallback.
+     *
+     * @param chamada Chamada ao provedor | Provider call
+     * @param alternativa Resposta local, rápida e determinística | Fast, deterministic local answer
+     */
+    public <T> T executar(LimitadorIA.Chamada<T> chamada, Supplier<T> alternativa) {
+        if (!permitir()) {
+            alternativas.increment();
+            return alternativa.get();
+        }
+
+        long inicio = relogio.getAsLong();
+        try {
+            T resultado = chamada.executar();
+            registrar(relogio.getAsLong() - inicio < chamadaLentaNanos);
+            return resultado;
+        } catch (Exception e) {
+            if (rejeitadaPeloLimitador(e)) {
+                ignorar();
+                log.info("[IA] Chamada recusada pelo limitador, usando alocação local");
+            } else {
+                registrar(false);
+                log.warn("[IA] Falha na chamada, usando alocação local: {}", e.getMessage());
+            }
+            alternativas.increment();
+            return alternativa.get();
+        }
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    private synchronized boolean permitir() {
+        if (estado == Estado.ABERTO && relogio.getAsLong() - abertoEm >= esperaAbertoNanos) {
+            transicionar(Estado.SEMI_ABERTO);
+        }
+        if (estado == Estado.ABERTO) {
+            return false;
+        }
+        if (estado == Estado.SEMI_ABERTO) {
+            if (testesLiberados >= chamadasTeste) {
+                return false;
+            }
+            testesLiberados++;
+        }
+        return true;
+    }
+
+    private static boolean rejeitadaPeloLimitador(Throwable erro) {
+        for (Throwable t = erro; t != null; t = t.getCause()) {
+            if (t instanceof LimitadorIA.Rejeicao) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Devolve a vaga de teste que a chamada recusada não chegou a usar
+    // Returns the probe slot the rejected call never used
+    private synchronized void ignorar() {
+        if (estado == Estado.SEMI_ABERTO && testesLiberados > 0) {
+            testesLiberados--;
+        }
+    }
+
+    private synchronized void registrar(boolean sucesso) {
+        if (estado == Estado.SEMI_ABERTO) {
+            if (!sucesso) {
+                transicionar(Estado.ABERTO);
+            } else if (++testesComSucesso >= chamadasTeste) {
+                transicionar(Estado.FECHADO);
+            }
+            return;
+        }
+        if (estado != Estado.FECHADO) {
+            return;   // chamada iniciada antes de abrir | call started before opening
+        }
+
+        if (registradas == janela.length) {
+            if (!janela[posicao]) falhas--;
+        } else {
+            registradas++;
+        }
+        janela[posicao] = sucesso;
+        if (!sucesso) falhas++;
+        posicao = (posicao + 1) % janela.length;
+
+        if (registradas >= chamadasMinimas && (double) falhas / registradas >= taxaFalhaMaxima) {
+            transicionar(Estado.ABERTO);
+        }
+    }
+
+    private void transicionar(Estado novo) {
+        log.warn("[IA] Disjuntor {} -> {}", estado, novo);
+        meterRegistry.counter("ia.disjuntor.transicoes", "de", estado.name(), "para", novo.name()).increment();
+        estado = novo;
+
+        switch (novo) {
+            case ABERTO -> abertoEm = relogio.getAsLong();
+            case SEMI_ABERTO -> {
+                testesLiberados = 0;
+                testesComSucesso = 0;
+            }
+            case FECHADO -> {
+                posicao = 0;
+                registradas = 0;
+                falhas = 0;
+            }
+        }
+    }
+}
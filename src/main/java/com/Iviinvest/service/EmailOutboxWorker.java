@@ -0,0 +1,228 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.EmailOutbox;
+import com.Iviinvest.repository.EmailOutboxRepository;
+import com.Iviinvest.util.EmailUtils;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Worker que drena a outbox de e-mails.
+ * <p>
+ * A cada ciclo reserva um lote de mensagens pendentes, envia todas por uma única
+ * conexão SMTP ({@code JavaMailSender.send(MimeMessage...)}) e reagenda as falhas
+ * com backoff exponencial. A reserva é otimista (coluna de versão), então várias
+ * réplicas podem drenar a mesma tabela sem enviar duas vezes a mesma mensagem.
+ * <p>
+ * Worker that drains the email outbox.
+ * Each cycle claims a batch of pending messages, sends them all over a single SMTP
+ * connection ({@code JavaMailSender.send(MimeMessage...)}) and reschedules failures
+ * with exponential backoff. Claims are optimistic (version column), so several
+ * replicas can drain the same table without sending the same message twice.
+ * <p>
+ * Mensagens enviadas saem da tabela na hora. As que desistem ficam como
+ * {@link EmailOutbox#FALHOU}, sem o corpo, e são apagadas depois de
+ * {@code email.outbox.retencao-falhas-dias}.
+ * <p>
+ * Sent messages leave the table right away. Those that give up stay as
+ * {@link EmailOutbox#FALHOU}, without the body, and are deleted after
+ * {@code email.outbox.retencao-falhas-dias}.
+ */
+@Component
+public class EmailOutboxWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    private final EmailOutboxRepository repository;
+    private final JavaMailSender mailSender;
+
+    @Value("${email.outbox.tamanho-lote:50}")
+    private int tamanhoLote = 50;
+
+    @Value("${email.outbox.max-tentativas:8}")
+    private int maxTentativas = 8;
+
+    @Value("${email.outbox.backoff-inicial-segundos:5}")
+    private long backoffInicialSegundos = 5;
+
+    @Value("${email.outbox.backoff-maximo-segundos:900}")
+    private long backoffMaximoSegundos = 900;
+
+    // Tempo que uma mensagem fica reservada (cobre queda do worker no meio do envio)
+    // How long a message stays claimed (covers a worker crash mid-send)
+    @Value("${email.outbox.reserva-segundos:120}")
+    private long reservaSegundos = 120;
+
+    @Value("${email.outbox.retencao-falhas-dias:7}")
+    private long retencaoFalhasDias = 7;
+
+    public EmailOutboxWorker(EmailOutboxRepository repository, JavaMailSender mailSender) {
+        this.repository = repository;
+        this.mailSender = mailSender;
+    }
+
+    /**
+     * Envia lotes até esvaziar as mensagens prontas.
+     * <p>
+     * Sends batches until no ready message is left.
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.intervalo-ms:500}",
+            initialDelayString = "${email.outbox.intervalo-ms:500}")
+    public void processarPendentes() {
+        List<EmailOutbox> lote;
+        do {
+            lote = reservarLote(Instant.now());
+            if (!lote.isEmpty()) {
+                enviarLote(lote);
+            }
+        } while (lote.size() >= tamanhoLote);
+    }
+
+    /**
+     * Apaga as mensagens que desistiram há mais que o prazo de retenção.
+     * <p>
+     * Deletes messages that gave up longer ago than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.limpeza-intervalo-ms:3600000}",
+            initialDelayString = "${email.outbox.limpeza-intervalo-ms:3600000}")
+    public void limparFalhas() {
+        limparFalhas(Instant.now());
+    }
+
+    int limparFalhas(Instant agora) {
+        int apagadas = repository.apagarPorStatusCriadasAntes(
+                EmailOutbox.FALHOU, agora.minus(Duration.ofDays(retencaoFalhasDias)));
+        if (apagadas > 0) {
+            log.info("[EMAIL OUTBOX] {} e-mails com falha apagados após {} dias", apagadas, retencaoFalhasDias);
+        }
+        return apagadas;
+    }
+
+    List<EmailOutbox> reservarLote(Instant agora) {
+        Instant reservadaAte = agora.plusSeconds(reservaSegundos);
+        List<EmailOutbox> reservadas = new ArrayList<>();
+
+        for (EmailOutbox email : repository.findByStatusAndProximaTentativaLessThanEqualOrderByIdAsc(
+                EmailOutbox.PENDENTE, agora, PageRequest.of(0, tamanhoLote))) {
+            if (repository.reservar(email.getId(), email.getVersao(), reservadaAte) == 1) {
+                // Mantém a cópia em memória alinhada com o banco | Keeps the in-memory copy aligned with the database
+                email.setVersao(email.getVersao() + 1);
+                email.setProximaTentativa(reservadaAte);
+                reservadas.add(email);
+            }
+        }
+        return reservadas;
+    }
+
+    void enviarLote(List<EmailOutbox> lote) {
+        // MimeMessage usa igualdade por identidade; o LinkedHashMap mantém a ordem por id
+        // MimeMessage uses identity equality; the LinkedHashMap keeps the id order
+        Map<MimeMessage, EmailOutbox> mensagens = new LinkedHashMap<>();
+        for (EmailOutbox email : lote) {
+            try {
+                mensagens.put(montar(email), email);
+            } catch (MessagingException e) {
+                registrarFalha(email, e);
+            }
+        }
+        if (mensagens.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> falhas;
+        try {
+            mailSender.send(mensagens.keySet().toArray(new MimeMessage[0]));
+            falhas = Map.of();
+        } catch (MailSendException e) {
+            falhas = e.getFailedMessages();
+        } catch (MailException e) {
+            // Falha de conexão/autenticação: o lote inteiro volta para a fila
+            // Connection/authentication failure: the whole batch goes back to the queue
+            falhas = new LinkedHashMap<>();
+            for (MimeMessage mensagem : mensagens.keySet()) {
+                falhas.put(mensagem, e);
+            }
+        }
+
+        List<Long> enviadas = new ArrayList<>();
+        for (Map.Entry<MimeMessage, EmailOutbox> entrada : mensagens.entrySet()) {
+            Exception erro = falhas.get(entrada.getKey());
+            if (erro == null) {
+                enviadas.add(entrada.getValue().getId());
+            } else {
+                registrarFalha(entrada.getValue(), erro);
+            }
+        }
+        if (!enviadas.isEmpty()) {
+            repository.deleteAllByIdInBatch(enviadas);
+        }
+        log.info("[EMAIL OUTBOX] Lote processado: {} enviados, {} com falha", enviadas.size(), mensagens.size() - enviadas.size());
+    }
+
+    private MimeMessage montar(EmailOutbox email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        boolean multipart = email.getCorpoHtml() != null;
+        MimeMessageHelper helper = new MimeMessageHelper(message, multipart, StandardCharsets.UTF_8.name());
+        helper.setTo(email.getDestinatario());
+        helper.setSubject(email.getAssunto());
+        if (multipart) {
+            helper.setText(email.getCorpoTexto(), email.getCorpoHtml());
+        } else {
+            helper.setText(email.getCorpoTexto());
+        }
+        return message;
+    }
+
+    private void registrarFalha(EmailOutbox email, Exception erro) {
+        int tentativas = email.getTentativas() + 1;
+        email.setTentativas(tentativas);
+        email.setUltimoErro(truncar(erro.getMessage()));
+
+        if (tentativas >= maxTentativas) {
+            email.setStatus(EmailOutbox.FALHOU);
+            // Códigos e tokens não ficam guardados | Codes and tokens are not kept
+            email.setCorpoTexto(EmailOutbox.CORPO_REMOVIDO);
+            email.setCorpoHtml(null);
+            log.error("[EMAIL OUTBOX] Desistindo do e-mail {} para {} após {} tentativas: {}",
+                    email.getId(), EmailUtils.mask(email.getDestinatario()), tentativas, erro.getMessage());
+        } else {
+            email.setProximaTentativa(Instant.now().plus(backoff(tentativas)));
+            log.warn("[EMAIL OUTBOX] Falha ao enviar e-mail {} (tentativa {}): {}",
+                    email.getId(), tentativas, erro.getMessage());
+        }
+        repository.save(email);
+    }
+
+    /**
+     * Backoff exponencial: inicial * 2^(tentativas-1), limitado ao máximo.
+     * <p>
+     * Exponential backoff: initial * 2^(attempts-1), capped at the maximum.
+     */
+    Duration backoff(int tentativas) {
+        long fator = 1L << Math.min(tentativas - 1, 20);
+        return Duration.ofSeconds(Math.min(backoffInicialSegundos * fator, backoffMaximoSegundos));
+    }
+
+    private static String truncar(String texto) {
+        if (texto == null) return null;
+        return texto.length() <= 1000 ? texto : texto.substring(0, 1000);
+    }
+}
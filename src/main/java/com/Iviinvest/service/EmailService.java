@@ -1,39 +1,43 @@
 package com.Iviinvest.service;
 
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import com.Iviinvest.model.EmailOutbox;
+import com.Iviinvest.repository.EmailOutboxRepository;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+
 /**
  * Serviço para envio de e-mails.
  * <p>
- * Responsável pelo envio de e-mails simples utilizando o JavaMailSender do Spring.
+ * Grava as mensagens na tabela de outbox; o envio SMTP acontece de forma assíncrona
+ * no {@link EmailOutboxWorker}, fora da thread da requisição.
  * Pode ser utilizado para notificações, recuperação de senha, etc.
  * <p>
  * Email sending service.
- * Responsible for sending simple emails using Spring's JavaMailSender.
+ * Writes messages to the outbox table; SMTP delivery happens asynchronously
+ * in {@link EmailOutboxWorker}, outside the request thread.
  * Can be used for notifications, password recovery, etc.
  */
 @Service
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private final EmailOutboxRepository outboxRepository;
 
     /**
-     * Construtor para injeção de dependência do JavaMailSender.
+     * Construtor para injeção de dependência do repositório de outbox.
      *
-     * @param mailSender Instância do JavaMailSender configurado
+     * @param outboxRepository Repositório da fila de e-mails
      *
-     * Constructor for JavaMailSender dependency injection.
+     * Constructor for outbox repository dependency injection.
      *
-     * @param mailSender Configured JavaMailSender instance
+     * @param outboxRepository Email queue repository
      */
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailService(EmailOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
     }
 
     /**
-     * Envia um e-mail simples.
+     * Enfileira um e-mail simples.
      *
      * @param para Endereço de e-mail do destinatário
      * @param assunto Assunto do e-mail
@@ -41,19 +45,37 @@ public class EmailService {
      *
      */
     public void enviar(String para, String assunto, String corpo) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(para);
-        message.setSubject(assunto);
-        message.setText(corpo);
+        enfileirar(para, assunto, corpo, null);
+    }
+
+    /**
+     * Enfileira um e-mail com versões texto e HTML (multipart/alternative).
+     *
+     * @param para Endereço de e-mail do destinatário
+     * @param assunto Assunto do e-mail
+     * @param corpoTexto Versão em texto puro
+     * @param corpoHtml Versão HTML
+     */
+    public void enviarHtml(String para, String assunto, String corpoTexto, String corpoHtml) {
+        enfileirar(para, assunto, corpoTexto, corpoHtml);
+    }
+
+    private void enfileirar(String para, String assunto, String corpoTexto, String corpoHtml) {
+        Instant agora = Instant.now();
+        EmailOutbox email = new EmailOutbox();
+        email.setDestinatario(para);
+        email.setAssunto(assunto);
+        email.setCorpoTexto(corpoTexto);
+        email.setCorpoHtml(corpoHtml);
+        email.setCriadoEm(agora);
+        email.setProximaTentativa(agora);
 
         try {
-            mailSender.send(message);
-            // Log de sucesso poderia ser adicionado aqui
-            // Success log could be added here
+            // Retorna assim que a mensagem está gravada de forma durável
+            // Returns as soon as the message is durably stored
+            outboxRepository.save(email);
         } catch (Exception e) {
-            // Log de erro poderia ser adicionado aqui
-            // Error log could be added here
-            throw new RuntimeException("Falha ao enviar e-mail | Failed to send email", e);
+            throw new RuntimeException("Falha ao enfileirar e-mail | Failed to queue email", e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,227 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gera os ativos antecipadamente, logo depois dos percentuais.
+ * <p>
+ * O app sempre chama {@code /percentuais/gerar} e em seguida {@code /ativos/gerar} com a
+ * distribuição recebida. Ao devolver os percentuais já disparamos a geração de ativos em
+ * segundo plano e guardamos o resultado por (usuário, objetivo, distribuição); se a
+ * chamada seguinte trouxer a mesma distribuição, usa o resultado pronto ou aguarda o que
+ * está em andamento, em vez de começar outra chamada à IA.
+ * <p>
+ * A especulação só roda com o disjuntor fechado e usa a menor prioridade do
+ * {@link LimitadorIA}, então nunca tira vaga de chamadas interativas. Resultados que
+ * expiram sem ser usados são contados como desperdício.
+ * <p>
+ * Generates the assets ahead of time, right after the percentages.
+ * The app always calls {@code /percentuais/gerar} and then {@code /ativos/gerar} with the
+ * returned split. When returning the percentages we already start the asset generation in
+ * the background and keep the result by (user, goal, split); if the next call brings the
+ * same split, it uses the ready result or waits for the one in flight, instead of starting
+ * another AI call. Speculation only runs with the breaker closed and uses the
+ * {@link LimitadorIA}'s lowest priority, so it never takes a slot from interactive calls.
+ * Results that expire unused are counted as waste.
+ */
+@Service
+public class EspeculacaoAtivosService {
+
+    private static final Logger log = LoggerFactory.getLogger(EspeculacaoAtivosService.class);
+
+    private final IAService iaService;
+    private final boolean habilitada;
+    private final long esperaMaximaMs;
+    private final ThreadPoolExecutor executor;
+    private final Cache<Chave, CompletableFuture<JSONObject>> especulacoes;
+
+    private final Counter iniciadas;
+    private final Counter acertos;
+    private final Counter aguardadas;
+    private final Counter falhas;
+    private final Counter descartadas;
+    private final Counter desperdicadas;
+
+    /** Usuário, objetivo e distribuição canônica | User, goal and canonical split */
+    record Chave(Long usuarioId, Long objetivoId, String distribuicao) {}
+
+    public EspeculacaoAtivosService(
+            IAService iaService,
+            @Value("${ia.especulacao.habilitada:false}") boolean habilitada,
+            @Value("${ia.especulacao.threads:4}") int threads,
+            @Value("${ia.especulacao.fila:50}") int capacidadeFila,
+            @Value("${ia.especulacao.validade-segundos:300}") long validadeSegundos,
+            @Value("${openapi.api.timeout-segundos:60}") long esperaMaximaSegundos,
+            MeterRegistry meterRegistry) {
+        this.iaService = iaService;
+        this.habilitada = habilitada;
+        this.esperaMaximaMs = TimeUnit.SECONDS.toMillis(esperaMaximaSegundos);
+
+        AtomicInteger numero = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila), r -> {
+                    Thread t = new Thread(r, "ia-especulacao-" + numero.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        this.iniciadas = contador(meterRegistry, "iniciada");
+        this.acertos = contador(meterRegistry, "acerto");
+        this.aguardadas = contador(meterRegistry, "aguardada");
+        this.falhas = contador(meterRegistry, "falha");
+        this.descartadas = contador(meterRegistry, "descartada");
+        this.desperdicadas = contador(meterRegistry, "desperdicada");
+
+        // Remoção que não foi consumo (expirou, foi substituída ou saiu por tamanho) é desperdício
+        // A removal that was not a consumption (expired, replaced or evicted) is waste
+        this.especulacoes = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(validadeSegundos))
+                .maximumSize(10_000)
+                .executor(Runnable::run)
+                .<Chave, CompletableFuture<JSONObject>>removalListener((chave, futuro, causa) -> {
+                    if (causa != RemovalCause.EXPLICIT && futuro != null && !futuro.isCompletedExceptionally()) {
+                        desperdicadas.increment();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Dispara em segundo plano a geração de ativos para a distribuição recém-gerada.
+     * Não bloqueia; sem capacidade, a especulação é descartada.
+     * <p>
+     * Starts the asset generation for the freshly generated split in the background.
+     * Does not block; without capacity, the speculation is dropped.
+     */
+    public void iniciar(ObjetivoUsuario objetivo, JSONObject distribuicao) {
+        if (!habilitada || !iaService.iaDisponivel()) {
+            return;
+        }
+        Chave chave = chave(objetivo, distribuicao);
+        if (especulacoes.getIfPresent(chave) != null) {
+            return;
+        }
+        try {
+            CompletableFuture<JSONObject> futuro = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return iaService.especularAtivos(objetivo, distribuicao);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor);
+            especulacoes.put(chave, futuro);
+            iniciadas.increment();
+            futuro.whenComplete((ativos, erro) -> {
+                if (erro != null) {
+                    falhas.increment();
+                    especulacoes.asMap().remove(chave, futuro);
+                    log.debug("[IA] Especulação de ativos falhou: {}", erro.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            descartadas.increment();
+        }
+    }
+
+    /**
+     * Ativos das duas carteiras: usa a especulação para esta distribuição, se houver,
+     * ou chama a IA normalmente.
+     * <p>
+     * Assets of both portfolios: uses the speculation for this split, if any, or calls
+     * the AI normally.
+     *
+     * @return {@code {"conservadora":{seg:[tickers]}, "agressiva":{seg:[tickers]}}}
+     */
+    public JSONObject gerarAtivos(ObjetivoUsuario objetivo, JSONObject distribuicao) {
+        return consumir(objetivo, distribuicao)
+                .orElseGet(() -> iaService.gerarAtivos(objetivo, distribuicao));
+    }
+
+    Optional<JSONObject> consumir(ObjetivoUsuario objetivo, JSONObject distribuicao) {
+        if (!habilitada) {
+            return Optional.empty();
+        }
+        CompletableFuture<JSONObject> futuro = especulacoes.asMap().remove(chave(objetivo, distribuicao));
+        if (futuro == null) {
+            return Optional.empty();
+        }
+        Counter desfecho = futuro.isDone() ? acertos : aguardadas;
+        try {
+            JSONObject ativos = futuro.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+            desfecho.increment();
+            return Optional.of(ativos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (Exception e) {
+            // Falha já contada no próprio futuro; segue pela chamada normal
+            // Failure already counted by the future itself; falls through to the normal call
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Distribuição canônica: carteiras e segmentos em ordem alfabética, segmentos com 0%
+     * omitidos, valores inteiros. {@code {"acoes":40.0,"cripto":0}} e {@code {"acoes":40}}
+     * geram a mesma chave.
+     * <p>
+     * Canonical split: portfolios and segments in alphabetical order, 0% segments
+     * omitted, integer values.
+     */
+    static String canonica(JSONObject distribuicao) {
+        StringBuilder sb = new StringBuilder();
+        for (String tipo : new TreeSet<>(distribuicao.keySet())) {
+            JSONObject pct = distribuicao.optJSONObject(tipo);
+            if (pct == null) {
+                continue;
+            }
+            sb.append(tipo).append('{');
+            for (String segmento : new TreeSet<>(pct.keySet())) {
+                int valor = (int) Math.round(pct.optDouble(segmento, 0));
+                if (valor != 0) {
+                    sb.append(segmento).append('=').append(valor).append(',');
+                }
+            }
+            sb.append('}');
+        }
+        return sb.toString();
+    }
+
+    private static Chave chave(ObjetivoUsuario objetivo, JSONObject distribuicao) {
+        Long usuarioId = objetivo.getUsuario() != null ? objetivo.getUsuario().getId() : null;
+        return new Chave(usuarioId, objetivo.getId(), canonica(distribuicao));
+    }
+
+    private static Counter contador(MeterRegistry registry, String resultado) {
+        return Counter.builder("ia.especulacao")
+                .description("Gerações antecipadas de ativos por desfecho")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+}
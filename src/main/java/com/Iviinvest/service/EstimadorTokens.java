@@ -0,0 +1,65 @@
+package com.Iviinvest.service;
+
+/**
+ * Estima localmente quantos tokens um texto ocupa no modelo, sem chamar o provedor.
+ * <p>
+ * Segue a pré-tokenização dos tokenizadores BPE da OpenAI: palavras (quebradas na
+ * passagem de minúscula para maiúscula, como em {@code rendaFixa}), números em grupos de
+ * até três dígitos, sequências de pontuação e de espaços. Um espaço simples antes de uma
+ * palavra se junta a ela. Palavras curtas contam um token; as longas, um a mais a cada
+ * quatro letras, e letras acentuadas pesam o dobro. O erro frente à contagem do provedor
+ * fica registrado na métrica {@code ia.tokens.estimativa.precisao}.
+ * <p>
+ * Locally estimates how many tokens a text takes in the model, without calling the
+ * provider. Follows the pre-tokenization of OpenAI's BPE tokenizers: words (split at a
+ * lower to upper case change), numbers in groups of up to three digits, punctuation and
+ * whitespace runs. A single space before a word merges into it. Short words count one
+ * token; long ones one more every four letters, and accented letters weigh double. The
+ * error against the provider count is recorded in {@code ia.tokens.estimativa.precisao}.
+ */
+final class EstimadorTokens {
+
+    private EstimadorTokens() {
+    }
+
+    static int estimar(CharSequence texto) {
+        int tokens = 0;
+        int i = 0;
+        int n = texto.length();
+        while (i < n) {
+            char c = texto.charAt(i);
+            int inicio = i;
+            if (Character.isLetter(c)) {
+                int peso = 0;
+                do {
+                    peso += texto.charAt(i) < 128 ? 1 : 2;
+                    i++;
+                } while (i < n && Character.isLetter(texto.charAt(i))
+                        && !(Character.isLowerCase(texto.charAt(i - 1)) && Character.isUpperCase(texto.charAt(i))));
+                tokens += 1 + Math.max(0, peso - 6) / 4;
+            } else if (Character.isDigit(c)) {
+                do {
+                    i++;
+                } while (i < n && Character.isDigit(texto.charAt(i)));
+                tokens += (i - inicio + 2) / 3;
+            } else if (Character.isWhitespace(c)) {
+                do {
+                    i++;
+                } while (i < n && Character.isWhitespace(texto.charAt(i)));
+                // " palavra": o espaço vai junto com a palavra | the space goes with the word
+                boolean espacoDaPalavra = i - inicio == 1 && c == ' '
+                        && i < n && Character.isLetterOrDigit(texto.charAt(i));
+                if (!espacoDaPalavra) {
+                    tokens++;
+                }
+            } else {
+                do {
+                    i++;
+                } while (i < n && !Character.isLetterOrDigit(texto.charAt(i))
+                        && !Character.isWhitespace(texto.charAt(i)));
+                tokens += (i - inicio + 1) / 2;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,153 @@
+package com.Iviinvest.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.JsonPointerBasedFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * Extrai valores de um corpo JSON direto do {@link InputStream}, sem montar o documento
+ * em memória: um número num ponteiro, ou vários valores escalares numa única passada.
+ * <p>
+ * O parser de streaming do Jackson percorre os tokens e pula as subárvores que não
+ * levam aos ponteiros ({@code /choices/0/message/content}, por exemplo); nem o corpo
+ * inteiro vira String nem os demais campos viram objetos. O restante do corpo é
+ * descartado para que a conexão volte ao pool.
+ * <p>
+ * Extracts values from a JSON body straight from the {@link InputStream}, without
+ * building the document in memory: a number at one pointer, or several scalar values
+ * in a single pass. Jackson's streaming parser walks the tokens and skips the subtrees
+ * that do not lead to the pointers; neither the whole body becomes a String nor the
+ * other fields become objects. The rest of the body is drained so the connection goes
+ * back to the pool.
+ */
+final class ExtratorJson {
+
+    private static final JsonFactory FABRICA = new JsonFactory();
+
+    private ExtratorJson() {
+    }
+
+    /**
+     * Número no ponteiro, se existir e for numérico.
+     * <p>
+     * Number at the pointer, if present and numeric.
+     */
+    static OptionalDouble numero(InputStream corpo, JsonPointer ponteiro) throws IOException {
+        try (JsonParser parser = filtrar(corpo, ponteiro)) {
+            JsonToken token = parser.nextToken();
+            return token != null && token.isNumeric()
+                    ? OptionalDouble.of(parser.getDoubleValue())
+                    : OptionalDouble.empty();
+        } finally {
+            descartarRestante(corpo);
+        }
+    }
+
+    /**
+     * Valores escalares (texto ou número, como texto) de vários ponteiros numa única
+     * passada; subárvores fora dos ponteiros são puladas sem serem lidas.
+     * <p>
+     * Scalar values (text or number, as text) of several pointers in a single pass;
+     * subtrees outside the pointers are skipped without being read.
+     */
+    static Map<JsonPointer, String> valores(InputStream corpo, Collection<JsonPointer> ponteiros) throws IOException {
+        Map<JsonPointer, String> encontrados = new HashMap<>();
+        try (JsonParser parser = new FilteringParserDelegate(criar(corpo), new FiltroPonteiros(List.copyOf(ponteiros)),
+                TokenFilter.Inclusion.ONLY_INCLUDE_ALL, true)) {
+            JsonToken token;
+            while (encontrados.size() < ponteiros.size() && (token = parser.nextToken()) != null) {
+                if (token == JsonToken.VALUE_STRING || token.isNumeric()) {
+                    // Só chegam aqui valores nos ponteiros ou abaixo deles; o caminho exato decide
+                    // Only values at or below the pointers get here; the exact path decides
+                    JsonPointer caminho = parser.getParsingContext().pathAsPointer();
+                    if (ponteiros.contains(caminho)) {
+                        encontrados.put(caminho, parser.getText());
+                    }
+                }
+            }
+        } finally {
+            descartarRestante(corpo);
+        }
+        return encontrados;
+    }
+
+    private static JsonParser filtrar(InputStream corpo, JsonPointer ponteiro) throws IOException {
+        return new FilteringParserDelegate(criar(corpo), new JsonPointerBasedFilter(ponteiro),
+                TokenFilter.Inclusion.ONLY_INCLUDE_ALL, false);
+    }
+
+    private static JsonParser criar(InputStream corpo) throws IOException {
+        JsonParser parser = FABRICA.createParser(corpo);
+        // O stream é fechado por quem o abriu, depois de descartado o restante
+        // The stream is closed by its owner, after the rest is drained
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return parser;
+    }
+
+    private static void descartarRestante(InputStream corpo) throws IOException {
+        corpo.transferTo(OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Como o {@link JsonPointerBasedFilter}, mas para vários ponteiros: segue os que ainda
+     * casam com o caminho e pula o resto.
+     * <p>
+     * Like {@link JsonPointerBasedFilter}, but for several pointers: follows the ones that
+     * still match the path and skips the rest.
+     */
+    private static final class FiltroPonteiros extends TokenFilter {
+
+        private final List<JsonPointer> ponteiros;
+
+        private FiltroPonteiros(List<JsonPointer> ponteiros) {
+            this.ponteiros = ponteiros;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String nome) {
+            return avancar(nome, -1);
+        }
+
+        @Override
+        public TokenFilter includeElement(int indice) {
+            return avancar(null, indice);
+        }
+
+        @Override
+        protected boolean _includeScalar() {
+            return false;
+        }
+
+        private TokenFilter avancar(String nome, int indice) {
+            List<JsonPointer> restantes = null;
+            for (JsonPointer ponteiro : ponteiros) {
+                JsonPointer proximo = nome != null ? ponteiro.matchProperty(nome) : ponteiro.matchElement(indice);
+                if (proximo == null) {
+                    continue;
+                }
+                if (proximo.matches()) {
+                    return TokenFilter.INCLUDE_ALL;
+                }
+                if (restantes == null) {
+                    restantes = new ArrayList<>(ponteiros.size());
+                }
+                restantes.add(proximo);
+            }
+            return restantes == null ? null : new FiltroPonteiros(restantes);
+        }
+    }
+}
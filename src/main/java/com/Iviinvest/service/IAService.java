@@ -1,65 +1,230 @@
 package com.Iviinvest.service;
 
-import com.Iviinvest.model.CarteiraUsuario;
 import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.SegmentoCarteira;
 import com.Iviinvest.model.Usuario;
+import com.Iviinvest.service.ConsumoTokensIA.PromptAjustado;
+import com.Iviinvest.service.ConsumoTokensIA.Rota;
+import com.fasterxml.jackson.core.JsonPointer;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class IAService {
 
+    private static final JsonPointer CONTEUDO_RESPOSTA = JsonPointer.compile("/choices/0/message/content");
+    private static final JsonPointer TOKENS_PROMPT = JsonPointer.compile("/usage/prompt_tokens");
+    private static final JsonPointer TOKENS_RESPOSTA = JsonPointer.compile("/usage/completion_tokens");
+
     @Value("${openapi.api.key}")
     private String openApiKey;
 
-    public JSONObject chamarOpenAI(String prompt) throws Exception {
+    // Endereço e modelo configuráveis: o perfil perf aponta para o servidor simulado
+    // Configurable address and model: the perf profile points to the simulated server
+    @Value("${openapi.api.url:https://api.openai.com/v1/chat/completions}")
+    private String apiUrl;
+
+    @Value("${openapi.api.model:gpt-4o-mini}")
+    private String modelo;
+
+    @Value("${openapi.api.timeout-segundos:60}")
+    private long timeoutSegundos;
+
+    private final LimitadorIA limitador;
+    private final DisjuntorIA disjuntor;
+    private final AlocacaoLocalService alocacaoLocal;
+    private final ConsumoTokensIA consumoTokens;
+
+    // Cliente compartilhado: reaproveita conexões entre chamadas
+    // Shared client: reuses connections across calls
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    /** Resposta da IA e o consumo informado pelo provedor | AI answer and provider-reported usage */
+    private record RespostaIA(JSONObject objeto, Integer tokensPrompt, Integer tokensResposta) {}
+
+    public IAService(LimitadorIA limitador, DisjuntorIA disjuntor, AlocacaoLocalService alocacaoLocal,
+                     ConsumoTokensIA consumoTokens) {
+        this.limitador = limitador;
+        this.disjuntor = disjuntor;
+        this.alocacaoLocal = alocacaoLocal;
+        this.consumoTokens = consumoTokens;
+    }
+
+    /**
+     * Distribuição percentual das duas carteiras. Perfis cobertos pela tabela de regras
+     * são resolvidos localmente, sem IA, a menos que o usuário peça a IA. Com a IA fora
+     * do ar (disjuntor aberto ou falha na chamada), usa a alocação local por faixas.
+     * <p>
+     * Percentage split of both portfolios. Profiles covered by the rule table are solved
+     * locally, without the AI, unless the user asks for the AI. With the AI down (breaker
+     * open or failed call), falls back to the local band-based allocation.
+     *
+     * @param usarIa Ignora a tabela e consulta a IA | Skips the table and asks the AI
+     * @return {@code {"conservadora":{seg:pct}, "agressiva":{seg:pct}}}
+     */
+    public JSONObject gerarDistribuicao(ObjetivoUsuario objetivo, boolean usarIa) {
+        if (!usarIa) {
+            Optional<JSONObject> porRegra = alocacaoLocal.distribuirPorRegra(objetivo);
+            if (porRegra.isPresent()) {
+                return porRegra.get();
+            }
+        }
+        PromptAjustado prompt = consumoTokens.ajustar(Rota.DISTRIBUICAO, promptDistribuicao(objetivo));
+        return disjuntor.executar(
+                () -> validarCarteiras(chamar(prompt, usuarioId(objetivo), OperacaoIA.CARTEIRA)),
+                () -> alocacaoLocal.distribuir(objetivo));
+    }
+
+    /**
+     * Ativos por segmento das duas carteiras, com a mesma alternativa local.
+     * <p>
+     * Assets per segment of both portfolios, with the same local fallback.
+     *
+     * @return {@code {"conservadora":{seg:[tickers]}, "agressiva":{seg:[tickers]}}}
+     */
+    public JSONObject gerarAtivos(ObjetivoUsuario objetivo, JSONObject distribuicao) {
+        PromptAjustado prompt = consumoTokens.ajustar(Rota.ATIVOS, promptAtivos(objetivo, distribuicao, "ambas"));
+        return disjuntor.executar(
+                () -> ativosDaIa(prompt, objetivo, OperacaoIA.CARTEIRA),
+                () -> alocacaoLocal.ativos(objetivo, distribuicao));
+    }
+
+    /**
+     * Ativos pela IA para uso especulativo: sem alternativa local e fora do disjuntor,
+     * na menor prioridade do limitador (só com vaga livre).
+     * <p>
+     * Assets from the AI for speculative use: no local fallback and outside the breaker,
+     * at the limiter's lowest priority (free slot only).
+     *
+     * @throws ResponseStatusException 503 se não houver vaga livre | 503 if there is no free slot
+     */
+    public JSONObject especularAtivos(ObjetivoUsuario objetivo, JSONObject distribuicao) throws Exception {
+        PromptAjustado prompt = consumoTokens.ajustar(Rota.ATIVOS, promptAtivos(objetivo, distribuicao, "ambas"));
+        return ativosDaIa(prompt, objetivo, OperacaoIA.ESPECULACAO);
+    }
+
+    /**
+     * Indica se a IA está sendo chamada normalmente (disjuntor fechado).
+     * <p>
+     * Tells whether the AI is being called normally (breaker closed).
+     */
+    public boolean iaDisponivel() {
+        return disjuntor.getEstado() == DisjuntorIA.Estado.FECHADO;
+    }
+
+    private JSONObject ativosDaIa(PromptAjustado prompt, ObjetivoUsuario objetivo, OperacaoIA operacao)
+            throws Exception {
+        return validarSegmentos(validarCarteiras(chamar(prompt, usuarioId(objetivo), operacao).getJSONObject("carteira")));
+    }
+
+    private static Long usuarioId(ObjetivoUsuario objetivo) {
+        return objetivo.getUsuario() != null ? objetivo.getUsuario().getId() : null;
+    }
+
+    // Resposta sem as duas carteiras conta como falha do provedor
+    // An answer missing either portfolio counts as a provider failure
+    private static JSONObject validarCarteiras(JSONObject resposta) {
+        resposta.getJSONObject("conservadora");
+        resposta.getJSONObject("agressiva");
+        return resposta;
+    }
+
+    // Segmento fora da lista também: descartá-lo gravaria uma carteira incompleta
+    // So does an unknown segment: dropping it would save an incomplete portfolio
+    private static JSONObject validarSegmentos(JSONObject carteiras) {
+        for (String tipo : carteiras.keySet()) {
+            for (String chave : carteiras.getJSONObject(tipo).keySet()) {
+                if (SegmentoCarteira.deChave(chave).isEmpty()) {
+                    throw new IllegalStateException("Segmento desconhecido na resposta da IA: " + chave);
+                }
+            }
+        }
+        return carteiras;
+    }
+
+    // Prompt já ajustado ao orçamento; registra o consumo informado pelo provedor
+    // Prompt already fitted to the budget; records the usage reported by the provider
+    private JSONObject chamar(PromptAjustado prompt, Long usuarioId, OperacaoIA operacao) throws Exception {
+        RespostaIA resposta = limitador.executar(operacao, () -> enviar(prompt.texto()));
+        if (resposta.tokensPrompt() != null && resposta.tokensResposta() != null) {
+            consumoTokens.registrarUso(prompt, usuarioId, resposta.tokensPrompt(), resposta.tokensResposta());
+        }
+        return resposta.objeto();
+    }
+
+    private RespostaIA enviar(String prompt) throws Exception {
         String body = new JSONObject(Map.of(
-                "model", "gpt-4o-mini",
+                "model", modelo,
                 "messages", List.of(
                         Map.of("role", "user", "content", prompt)
                 )
         )).toString();
 
         HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.openai.com/v1/chat/completions"))
+                .uri(URI.create(apiUrl))
                 .header("Authorization", "Bearer " + openApiKey.trim())
                 .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(timeoutSegundos))
                 .POST(HttpRequest.BodyPublishers.ofString(body))
                 .build();
 
-        HttpClient client = HttpClient.newHttpClient();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        String content;
+        Map<JsonPointer, String> valores;
+        try (InputStream corpo = response.body()) {
+            // 429 e 5xx: provedor sobrecarregado | 429 and 5xx: provider overloaded
+            if (response.statusCode() == 429 || response.statusCode() >= 500) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "IA indisponível no momento (HTTP " + response.statusCode() + ")");
+            }
 
-        String content = new JSONObject(response.body())
-                .getJSONArray("choices")
-                .getJSONObject(0)
-                .getJSONObject("message")
-                .getString("content");
+            // Lê do stream só o conteúdo e o consumo | Reads only the content and usage from the stream
+            valores = ExtratorJson.valores(corpo, List.of(CONTEUDO_RESPOSTA, TOKENS_PROMPT, TOKENS_RESPOSTA));
+            content = Optional.ofNullable(valores.get(CONTEUDO_RESPOSTA))
+                    .orElseThrow(() -> new IllegalStateException(
+                            "Resposta da IA sem conteúdo (HTTP " + response.statusCode() + ")"));
+        }
 
+        // Tira cercas e texto extra e corrige vírgulas finais e zeros à esquerda
+        // Strips fences and extra text and repairs trailing commas and leading zeros
+        String objeto = SanitizadorRespostaIA.extrairObjeto(content);
         try {
-            String cleaned = content
-                    .replaceAll("(?i)^```json\\s*", "")
-                    .replaceAll("^```\\s*", "")
-                    .replaceAll("\\s*```$", "")
-                    .trim();
-
-            return new JSONObject(cleaned);
-        } catch (Exception e) {
-            throw new RuntimeException("Resposta inválida da IA: " + content);
+            return new RespostaIA(new JSONObject(objeto), inteiro(valores.get(TOKENS_PROMPT)),
+                    inteiro(valores.get(TOKENS_RESPOSTA)));
+        } catch (JSONException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                    "Resposta inválida da IA (" + e.getMessage() + ")", e);
         }
     }
 
+    private static Integer inteiro(String valor) {
+        return valor != null ? (int) Double.parseDouble(valor) : null;
+    }
+
     public String gerarPromptDistribuicao(ObjetivoUsuario objetivo) {
-        return """
+        return promptDistribuicao(objetivo).completo();
+    }
+
+    private PromptIA promptDistribuicao(ObjetivoUsuario objetivo) {
+        return new PromptIA().fixa("""
         Você é um assistente financeiro que deve calcular a distribuição percentual ideal para os segmentos de investimento:
 
         - rendaFixa
@@ -80,13 +245,22 @@ public class IAService {
         - **Carteira Conservadora**: com foco em segurança, liquidez e preservação do capital.
         - **Carteira Agressiva**: com foco em crescimento e maior exposição ao risco.
         
+        """.formatted(
+                objetivo.getObjetivo(),
+                objetivo.getPrazo(),
+                objetivo.getLiquidez(),
+                objetivo.getValorInicial(),
+                objetivo.getAporteMensal(),
+                objetivo.getPatrimonioAtual()
+        )).opcional("""
         Distribua o capital entre os quatro segmentos acima com base em princípios de finanças pessoais, incluindo:
         - Capacidade de risco (relacionada ao valor investido e ao patrimônio atual)
         - Necessidade de liquidez (curto prazo prioriza renda fixa)
         - Potencial de diversificação (evitar excesso de ativos em carteiras pequenas)
         
+        """).fixa("""
         **Importante:**
-        - A soma total deve ser 100%%.
+        - A soma total deve ser 100%.
         - Não precisa incluir todos os segmentos se não for recomendado pelo perfil.
         - Não inclua explicações, apenas retorne o JSON com a distribuição percentual ideal.
         - Não recomende de forma alguma BCFF11,
@@ -108,20 +282,20 @@ public class IAService {
               "cripto": 00
             }
         }
-        """.formatted(
-                objetivo.getObjetivo(),
-                objetivo.getPrazo(),
-                objetivo.getLiquidez(),
-                objetivo.getValorInicial(),
-                objetivo.getAporteMensal(),
-                objetivo.getPatrimonioAtual()
-        );
+        """);
     }
 
     public String gerarPromptAtivos(ObjetivoUsuario objetivo, JSONObject distribuicao, String tipoCarteira) {
-        return """
-         Você é um assistente financeiro inteligente especializado em Quality Diversity (QD),
-        capaz de gerar múltiplas carteiras distintas, porém igualmente válidas, para perfis de investimento.
+        return promptAtivos(objetivo, distribuicao, tipoCarteira).completo();
+    }
+
+    private PromptIA promptAtivos(ObjetivoUsuario objetivo, JSONObject distribuicao, String tipoCarteira) {
+        return new PromptIA().fixa("""
+        Você é um assistente financeiro inteligente.
+        """).opcional("""
+        Você é especializado em Quality Diversity (QD), capaz de gerar múltiplas carteiras distintas,
+        porém igualmente válidas, para perfis de investimento.
+        """).fixa("""
         
         Com base nesta distribuição ideal entre segmentos:
         
@@ -138,10 +312,22 @@ public class IAService {
         
         Gere DUAS carteira de investimento %s:
         
+        """.formatted(
+                distribuicao.toString(2),
+                objetivo.getObjetivo(),
+                objetivo.getPrazo(),
+                objetivo.getValorInicial(),
+                objetivo.getAporteMensal(),
+                objetivo.getPatrimonioAtual(),
+                objetivo.getLiquidez(),
+                new JSONArray(objetivo.getSetoresEvitar()).toString(),
+                tipoCarteira
+        )).opcional("""
         A composição de cada carteira deve conter ativos dos seguintes segmentos: renda fixa, ações, FIIs e criptoativos (caso compatível com o perfil).
         A quantidade de ativos em cada segmento deve ser determinada com base no perfil e objetivos do investidor,
         seguindo boas práticas financeiras como diversificação, adequação ao prazo e tolerância ao risco.
         
+        """).fixa("""
         **Regras obrigatórias:**
         - NÃO incluir ativos dos setores listados em "Setores a evitar".
         - A composição deve refletir o alinhamento com o objetivo financeiro declarado.
@@ -167,64 +353,19 @@ public class IAService {
               }
           }
         }
-        """.formatted(
-                distribuicao.toString(2),
-                objetivo.getObjetivo(),
-                objetivo.getPrazo(),
-                objetivo.getValorInicial(),
-                objetivo.getAporteMensal(),
-                objetivo.getPatrimonioAtual(),
-                objetivo.getLiquidez(),
-                objetivo.getSetoresEvitar() != null ? objetivo.getSetoresEvitar() : "[]",
-                tipoCarteira
-        );
-    }
-
-    public String montarPromptSimples(ObjetivoUsuario obj,
-                                      CarteiraUsuario cu,
-                                      String question) {
-        return """
-        Você é um assistente financeiro inteligente especializado em Quality Diversity (QD).
-
-        • Patrimônio atual investido: R$ %.2f
-        • Aporte mensal disponível:    R$ %.2f
-        • Carteira selecionada:         %s
-
-        Pergunta do usuário:
-        "%s"
-        
-                 **Instruções** \s
-                        - Responda **APENAS** com um JSON válido no formato:
-                          {
-                            "explanation": "<texto explicativo>"
-                          } \s
-            - Não inclua nenhum outro campo ou texto fora desse JSON.
-        """.formatted(
-                obj.getPatrimonioAtual(),
-                obj.getAporteMensal(),
-                cu.getCarteiraSelecionada(),
-                question
-        );
+        """);
     }
 
     public JSONObject responderPergunta(String question, Usuario usuario) {
-        String prompt = """
-        Você é um assistente de investimentos.
-
-        "%s"
-
-        Responda de forma clara, objetiva e técnica, considerando o perfil e metas de investimento.
-
-        Retorne SOMENTE este JSON:
-        {
-          "resposta": "<mensagem explicativa>"
-        }
-        """.formatted(
-                question
-        );
+        PromptIA prompt = PromptChat.json(question);
 
+        // Pergunta longa demais sai daqui com 413, antes de ocupar vaga na IA
+        // An overly long question leaves here with 413, before taking an AI slot
+        PromptAjustado ajustado = consumoTokens.ajustar(Rota.CHAT, prompt);
         try {
-            return chamarOpenAI(prompt);
+            return chamar(ajustado, usuario != null ? usuario.getId() : null, OperacaoIA.CHAT);
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Erro ao chamar IA: " + e.getMessage(), e);
         }
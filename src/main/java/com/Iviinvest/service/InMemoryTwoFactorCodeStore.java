@@ -0,0 +1,105 @@
+package com.Iviinvest.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Armazenamento de códigos 2FA local à JVM (padrão).
+ * <p>
+ * Códigos vencidos expiram de forma preguiçosa e são varridos em lote a cada N gravações,
+ * ou com o armazenamento cheio, no máximo uma vez por intervalo.
+ * <p>
+ * JVM-local 2FA code storage (default).
+ * Expired codes are dropped lazily and swept in batches every N writes, or with the store
+ * full, at most once per interval.
+ */
+@Component
+@ConditionalOnProperty(name = "twofactor.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTwoFactorCodeStore implements TwoFactorCodeStore {
+
+    // Varre os códigos expirados a cada N gravações | Sweeps expired codes every N writes
+    private static final int VARREDURA_A_CADA = 1024;
+
+    // Com o armazenamento cheio, no máximo uma varredura por intervalo; sem isso cada envio
+    // recusado percorreria todo o mapa | With the store full, at most one sweep per interval;
+    // otherwise every rejected send would walk the whole map
+    private static final long INTERVALO_VARREDURA_CHEIO_MS = 1_000;
+
+    // Um código por e-mail: um novo envio substitui o anterior | One code per email: a new send replaces the previous one
+    private final Map<String, TokenInfo> tokenStorage = new ConcurrentHashMap<>();
+    private final AtomicInteger gravacoes = new AtomicInteger();
+    private final AtomicLong ultimaVarreduraCheio = new AtomicLong();
+    private final int capacidade;
+
+    public InMemoryTwoFactorCodeStore(@Value("${twofactor.capacidade:100000}") int capacidade) {
+        this.capacidade = capacidade;
+    }
+
+    @Override
+    public void salvar(String email, String codigo, Instant expiraEm) {
+        Instant agora = Instant.now();
+        if (gravacoes.incrementAndGet() % VARREDURA_A_CADA == 0
+                || (tokenStorage.size() >= capacidade && podeVarrerCheio(agora))) {
+            removerExpirados(agora);
+        }
+        if (tokenStorage.size() >= capacidade && !tokenStorage.containsKey(email)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Muitos códigos pendentes. Tente novamente em instantes.");
+        }
+        tokenStorage.put(email, new TokenInfo(codigo, expiraEm));
+    }
+
+    @Override
+    public boolean consumir(String email, String codigo, Instant agora) {
+        TokenInfo info = tokenStorage.get(email);
+        if (info == null || codigo == null) {
+            return false;
+        }
+        if (agora.isAfter(info.expiresAt)) {
+            // Expiração preguiçosa: o código vencido sai na primeira leitura
+            // Lazy expiry: the stale code is dropped on first read
+            tokenStorage.remove(email, info);
+            return false;
+        }
+        boolean isValid = MessageDigest.isEqual(
+                info.token.getBytes(StandardCharsets.UTF_8),
+                codigo.getBytes(StandardCharsets.UTF_8));
+        // remove(chave, valor) garante uso único mesmo com verificações concorrentes
+        // remove(key, value) guarantees single use even under concurrent verifications
+        return isValid && tokenStorage.remove(email, info);
+    }
+
+    /**
+     * Só a thread que avança o instante da última varredura varre; as demais seguem sem esperar.
+     * <p>
+     * Only the thread that advances the last sweep instant sweeps; the others go on without waiting.
+     */
+    private boolean podeVarrerCheio(Instant agora) {
+        long ultima = ultimaVarreduraCheio.get();
+        long agoraMs = agora.toEpochMilli();
+        return agoraMs - ultima >= INTERVALO_VARREDURA_CHEIO_MS
+                && ultimaVarreduraCheio.compareAndSet(ultima, agoraMs);
+    }
+
+    /**
+     * Remove em lote todos os códigos vencidos.
+     * <p>
+     * Batch-removes every expired code.
+     */
+    private void removerExpirados(Instant agora) {
+        tokenStorage.values().removeIf(info -> agora.isAfter(info.expiresAt));
+    }
+
+    private record TokenInfo(String token, Instant expiresAt) {}
+}
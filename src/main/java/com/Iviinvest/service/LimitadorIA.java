@@ -0,0 +1,331 @@
+package com.Iviinvest.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.http.HttpTimeoutException;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limitador adaptativo de concorrência para as chamadas à IA (AIMD).
+ * <p>
+ * O limite de chamadas simultâneas cresce 1 a cada "limite" sucessos (aumento aditivo)
+ * e cai pela metade quando o provedor sinaliza sobrecarga: HTTP 429/5xx ou timeout
+ * (redução multiplicativa). Assim o número de chamadas em voo acompanha a taxa que o
+ * provedor sustenta, em vez de disparar centenas de requisições que falham juntas.
+ * <p>
+ * Sem vaga, a requisição entra numa fila com prazo, ordenada por prioridade
+ * ({@link OperacaoIA}) e chegada; o chat ainda é limitado a uma fração do limite para
+ * sempre sobrar espaço à geração de carteiras, e a especulação só entra em vaga livre.
+ * Fila cheia ou prazo vencido geram 503.
+ * <p>
+ * Adaptive concurrency limiter for the AI calls (AIMD).
+ * The concurrent call limit grows by 1 every "limit" successes (additive increase) and
+ * is halved when the provider signals overload: HTTP 429/5xx or timeout (multiplicative
+ * decrease). The number of in-flight calls thus tracks the rate the provider can sustain,
+ * instead of firing hundreds of requests that fail together.
+ * Without a free slot, the request joins a deadline-bound queue ordered by priority
+ * ({@link OperacaoIA}) and arrival; chat is also capped to a fraction of the limit so
+ * there is always room for portfolio generation, and speculation only takes a free slot.
+ * A full queue or an expired deadline result in 503.
+ */
+@Component
+public class LimitadorIA {
+
+    private static final Logger log = LoggerFactory.getLogger(LimitadorIA.class);
+
+    private static final double FATOR_REDUCAO = 0.5;
+
+    /**
+     * Desfecho de uma chamada, que ajusta o limite.
+     * <p>
+     * Call outcome, which adjusts the limit.
+     */
+    public enum Resultado { SUCESSO, SOBRECARGA, IGNORADO }
+
+    /**
+     * Chamada protegida pelo limitador.
+     * <p>
+     * Call guarded by the limiter.
+     */
+    @FunctionalInterface
+    public interface Chamada<T> {
+        T executar() throws Exception;
+    }
+
+    /**
+     * Recusa do próprio limitador (fila cheia ou prazo vencido): a chamada não chegou ao
+     * provedor, então não diz nada sobre a saúde dele.
+     * <p>
+     * Rejection by the limiter itself (full queue or expired deadline): the call never
+     * reached the provider, so it says nothing about the provider's health.
+     */
+    public static class Rejeicao extends ResponseStatusException {
+        Rejeicao() {
+            super(HttpStatus.SERVICE_UNAVAILABLE, "Serviço de IA sobrecarregado. Tente novamente em instantes.");
+        }
+    }
+
+    private final double limiteMinimo;
+    private final double limiteMaximo;
+    private final double fracaoChat;
+    private final int capacidadeFila;
+    private final Map<OperacaoIA, Long> esperaMaximaNanos = new EnumMap<>(OperacaoIA.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Espera> fila = new PriorityQueue<>(
+            Comparator.comparingInt((Espera e) -> e.operacao.getPrioridade()).thenComparingLong(e -> e.ordem));
+    private final Map<OperacaoIA, Integer> emUsoPorOperacao = new EnumMap<>(OperacaoIA.class);
+
+    private double limite;
+    private int emUso;
+    private long ordem;
+    private long ultimaReducaoNanos = Long.MIN_VALUE;
+
+    public LimitadorIA(
+            @Value("${ia.limite.inicial:8}") int limiteInicial,
+            @Value("${ia.limite.minimo:1}") int limiteMinimo,
+            @Value("${ia.limite.maximo:64}") int limiteMaximo,
+            @Value("${ia.limite.fracao-chat:0.5}") double fracaoChat,
+            @Value("${ia.fila.capacidade:200}") int capacidadeFila,
+            @Value("${ia.fila.espera-carteira-ms:15000}") long esperaCarteiraMs,
+            @Value("${ia.fila.espera-chat-ms:2000}") long esperaChatMs,
+            MeterRegistry meterRegistry) {
+        this.limiteMinimo = limiteMinimo;
+        this.limiteMaximo = limiteMaximo;
+        this.limite = Math.max(limiteMinimo, Math.min(limiteInicial, limiteMaximo));
+        this.fracaoChat = fracaoChat;
+        this.capacidadeFila = capacidadeFila;
+        this.esperaMaximaNanos.put(OperacaoIA.CARTEIRA, TimeUnit.MILLISECONDS.toNanos(esperaCarteiraMs));
+        this.esperaMaximaNanos.put(OperacaoIA.CHAT, TimeUnit.MILLISECONDS.toNanos(esperaChatMs));
+        this.esperaMaximaNanos.put(OperacaoIA.ESPECULACAO, 0L);
+        for (OperacaoIA operacao : OperacaoIA.values()) {
+            emUsoPorOperacao.put(operacao, 0);
+        }
+
+        Gauge.builder("ia.limitador.limite", this, LimitadorIA::getLimite).register(meterRegistry);
+        Gauge.builder("ia.limitador.em.uso", this, LimitadorIA::getEmUso).register(meterRegistry);
+        Gauge.builder("ia.limitador.fila", this, LimitadorIA::getTamanhoFila).register(meterRegistry);
+    }
+
+    /**
+     * Executa a chamada dentro do limite, classificando o desfecho automaticamente.
+     * <p>
+     * Runs the call within the limit, classifying the outcome automatically.
+     *
+     * @throws ResponseStatusException 503 se não houver vaga dentro do prazo | 503 if no slot frees up in time
+     */
+    public <T> T executar(OperacaoIA operacao, Chamada<T> chamada) throws Exception {
+        Permissao permissao = adquirir(operacao);
+        try {
+            T resultado = chamada.executar();
+            permissao.liberar(Resultado.SUCESSO);
+            return resultado;
+        } catch (Exception e) {
+            permissao.liberar(indicaSobrecarga(e) ? Resultado.SOBRECARGA : Resultado.IGNORADO);
+            throw e;
+        }
+    }
+
+    /**
+     * Ocupa uma vaga, esperando na fila até o prazo da operação.
+     * A permissão deve ser liberada exatamente uma vez.
+     * <p>
+     * Takes a slot, waiting in the queue up to the operation's deadline.
+     * The permit must be released exactly once.
+     *
+     * @throws ResponseStatusException 503 se não houver vaga dentro do prazo | 503 if no slot frees up in time
+     */
+    public Permissao adquirir(OperacaoIA operacao) {
+        long prazo = System.nanoTime() + esperaMaximaNanos.get(operacao);
+        lock.lock();
+        try {
+            Espera espera = new Espera(operacao, ordem++, lock.newCondition());
+            if (podeEntrarAFrente(espera)) {
+                return ocupar(operacao);
+            }
+            if (esperaMaximaNanos.get(operacao) <= 0 || fila.size() >= capacidadeFila) {
+                throw rejeitar(operacao);
+            }
+
+            fila.add(espera);
+            try {
+                while (true) {
+                    if (fila.peek() == espera && podeEntrar(operacao)) {
+                        fila.poll();
+                        acordarProximo();
+                        return ocupar(operacao);
+                    }
+                    long restante = prazo - System.nanoTime();
+                    if (restante <= 0) {
+                        throw rejeitar(operacao);
+                    }
+                    espera.condicao.awaitNanos(restante);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw rejeitar(operacao);
+            } finally {
+                if (fila.remove(espera)) {
+                    acordarProximo();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indica se a falha sinaliza sobrecarga do provedor.
+     * <p>
+     * Tells whether the failure signals provider overload.
+     */
+    public static boolean indicaSobrecarga(Throwable erro) {
+        for (Throwable t = erro; t != null; t = t.getCause()) {
+            if (t instanceof HttpTimeoutException) {
+                return true;
+            }
+            if (t instanceof ResponseStatusException rse
+                    && (rse.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                        || rse.getStatusCode().value() == HttpStatus.GATEWAY_TIMEOUT.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public double getLimite() {
+        lock.lock();
+        try {
+            return limite;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getEmUso() {
+        lock.lock();
+        try {
+            return emUso;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getTamanhoFila() {
+        lock.lock();
+        try {
+            return fila.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Entra sem fila se houver vaga e ninguém de prioridade igual ou maior esperando
+    // Enters without queueing if there is a slot and nobody of equal or higher priority waiting
+    private boolean podeEntrarAFrente(Espera espera) {
+        Espera primeiro = fila.peek();
+        return (primeiro == null || primeiro.operacao.getPrioridade() > espera.operacao.getPrioridade())
+                && podeEntrar(espera.operacao);
+    }
+
+    private boolean podeEntrar(OperacaoIA operacao) {
+        int vagas = (int) Math.floor(limite);
+        if (emUso >= vagas) {
+            return false;
+        }
+        if (operacao == OperacaoIA.CHAT) {
+            int vagasChat = Math.max(1, (int) Math.floor(vagas * fracaoChat));
+            return emUsoPorOperacao.get(OperacaoIA.CHAT) < vagasChat;
+        }
+        if (operacao == OperacaoIA.ESPECULACAO) {
+            // Deixa ao menos uma vaga para chamadas interativas | Leaves at least one slot for interactive calls
+            return emUso + 1 < vagas;
+        }
+        return true;
+    }
+
+    private Permissao ocupar(OperacaoIA operacao) {
+        emUso++;
+        emUsoPorOperacao.merge(operacao, 1, Integer::sum);
+        return new Permissao(operacao, System.nanoTime());
+    }
+
+    private void liberar(Permissao permissao, Resultado resultado) {
+        lock.lock();
+        try {
+            emUso--;
+            emUsoPorOperacao.merge(permissao.operacao, -1, Integer::sum);
+
+            if (resultado == Resultado.SUCESSO) {
+                limite = Math.min(limiteMaximo, limite + 1.0 / limite);
+            } else if (resultado == Resultado.SOBRECARGA && permissao.adquiridaEm > ultimaReducaoNanos) {
+                // Uma redução por rajada: chamadas iniciadas antes da última redução não reduzem de novo
+                // One decrease per burst: calls started before the last decrease do not decrease again
+                limite = Math.max(limiteMinimo, limite * FATOR_REDUCAO);
+                ultimaReducaoNanos = System.nanoTime();
+                log.warn("[IA] Sobrecarga do provedor; limite de chamadas simultâneas reduzido para {}", (int) limite);
+            }
+            acordarProximo();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acordarProximo() {
+        Espera primeiro = fila.peek();
+        if (primeiro != null) {
+            primeiro.condicao.signal();
+        }
+    }
+
+    private Rejeicao rejeitar(OperacaoIA operacao) {
+        if (operacao != OperacaoIA.ESPECULACAO) {
+            log.warn("[IA] Chamada {} rejeitada: {} em uso, limite {}, fila {}", operacao, emUso, (int) limite, fila.size());
+        }
+        return new Rejeicao();
+    }
+
+    private record Espera(OperacaoIA operacao, long ordem, Condition condicao) {}
+
+    /**
+     * Vaga ocupada por uma chamada.
+     * <p>
+     * Slot held by a call.
+     */
+    public final class Permissao {
+
+        private final OperacaoIA operacao;
+        private final long adquiridaEm;
+        private final AtomicBoolean liberada = new AtomicBoolean();
+
+        private Permissao(OperacaoIA operacao, long adquiridaEm) {
+            this.operacao = operacao;
+            this.adquiridaEm = adquiridaEm;
+        }
+
+        /**
+         * Devolve a vaga; chamadas repetidas são ignoradas.
+         * <p>
+         * Returns the slot; repeated calls are ignored.
+         */
+        public void liberar(Resultado resultado) {
+            if (liberada.compareAndSet(false, true)) {
+                LimitadorIA.this.liberar(this, resultado);
+            }
+        }
+    }
+}
@@ -1,22 +1,35 @@
 package com.Iviinvest.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.Iviinvest.dto.ObjetivoHistoricoItemDTO;
 import com.Iviinvest.dto.ObjetivoUsuarioDTO;
+import com.Iviinvest.dto.ObjetivoUsuarioResumo;
+import com.Iviinvest.dto.PaginaCursorDTO;
+import com.Iviinvest.dto.SetorEvitadoResumo;
 import com.Iviinvest.model.ObjetivoUsuario;
 import com.Iviinvest.model.Usuario;
 import com.Iviinvest.repository.ObjetivoUsuarioRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ObjetivoUsuarioService {
 
+    private static final int LIMITE_MAXIMO_PAGINA = 100;
+
+    // O Oracle aceita no máximo 1000 expressões numa lista IN (ORA-01795)
+    // Oracle accepts at most 1000 expressions in an IN list (ORA-01795)
+    static final int LOTE_IN = 1000;
+
     private final ObjetivoUsuarioRepository repository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
     public ObjetivoUsuarioService(ObjetivoUsuarioRepository repository) {
         this.repository = repository;
@@ -37,46 +50,126 @@ public class ObjetivoUsuarioService {
         objetivo.setPatrimonioAtual(dto.getPatrimonioAtual());
         objetivo.setLiquidez(dto.getLiquidez());
         objetivo.setDataCriacao(dto.getDataCriacao());
-
-        try {
-            objetivo.setSetoresEvitar(objectMapper.writeValueAsString(dto.getSetoresEvitar()));
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao converter setores para JSON", e);
+        if (dto.getSetoresEvitar() != null) {
+            objetivo.setSetoresEvitar(new ArrayList<>(dto.getSetoresEvitar()));
         }
 
         return repository.save(objetivo);
     }
 
+    /**
+     * Busca o último objetivo do usuário com os setores evitados já carregados,
+     * para uso fora de transação (sem open-in-view).
+     * <p>
+     * Finds the user's latest goal with the avoided sectors already loaded,
+     * for use outside a transaction (without open-in-view).
+     */
+    @Transactional(readOnly = true)
     public Optional<ObjetivoUsuario> buscarUltimoPorUsuario(Usuario usuario) {
-        return repository.findFirstByUsuarioOrderByIdDesc(usuario);
+        Optional<ObjetivoUsuario> objetivo = repository.findFirstByUsuarioOrderByIdDesc(usuario);
+        objetivo.ifPresent(o -> Hibernate.initialize(o.getSetoresEvitar()));
+        return objetivo;
     }
 
-    public List<ObjetivoUsuarioDTO> buscarHistoricoPorUsuario(Usuario usuario) {
-        List<ObjetivoUsuario> objetivos = repository.findAllByUsuarioOrderByIdDesc(usuario);
+    /**
+     * Busca o último objetivo do usuário já convertido em DTO, via projeção.
+     * <p>
+     * Finds the user's latest goal already converted to a DTO, through a projection.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ObjetivoUsuarioDTO> buscarUltimoDTOPorUsuario(Usuario usuario) {
+        return paraDTOs(repository.listarResumosPorUsuario(usuario.getId(), Limit.of(1))).stream().findFirst();
+    }
 
-        return objetivos.stream().map(objetivo -> {
-            try {
-                List<String> setoresEvitar = objectMapper.readValue(objetivo.getSetoresEvitar(), new TypeReference<>() {});
-                ObjetivoUsuarioDTO dto = new ObjetivoUsuarioDTO();
-                dto.setObjetivo(objetivo.getObjetivo());
-                dto.setPrazo(objetivo.getPrazo());
-                dto.setValorInicial(objetivo.getValorInicial());
-                dto.setAporteMensal(objetivo.getAporteMensal());
-                dto.setPatrimonioAtual(objetivo.getPatrimonioAtual());
-                dto.setLiquidez(objetivo.getLiquidez());
-                dto.setSetoresEvitar(setoresEvitar);
-                dto.setDataCriacao(dto.getDataCriacao());
-                return dto;
-            } catch (Exception e) {
-                throw new RuntimeException("Erro ao converter setores evitados", e);
+    /**
+     * Página do histórico de objetivos, paginada por cursor.
+     * <p>
+     * Goal history page, cursor paginated.
+     *
+     * @param usuario Usuário dono do histórico | History owner
+     * @param cursor ID do último item da página anterior ou {@code null} | ID of the previous page's last item or {@code null}
+     * @param limite Itens por página (1 a 100) | Items per page (1 to 100)
+     * @return Itens e cursor da próxima página | Items and next page cursor
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<ObjetivoHistoricoItemDTO> buscarHistoricoPaginado(Usuario usuario, Long cursor, int limite) {
+        int tamanho = Math.max(1, Math.min(limite, LIMITE_MAXIMO_PAGINA));
+
+        // Busca um item a mais para saber se existe próxima página
+        // Fetches one extra item to know whether there is a next page
+        List<ObjetivoHistoricoItemDTO> itens =
+                repository.listarHistoricoPorUsuario(usuario.getId(), cursor, Limit.of(tamanho + 1));
+
+        if (itens.size() <= tamanho) {
+            return new PaginaCursorDTO<>(itens, null);
+        }
+        List<ObjetivoHistoricoItemDTO> pagina = itens.subList(0, tamanho);
+        return new PaginaCursorDTO<>(List.copyOf(pagina), pagina.get(tamanho - 1).id());
+    }
+
+    /**
+     * Detalhe completo de um objetivo do histórico, se pertencer ao usuário.
+     * <p>
+     * Full detail of a history goal, if it belongs to the user.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ObjetivoUsuarioDTO> buscarDetalhePorUsuario(Usuario usuario, Long id) {
+        return repository.buscarResumoPorIdEUsuario(id, usuario.getId())
+                .map(resumo -> paraDTOs(List.of(resumo)).get(0));
+    }
+
+    /**
+     * IDs dos usuários que evitam o setor informado.
+     * <p>
+     * IDs of the users that avoid the given sector.
+     */
+    public List<Long> buscarUsuariosQueEvitamSetor(String setor) {
+        return repository.listarUsuariosQueEvitamSetor(setor);
+    }
+
+    /**
+     * Converte as projeções em DTOs, buscando os setores evitados em uma consulta a cada
+     * {@value #LOTE_IN} objetivos.
+     * <p>
+     * Converts the projections into DTOs, fetching the avoided sectors in one query per
+     * {@value #LOTE_IN} goals.
+     */
+    List<ObjetivoUsuarioDTO> paraDTOs(List<ObjetivoUsuarioResumo> objetivos) {
+        if (objetivos.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<String>> setoresPorObjetivo = new HashMap<>();
+        List<Long> ids = objetivos.stream().map(ObjetivoUsuarioResumo::id).toList();
+        for (int inicio = 0; inicio < ids.size(); inicio += LOTE_IN) {
+            List<Long> lote = ids.subList(inicio, Math.min(inicio + LOTE_IN, ids.size()));
+            for (SetorEvitadoResumo setor : repository.listarSetoresEvitados(lote)) {
+                setoresPorObjetivo.computeIfAbsent(setor.objetivoId(), id -> new ArrayList<>()).add(setor.setor());
             }
+        }
+
+        return objetivos.stream().map(objetivo -> {
+            ObjetivoUsuarioDTO dto = new ObjetivoUsuarioDTO();
+            dto.setObjetivo(objetivo.objetivo());
+            dto.setPrazo(objetivo.prazo());
+            dto.setValorInicial(objetivo.valorInicial());
+            dto.setAporteMensal(objetivo.aporteMensal());
+            dto.setPatrimonioAtual(objetivo.patrimonioAtual());
+            dto.setLiquidez(objetivo.liquidez());
+            dto.setSetoresEvitar(setoresPorObjetivo.getOrDefault(objetivo.id(), List.of()));
+            dto.setDataCriacao(objetivo.dataCriacao());
+            return dto;
         }).toList();
     }
+
     public ObjetivoUsuario buscarPorId(Long id) {
         return repository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(org.springframework.http.HttpStatus.NOT_FOUND, "Objetivo não encontrado"));
     }
+    @Transactional(readOnly = true)
     public Optional<ObjetivoUsuario> buscarPorIdEUsuario(Long id, Usuario usuario) {
-        return repository.findByIdAndUsuario(id, usuario);
+        Optional<ObjetivoUsuario> objetivo = repository.findByIdAndUsuario(id, usuario);
+        objetivo.ifPresent(o -> Hibernate.initialize(o.getSetoresEvitar()));
+        return objetivo;
     }
 }
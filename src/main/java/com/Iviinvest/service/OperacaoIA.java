@@ -0,0 +1,36 @@
+package com.Iviinvest.service;
+
+/**
+ * Tipo de chamada à IA, usado pelo {@link LimitadorIA} para priorizar a fila.
+ * <p>
+ * AI call type, used by {@link LimitadorIA} to prioritise the queue.
+ */
+public enum OperacaoIA {
+
+    /** Geração de percentuais e ativos da carteira | Portfolio percentages and assets generation */
+    CARTEIRA(0),
+
+    /** Perguntas do chat; cedem lugar à geração de carteiras | Chat questions; yield to portfolio generation */
+    CHAT(1),
+
+    /**
+     * Geração antecipada de ativos; só usa vaga livre, nunca espera na fila
+     * | Speculative asset generation; only takes a free slot, never queues
+     */
+    ESPECULACAO(2);
+
+    private final int prioridade;
+
+    OperacaoIA(int prioridade) {
+        this.prioridade = prioridade;
+    }
+
+    /**
+     * Menor valor é atendido primeiro.
+     * <p>
+     * Lower value is served first.
+     */
+    public int getPrioridade() {
+        return prioridade;
+    }
+}
@@ -1,21 +1,31 @@
 package com.Iviinvest.service;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.fasterxml.jackson.core.JsonPointer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.OptionalDouble;
 
 @Service
 public class PrecoAtivoService {
 
+    private static final JsonPointer PRECO_MERCADO = JsonPointer.compile("/results/0/regularMarketPrice");
+
     @Value("${brapi.api.key}")
     private String brapiApiKey;
 
+    @Value("${brapi.api.url:https://brapi.dev/api}")
+    private String brapiUrl;
+
+    // Cliente compartilhado: reaproveita conexões entre cotações
+    // Shared client: reuses connections across quotes
+    private final HttpClient client = HttpClient.newHttpClient();
+
     public double buscarPreco(String simbolo) {
         try {
             // limpa espaços e força maiúsculas
@@ -24,7 +34,7 @@ public class PrecoAtivoService {
             // ou, para garantir encoding:
             // String clean = URLEncoder.encode(simbolo.trim(), StandardCharsets.UTF_8);
 
-            String url = "https://brapi.dev/api/quote/" + clean;
+            String url = brapiUrl + "/quote/" + clean;
 
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(url))
@@ -33,14 +43,15 @@ public class PrecoAtivoService {
                     .GET()
                     .build();
 
-            HttpResponse<String> resp = HttpClient.newHttpClient()
-                    .send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<InputStream> resp = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
 
-            JSONObject json = new JSONObject(resp.body());
-            JSONArray results = json.optJSONArray("results");
-            if (results != null && results.length()>0) {
-                return results.getJSONObject(0)
-                        .optDouble("regularMarketPrice", 0.0);
+            // lê só results[0].regularMarketPrice direto do stream
+            OptionalDouble preco;
+            try (InputStream corpo = resp.body()) {
+                preco = ExtratorJson.numero(corpo, PRECO_MERCADO);
+            }
+            if (preco.isPresent()) {
+                return preco.getAsDouble();
             }
             System.err.println("Ticker não encontrado ou sem preço: " + clean);
         } catch(Exception e){
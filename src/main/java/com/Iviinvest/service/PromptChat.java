@@ -0,0 +1,43 @@
+package com.Iviinvest.service;
+
+/**
+ * Prompt do chat, o mesmo para a resposta completa e para a transmitida; só muda o
+ * formato pedido no fim.
+ * <p>
+ * Chat prompt, the same for the full and the streamed answer; only the requested
+ * format at the end changes.
+ */
+final class PromptChat {
+
+    private PromptChat() {
+    }
+
+    /** Resposta num JSON {@code {"resposta": ...}} | Answer in a JSON {@code {"resposta": ...}} */
+    static PromptIA json(String pergunta) {
+        return montar(pergunta, """
+        Retorne SOMENTE este JSON:
+        {
+          "resposta": "<mensagem explicativa>"
+        }
+        """);
+    }
+
+    /** Resposta em texto corrido, para transmissão | Plain text answer, for streaming */
+    static PromptIA texto(String pergunta) {
+        return montar(pergunta, """
+        Responda em texto corrido, sem JSON.
+        """);
+    }
+
+    private static PromptIA montar(String pergunta, String formato) {
+        return new PromptIA().fixa("""
+        Você é um assistente de investimentos.
+
+        "%s"
+
+        """.formatted(pergunta)).opcional("""
+        Responda de forma clara, objetiva e técnica, considerando o perfil e metas de investimento.
+
+        """).fixa(formato);
+    }
+}
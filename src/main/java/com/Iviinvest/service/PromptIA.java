@@ -0,0 +1,60 @@
+package com.Iviinvest.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prompt montado em seções, algumas delas opcionais.
+ * <p>
+ * Seções fixas carregam os dados do investidor, as regras e o formato da resposta;
+ * as opcionais só dão contexto e podem sair quando o prompt passa do orçamento de
+ * tokens. Saem na ordem em que foram declaradas.
+ * <p>
+ * Prompt built from sections, some of them optional. Fixed sections carry the investor
+ * data, the rules and the answer format; optional ones only add context and may be
+ * dropped when the prompt exceeds its token budget. They are dropped in declaration order.
+ */
+final class PromptIA {
+
+    private record Secao(String texto, boolean opcional) {}
+
+    private final List<Secao> secoes = new ArrayList<>();
+    private int opcionais;
+
+    PromptIA fixa(String texto) {
+        secoes.add(new Secao(texto, false));
+        return this;
+    }
+
+    PromptIA opcional(String texto) {
+        secoes.add(new Secao(texto, true));
+        opcionais++;
+        return this;
+    }
+
+    int opcionais() {
+        return opcionais;
+    }
+
+    String completo() {
+        return semOpcionais(0);
+    }
+
+    /**
+     * Texto sem as primeiras {@code cortes} seções opcionais.
+     * <p>
+     * Text without the first {@code cortes} optional sections.
+     */
+    String semOpcionais(int cortes) {
+        StringBuilder sb = new StringBuilder();
+        int cortadas = 0;
+        for (Secao secao : secoes) {
+            if (secao.opcional() && cortadas < cortes) {
+                cortadas++;
+                continue;
+            }
+            sb.append(secao.texto());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.Iviinvest.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Extrai o objeto JSON da resposta do modelo numa única passada, sem regex.
+ * <p>
+ * Ignora cercas de código (```json), texto antes e depois do objeto, e corrige os
+ * defeitos mais comuns da saída do modelo: vírgula antes de {@code }} ou {@code ]} e
+ * números com zeros à esquerda ({@code 00}, {@code 05}). Dentro de strings nada é
+ * alterado. Aloca só o buffer do resultado.
+ * <p>
+ * Extracts the JSON object from the model answer in a single pass, without regex.
+ * Skips code fences, text before and after the object, and repairs the most common
+ * defects of model output: a comma before {@code }} or {@code ]} and numbers with
+ * leading zeros. Nothing inside strings is changed. Only the result buffer is allocated.
+ */
+final class SanitizadorRespostaIA {
+
+    private SanitizadorRespostaIA() {
+    }
+
+    /**
+     * Devolve o objeto JSON mais externo da resposta, já corrigido.
+     * <p>
+     * Returns the outermost JSON object of the answer, already repaired.
+     *
+     * @throws ResponseStatusException 502 se não houver objeto completo | 502 if there is no complete object
+     */
+    static String extrairObjeto(String resposta) {
+        int inicio = resposta.indexOf('{');
+        if (inicio < 0) {
+            throw invalida("nenhum objeto JSON", resposta);
+        }
+
+        StringBuilder saida = new StringBuilder(resposta.length() - inicio);
+        int profundidade = 0;
+        boolean emString = false;
+        boolean escape = false;
+        boolean inicioNumero = false;   // próximo dígito começa um número | next digit starts a number
+        int virgulaPendente = -1;       // posição da última vírgula, se só houve espaço depois
+
+        for (int i = inicio; i < resposta.length(); i++) {
+            char c = resposta.charAt(i);
+
+            if (emString) {
+                saida.append(c);
+                if (escape) {
+                    escape = false;
+                } else if (c == '\\') {
+                    escape = true;
+                } else if (c == '"') {
+                    emString = false;
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> {
+                    emString = true;
+                    virgulaPendente = -1;
+                    inicioNumero = false;
+                    saida.append(c);
+                }
+                case '{', '[' -> {
+                    profundidade++;
+                    virgulaPendente = -1;
+                    inicioNumero = true;
+                    saida.append(c);
+                }
+                case '}', ']' -> {
+                    if (virgulaPendente >= 0) {
+                        saida.deleteCharAt(virgulaPendente);   // vírgula final | trailing comma
+                        virgulaPendente = -1;
+                    }
+                    profundidade--;
+                    inicioNumero = false;
+                    saida.append(c);
+                    if (profundidade == 0) {
+                        return saida.toString();
+                    }
+                }
+                case ',' -> {
+                    virgulaPendente = saida.length();
+                    inicioNumero = true;
+                    saida.append(c);
+                }
+                case ':' -> {
+                    virgulaPendente = -1;
+                    inicioNumero = true;
+                    saida.append(c);
+                }
+                case ' ', '\t', '\n', '\r' -> saida.append(c);
+                case '-' -> saida.append(c);   // sinal mantém o início do número | sign keeps number start
+                default -> {
+                    // Zero à esquerda seguido de dígito é descartado: 00 -> 0, 05 -> 5
+                    // A leading zero followed by a digit is dropped: 00 -> 0, 05 -> 5
+                    if (c == '0' && inicioNumero && i + 1 < resposta.length()
+                            && Character.isDigit(resposta.charAt(i + 1))) {
+                        continue;
+                    }
+                    virgulaPendente = -1;
+                    inicioNumero = false;
+                    saida.append(c);
+                }
+            }
+        }
+        throw invalida("objeto JSON incompleto", resposta);
+    }
+
+    private static ResponseStatusException invalida(String motivo, String resposta) {
+        String trecho = resposta.length() > 200 ? resposta.substring(0, 200) + "..." : resposta;
+        return new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                "Resposta inválida da IA (" + motivo + "): " + trecho);
+    }
+}
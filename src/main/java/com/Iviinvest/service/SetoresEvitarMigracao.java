@@ -0,0 +1,168 @@
+package com.Iviinvest.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Migra os setores evitados gravados como JSON na coluna legada
+ * {@code objetivos_usuarios.setores_evitar} para a tabela {@code objetivo_setores_evitar}.
+ * <p>
+ * Roda na inicialização, é idempotente (esvazia a coluna legada de cada linha migrada)
+ * e não faz nada em bancos criados depois da mudança, que não têm a coluna. As linhas
+ * legadas ficam travadas durante a migração e objetivos que já têm setores na tabela
+ * nova não recebem outros, então réplicas subindo juntas não gravam em dobro. Entradas
+ * nulas ou vazias são descartadas e as longas cortadas no tamanho da coluna.
+ * <p>
+ * Migrates the avoided sectors stored as JSON in the legacy column
+ * {@code objetivos_usuarios.setores_evitar} into the {@code objetivo_setores_evitar} table.
+ * Runs at startup, is idempotent (it clears the legacy column of every migrated row)
+ * and does nothing on databases created after the change, which lack the column. The
+ * legacy rows stay locked during the migration and goals that already have sectors in
+ * the new table get no more, so replicas starting together do not write twice. Null or
+ * empty entries are dropped and long ones cut to the column size.
+ */
+@Component
+public class SetoresEvitarMigracao implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SetoresEvitarMigracao.class);
+
+    private static final String TABELA = "objetivos_usuarios";
+    private static final String COLUNA_LEGADA = "setores_evitar";
+    private static final int TAMANHO_SETOR = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public SetoresEvitarMigracao(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrar();
+    }
+
+    /**
+     * Executa a migração.
+     * <p>
+     * Runs the migration.
+     *
+     * @return Número de objetivos migrados | Number of migrated goals
+     */
+    public int migrar() {
+        if (!colunaLegadaExiste()) {
+            return 0;
+        }
+
+        Integer migrados;
+        try {
+            migrados = transactionTemplate.execute(status -> migrarTravando());
+        } catch (DuplicateKeyException e) {
+            // Outra réplica gravou os mesmos objetivos primeiro | Another replica wrote the same goals first
+            log.info("[MIGRACAO] Setores evitados já migrados por outra instância");
+            return 0;
+        }
+
+        if (migrados != null && migrados > 0) {
+            log.info("[MIGRACAO] Setores evitados migrados para tabela própria em {} objetivos", migrados);
+        }
+        return migrados != null ? migrados : 0;
+    }
+
+    private int migrarTravando() {
+        // Uma réplica por vez: a outra espera e depois encontra a coluna vazia
+        // One replica at a time: the other waits and then finds the column empty
+        List<Map<String, Object>> linhas = jdbcTemplate.queryForList(
+                "SELECT id, " + COLUNA_LEGADA + " FROM " + TABELA
+                        + " WHERE " + COLUNA_LEGADA + " IS NOT NULL FOR UPDATE");
+        if (linhas.isEmpty()) {
+            return 0;
+        }
+        Set<Long> jaMigrados = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT DISTINCT s.objetivo_id FROM objetivo_setores_evitar s JOIN " + TABELA
+                        + " o ON o.id = s.objetivo_id WHERE o." + COLUNA_LEGADA + " IS NOT NULL", Long.class));
+
+        List<Object[]> setores = new ArrayList<>();
+        List<Object[]> ids = new ArrayList<>();
+        for (Map<String, Object> linha : linhas) {
+            Long id = ((Number) linha.get("id")).longValue();
+            if (!jaMigrados.contains(id)) {
+                List<String> lista = lerJson(id, (String) linha.get(COLUNA_LEGADA));
+                for (int i = 0; i < lista.size(); i++) {
+                    setores.add(new Object[]{id, i, lista.get(i)});
+                }
+            }
+            ids.add(new Object[]{id});
+        }
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO objetivo_setores_evitar (objetivo_id, posicao, setor) VALUES (?, ?, ?)", setores);
+        jdbcTemplate.batchUpdate(
+                "UPDATE " + TABELA + " SET " + COLUNA_LEGADA + " = NULL WHERE id = ?", ids);
+        return linhas.size();
+    }
+
+    // Mesmo contrato da coluna: sem nulos nem vazios, até 100 caracteres
+    // Same contract as the column: no nulls or blanks, up to 100 characters
+    private List<String> lerJson(Long id, String json) {
+        try {
+            List<String> lista = objectMapper.readValue(json, new TypeReference<>() {});
+            if (lista == null) {
+                return List.of();
+            }
+            List<String> validos = new ArrayList<>();
+            for (String setor : lista) {
+                if (setor == null || setor.isBlank()) {
+                    log.warn("[MIGRACAO] Setor vazio descartado no objetivo {}", id);
+                    continue;
+                }
+                String limpo = setor.strip();
+                if (limpo.length() > TAMANHO_SETOR) {
+                    log.warn("[MIGRACAO] Setor com {} caracteres cortado no objetivo {}", limpo.length(), id);
+                    limpo = limpo.substring(0, TAMANHO_SETOR);
+                }
+                validos.add(limpo);
+            }
+            return validos;
+        } catch (Exception e) {
+            log.warn("[MIGRACAO] Setores evitados inválidos no objetivo {}: {}", id, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private boolean colunaLegadaExiste() {
+        Boolean existe = jdbcTemplate.execute((Connection conexao) -> {
+            DatabaseMetaData meta = conexao.getMetaData();
+            for (String tabela : List.of(TABELA.toUpperCase(), TABELA)) {
+                try (ResultSet rs = meta.getColumns(null, null, tabela, null)) {
+                    while (rs.next()) {
+                        if (COLUNA_LEGADA.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(existe);
+    }
+}
@@ -0,0 +1,81 @@
+package com.Iviinvest.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabela de regras da alocação local, lida de um JSON configurável
+ * ({@code alocacao.regras.arquivo}).
+ * <p>
+ * Cada faixa de prazo traz as duas distribuições-base; liquidez, patrimônio pequeno e
+ * setores a evitar aplicam ajustes que movem pontos entre segmentos. Liquidez ausente
+ * da tabela ou prazo fora das faixas deixam o perfil fora da cobertura.
+ * <p>
+ * Rule table of the local allocation, read from a configurable JSON file.
+ * Each term band holds both base splits; liquidity, small net worth and sectors to
+ * avoid apply adjustments that move points between segments. A liquidity missing from
+ * the table or a term outside the bands leaves the profile out of coverage.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+record TabelaAlocacao(
+        List<FaixaPrazo> faixasPrazo,
+        Map<String, List<Ajuste>> liquidez,
+        PatrimonioPequeno patrimonioPequeno,
+        Map<String, List<Ajuste>> setoresEvitar,
+        int ativosPorSegmento,
+        Map<String, List<String>> ativos) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record FaixaPrazo(String nome, int prazoMin, int prazoMax,
+                      Map<String, Integer> conservadora, Map<String, Integer> agressiva) {
+
+        boolean contem(int prazo) {
+            return prazo >= prazoMin && prazo <= prazoMax;
+        }
+
+        int distancia(int prazo) {
+            return contem(prazo) ? 0 : Math.min(Math.abs(prazo - prazoMin), Math.abs(prazo - prazoMax));
+        }
+    }
+
+    record PatrimonioPequeno(double abaixoDe, int ativosPorSegmento, List<Ajuste> ajustes) {}
+
+    /** Move até {@code pontos} do segmento {@code de} para {@code para} | Moves up to {@code pontos} points */
+    record Ajuste(String de, String para, int pontos) {}
+
+    /**
+     * Confere que toda distribuição-base soma 100 e que distribuições e ajustes só usam
+     * segmentos conhecidos: um ajuste com segmento errado criaria um segmento sem ativos.
+     * <p>
+     * Checks that every base split sums to 100 and that splits and adjustments only use
+     * known segments: an adjustment with a wrong segment would create a segment without assets.
+     *
+     * @throws IllegalStateException se a tabela for inconsistente | if the table is inconsistent
+     */
+    void validar() {
+        if (faixasPrazo == null || faixasPrazo.isEmpty()) {
+            throw new IllegalStateException("Tabela de alocação sem faixas de prazo");
+        }
+        for (FaixaPrazo faixa : faixasPrazo) {
+            for (Map<String, Integer> pct : List.of(faixa.conservadora(), faixa.agressiva())) {
+                if (!ativos.keySet().containsAll(pct.keySet())
+                        || pct.values().stream().mapToInt(Integer::intValue).sum() != 100) {
+                    throw new IllegalStateException("Faixa '" + faixa.nome() + "' inválida: " + pct);
+                }
+            }
+        }
+        liquidez.forEach((nome, ajustes) -> validarAjustes("liquidez '" + nome + "'", ajustes));
+        setoresEvitar.forEach((nome, ajustes) -> validarAjustes("setor '" + nome + "'", ajustes));
+        validarAjustes("patrimônio pequeno", patrimonioPequeno.ajustes());
+    }
+
+    private void validarAjustes(String origem, List<Ajuste> ajustes) {
+        for (Ajuste ajuste : ajustes) {
+            if (!ativos.containsKey(ajuste.de()) || !ativos.containsKey(ajuste.para()) || ajuste.pontos() < 0) {
+                throw new IllegalStateException("Ajuste de " + origem + " inválido: " + ajuste);
+            }
+        }
+    }
+}
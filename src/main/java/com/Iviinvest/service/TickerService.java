@@ -0,0 +1,90 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.Ticker;
+import com.Iviinvest.repository.TickerRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolve códigos de ativos para entradas do dicionário de tickers, criando as que faltam.
+ * <p>
+ * Resolves asset codes into ticker dictionary entries, creating the missing ones.
+ */
+@Service
+public class TickerService {
+
+    private final TickerRepository repository;
+    private final TransactionTemplate novaTransacao;
+
+    public TickerService(TickerRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Normaliza o código do ativo (maiúsculas, sem espaços).
+     * <p>
+     * Normalizes the asset code (upper case, no spaces).
+     */
+    public static String normalizar(String codigo) {
+        return codigo.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Busca ou cria os tickers informados.
+     * <p>
+     * Deve ser chamado fora de transação, antes da escrita que usa os tickers: cada
+     * ticker novo é gravado em transação própria, e dentro de outra transação isso
+     * pediria uma segunda conexão ao pool enquanto a primeira continua presa. Uma
+     * inserção concorrente do mesmo código (violação da chave única) é resolvida
+     * relendo o ticker.
+     * <p>
+     * Finds or creates the given tickers.
+     * Must be called outside any transaction, before the write that uses the tickers:
+     * each new ticker is stored in its own transaction, and inside another transaction
+     * that would take a second pooled connection while the first one is still held. A
+     * concurrent insert of the same code (unique key violation) is solved by re-reading it.
+     *
+     * @param codigos Códigos já normalizados | Already normalized codes
+     * @return Mapa código → ticker | Code → ticker map
+     * @throws IllegalArgumentException se algum código for vazio ou maior que a coluna
+     *                                  | if any code is empty or longer than the column
+     */
+    public Map<String, Ticker> resolver(Collection<String> codigos) {
+        Map<String, Ticker> tickers = new HashMap<>();
+        if (codigos.isEmpty()) return tickers;
+
+        for (String codigo : codigos) {
+            if (codigo.isEmpty() || codigo.length() > Ticker.TAMANHO_CODIGO) {
+                throw new IllegalArgumentException("Código de ativo inválido: " + codigo);
+            }
+        }
+
+        for (Ticker t : repository.findByCodigoIn(codigos)) {
+            tickers.put(t.getCodigo(), t);
+        }
+        for (String codigo : codigos) {
+            if (!tickers.containsKey(codigo)) {
+                tickers.put(codigo, criar(codigo));
+            }
+        }
+        return tickers;
+    }
+
+    private Ticker criar(String codigo) {
+        try {
+            return novaTransacao.execute(status -> repository.saveAndFlush(new Ticker(codigo)));
+        } catch (DataIntegrityViolationException e) {
+            return repository.findByCodigo(codigo).orElseThrow(() -> e);
+        }
+    }
+}
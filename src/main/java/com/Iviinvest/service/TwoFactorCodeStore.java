@@ -0,0 +1,36 @@
+package com.Iviinvest.service;
+
+import java.time.Instant;
+
+/**
+ * Armazenamento dos códigos 2FA pendentes.
+ * <p>
+ * A implementação em memória é a padrão ({@code twofactor.store=memory}); a implementação
+ * em banco ({@code twofactor.store=database}) permite que qualquer réplica da API verifique
+ * um código enviado por outra, dispensando sessões fixas no balanceador.
+ * <p>
+ * Storage for pending 2FA codes.
+ * The in-memory implementation is the default ({@code twofactor.store=memory}); the database
+ * implementation ({@code twofactor.store=database}) lets any API replica verify a code sent by
+ * another one, removing the need for sticky sessions on the load balancer.
+ */
+public interface TwoFactorCodeStore {
+
+    /**
+     * Grava o código do e-mail, substituindo qualquer código anterior.
+     *
+     * @param email E-mail do usuário | User email
+     * @param codigo Código gerado | Generated code
+     * @param expiraEm Instante de expiração | Expiration instant
+     */
+    void salvar(String email, String codigo, Instant expiraEm);
+
+    /**
+     * Consome o código se ele for válido e não estiver expirado. Um código só pode ser consumido uma vez.
+     * <p>
+     * Consumes the code if it is valid and not expired. A code can be consumed only once.
+     *
+     * @return true se o código conferiu | true if the code matched
+     */
+    boolean consumir(String email, String codigo, Instant agora);
+}
@@ -1,62 +1,69 @@
 // service/TwoFactorService.java
 package com.Iviinvest.service;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
+import com.Iviinvest.util.TemplateEmail;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.*;
-
-import jakarta.mail.internet.MimeMessage;
-import org.springframework.mail.javamail.MimeMessageHelper;
 
 @Service
 public class TwoFactorService {
 
-    private final Map<String, TokenInfo> tokenStorage = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    // SecureRandom é thread-safe e imprevisível; uma instância para toda a aplicação
+    // SecureRandom is thread-safe and unpredictable; one instance for the whole application
+    private static final SecureRandom RANDOM = new SecureRandom();
 
-    @Autowired
-    private JavaMailSender mailSender;
+    private static final String ASSUNTO = "Código de Verificação - Ivi Invest";
 
-    public void generateAndSendToken(String email) {
-        String code = String.format("%06d", new Random().nextInt(999999));
-        Instant expiresAt = Instant.now().plusSeconds(300); // 5 minutos
+    // Em memória por padrão; em banco para rodar várias réplicas | In memory by default; database for multiple replicas
+    private final TwoFactorCodeStore codeStore;
+    private final EmailService emailService;
+    private final long validadeSegundos;
+    private final TemplateEmail templateTexto;
+    private final TemplateEmail templateHtml;
+
+    public TwoFactorService(TwoFactorCodeStore codeStore,
+                            EmailService emailService,
+                            @Value("${twofactor.validade-segundos:300}") long validadeSegundos) {
+        this.codeStore = codeStore;
+        this.emailService = emailService;
+        this.validadeSegundos = validadeSegundos;
 
-        tokenStorage.put(email, new TokenInfo(code, expiresAt));
+        // A validade do e-mail vem da mesma propriedade que expira o código
+        // The validity in the email comes from the same property that expires the code
+        Map<String, String> fixos = Map.of("{{validade}}", descreverValidade(validadeSegundos));
+        this.templateTexto = TemplateEmail.carregar("templates/email/codigo-verificacao.txt", "{{codigo}}", fixos);
+        this.templateHtml = TemplateEmail.carregar("templates/email/codigo-verificacao.html", "{{codigo}}", fixos);
+    }
+
+    public void generateAndSendToken(String email) {
+        String code = String.format("%06d", RANDOM.nextInt(1_000_000));
+        Instant expiresAt = Instant.now().plus(Duration.ofSeconds(validadeSegundos));
 
-        scheduler.schedule(() -> tokenStorage.remove(email), 5, TimeUnit.MINUTES);
+        codeStore.salvar(email, code, expiresAt);
 
         sendEmail(email, code);
     }
 
     public boolean verifyToken(String email, String token) {
-        TokenInfo info = tokenStorage.get(email);
-        if (info == null || Instant.now().isAfter(info.expiresAt)) {
-            return false;
-        }
-        boolean isValid = info.token.equals(token);
-        if (isValid) {
-            tokenStorage.remove(email);
-        }
-        return isValid;
+        return codeStore.consumir(email, token, Instant.now());
     }
 
     private void sendEmail(String to, String code) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true);
-            helper.setTo(to);
-            helper.setSubject("Código de Verificação - Ivi Invest");
-            helper.setText("Seu código de verificação é: <b>" + code + "</b>", true);
-            mailSender.send(message);
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao enviar email", e);
-        }
+        // Apenas enfileira; o envio SMTP acontece no EmailOutboxWorker
+        emailService.enviarHtml(to, ASSUNTO, templateTexto.renderizar(code), templateHtml.renderizar(code));
     }
 
-    private record TokenInfo(String token, Instant expiresAt) {}
+    // "5 minutos", "1 minuto", "90 segundos"
+    static String descreverValidade(long segundos) {
+        if (segundos % 60 == 0) {
+            long minutos = segundos / 60;
+            return minutos + (minutos == 1 ? " minuto" : " minutos");
+        }
+        return segundos + (segundos == 1 ? " segundo" : " segundos");
+    }
 }
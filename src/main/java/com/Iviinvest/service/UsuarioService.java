@@ -2,6 +2,7 @@ package com.Iviinvest.service;
 
 import com.Iviinvest.dto.LoginDTO;
 import com.Iviinvest.dto.UserRegisterDTO;
+import com.Iviinvest.dto.UsuarioResumo;
 import com.Iviinvest.dto.UsuarioPublicDTO;
 import com.Iviinvest.model.Usuario;
 import com.Iviinvest.repository.UsuarioRepository;
@@ -11,9 +12,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.*;
@@ -34,12 +39,24 @@ public class UsuarioService {
 
     private static final Logger log = LoggerFactory.getLogger(UsuarioService.class);
 
+    /**
+     * Cache e-mail → {@link UsuarioResumo} usado por todos os controllers autenticados.
+     * Tamanho e TTL em spring.cache.caffeine.spec.
+     * <p>
+     * Email → {@link UsuarioResumo} cache used by every authenticated controller.
+     * Size and TTL in spring.cache.caffeine.spec.
+     */
+    public static final String CACHE_USUARIOS_POR_EMAIL = "usuariosPorEmail";
+
     private final UsuarioRepository repository;
     private final PasswordEncoder passwordEncoder;
 
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     @Value("${jwt.secret}")
     private String jwtSecret; // Chave secreta para JWT | Secret key for JWT
 
@@ -153,6 +170,7 @@ public class UsuarioService {
 
         usuario.setTokenReset(hashedToken);
         repository.save(usuario);
+        removerDoCache(email);
 
         String assunto = "Recuperação de Senha - Ivi Invest";
         String corpo = String.format(
@@ -189,6 +207,7 @@ public class UsuarioService {
         usuario.setSenhaHash(passwordEncoder.encode(novaSenha));
         usuario.setTokenReset(null);
         repository.save(usuario);
+        removerDoCache(usuario.getEmail());
         log.info("[PASSWORD_RESET] Senha alterada para: {}", usuario.getEmail());
     }
 
@@ -252,10 +271,14 @@ public class UsuarioService {
      */
     public Usuario atualizar(Long id, UserRegisterDTO dto) {
         Usuario usuario = buscarPorId(id);
+        String emailAnterior = usuario.getEmail();
         usuario.setEmail(dto.getEmail());
         usuario.setSenhaHash(passwordEncoder.encode(dto.getSenha()));
+        Usuario salvo = repository.save(usuario);
+        removerDoCache(emailAnterior);
+        removerDoCache(salvo.getEmail());
         log.info("[ATUALIZAÇÃO] Usuário atualizado: ID {}", id);
-        return repository.save(usuario);
+        return salvo;
     }
 
     /**
@@ -268,7 +291,9 @@ public class UsuarioService {
      * @param id User ID
      */
     public void deletar(Long id) {
+        String email = repository.findById(id).map(Usuario::getEmail).orElse(null);
         repository.deleteById(id);
+        removerDoCache(email);
         log.info("[EXCLUSÃO] Usuário removido: ID {}", id);
     }
 
@@ -353,13 +378,77 @@ public class UsuarioService {
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado");
                 });
         usuario.setPerfilInvestidor(novoPerfil);
+        Usuario salvo = repository.save(usuario);
+        removerDoCache(email);
         log.info("[PERFIL] Perfil atualizado para: {}", email);
-        return repository.save(usuario);
+        return salvo;
+    }
+
+
+    /**
+     * Referência ao usuário do e-mail, montada a partir do cache.
+     * <p>
+     * Não é a entidade carregada: é uma instância nova e destacada com só id, e-mail e
+     * perfil (sem senha nem token), que serve como referência em consultas e associações.
+     * Quem precisar só do id ou do perfil usa {@link #buscarResumoPorEmail}; quem precisar
+     * alterar o usuário deve carregá-lo pelo repositório. As alterações invalidam a entrada
+     * depois do commit; entre réplicas, o TTL limita a defasagem.
+     * <p>
+     * Reference to the email's user, built from the cache. Not the loaded entity: a new
+     * detached instance with only id, email and profile (no password or token), meant as a
+     * reference in queries and associations. Callers that need only the id or the profile
+     * use {@link #buscarResumoPorEmail}; callers that modify the user must load it from the
+     * repository. Changes evict the entry after commit; across replicas, the TTL bounds
+     * staleness.
+     *
+     * @param email Email do usuário | User email
+     * @return Referência destacada e parcial | Detached, partial reference
+     * @throws RuntimeException Se usuário não encontrado | If user not found
+     */
+    public Usuario referenciaPorEmail(String email) {
+        return buscarResumoPorEmail(email).paraUsuario();
     }
 
+    /**
+     * Dados do usuário em cache, para quem só precisa de id, e-mail ou perfil.
+     * <p>
+     * Cached user data, for callers that only need id, email or profile.
+     */
+    public UsuarioResumo buscarResumoPorEmail(String email) {
+        Cache cache = cacheManager.getCache(CACHE_USUARIOS_POR_EMAIL);
+        UsuarioResumo resumo = cache != null ? cache.get(email, UsuarioResumo.class) : null;
+        if (resumo == null) {
+            resumo = repository.findByEmail(email)
+                    .map(UsuarioResumo::de)
+                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado: " + email));
+            if (cache != null) {
+                cache.put(email, resumo);
+            }
+        }
+        return resumo;
+    }
 
-    public Usuario findByEmail(String email) {
-        return repository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado: " + email));
+    /**
+     * Invalida a entrada do e-mail; dentro de uma transação, só depois do commit, para
+     * que uma leitura concorrente não volte a guardar o valor antigo.
+     * <p>
+     * Evicts the email entry; inside a transaction, only after commit, so that a
+     * concurrent read does not cache the old value again.
+     */
+    private void removerDoCache(String email) {
+        Cache cache = cacheManager.getCache(CACHE_USUARIOS_POR_EMAIL);
+        if (cache == null || email == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.evict(email);
+                }
+            });
+        } else {
+            cache.evict(email);
+        }
     }
-}
\ No newline at end of file
+}
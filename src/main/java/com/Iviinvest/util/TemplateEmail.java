@@ -0,0 +1,68 @@
+package com.Iviinvest.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Template de e-mail pré-compilado com um único marcador.
+ * <p>
+ * O arquivo é lido uma vez e dividido em prefixo e sufixo ao redor do marcador;
+ * renderizar é apenas concatenar três strings, sem regex nem parsing por chamada.
+ * Valores fixos de configuração (como a validade) são preenchidos na carga.
+ * <p>
+ * Precompiled email template with a single placeholder.
+ * The file is read once and split into prefix and suffix around the placeholder;
+ * rendering is a plain three-string concatenation, with no regex or parsing per call.
+ * Fixed configuration values (such as the validity) are filled in at load time.
+ */
+public final class TemplateEmail {
+
+    private final String prefixo;
+    private final String sufixo;
+
+    private TemplateEmail(String prefixo, String sufixo) {
+        this.prefixo = prefixo;
+        this.sufixo = sufixo;
+    }
+
+    /**
+     * Carrega um template do classpath, preenchendo já os marcadores fixos.
+     *
+     * @param caminho Caminho no classpath | Classpath location
+     * @param marcador Marcador a ser substituído a cada envio | Placeholder replaced on every send
+     * @param fixos Marcadores preenchidos uma vez, na carga | Placeholders filled once, at load time
+     * @return Template pronto para uso | Ready-to-use template
+     */
+    public static TemplateEmail carregar(String caminho, String marcador, Map<String, String> fixos) {
+        try (InputStream in = TemplateEmail.class.getClassLoader().getResourceAsStream(caminho)) {
+            if (in == null) {
+                throw new IllegalStateException("Template não encontrado: " + caminho);
+            }
+            String conteudo = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            for (Map.Entry<String, String> fixo : fixos.entrySet()) {
+                if (!conteudo.contains(fixo.getKey())) {
+                    throw new IllegalStateException("Marcador " + fixo.getKey() + " ausente em " + caminho);
+                }
+                conteudo = conteudo.replace(fixo.getKey(), fixo.getValue());
+            }
+            int posicao = conteudo.indexOf(marcador);
+            if (posicao < 0) {
+                throw new IllegalStateException("Marcador " + marcador + " ausente em " + caminho);
+            }
+            return new TemplateEmail(conteudo.substring(0, posicao), conteudo.substring(posicao + marcador.length()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler template " + caminho, e);
+        }
+    }
+
+    public String renderizar(String valor) {
+        return new StringBuilder(prefixo.length() + valor.length() + sufixo.length())
+                .append(prefixo)
+                .append(valor)
+                .append(sufixo)
+                .toString();
+    }
+}
@@ -0,0 +1,68 @@
+-- Esquema anterior às mudanças de desempenho, como o Hibernate o criava (ddl-auto=update).
+-- Bancos de produção já existentes estão nesta versão: aplicar só em banco novo.
+-- Schema before the performance changes, as Hibernate created it (ddl-auto=update).
+-- Existing production databases are at this version: apply only to a new database.
+
+CREATE TABLE usuarios (
+    id                NUMBER(19,0) GENERATED BY DEFAULT AS IDENTITY,
+    email             VARCHAR2(255 CHAR) NOT NULL,
+    perfil_investidor VARCHAR2(255 CHAR),
+    senha_hash        VARCHAR2(255 CHAR) NOT NULL,
+    token_reset       VARCHAR2(255 CHAR),
+    CONSTRAINT pk_usuarios PRIMARY KEY (id),
+    CONSTRAINT uk_usuarios_email UNIQUE (email)
+);
+
+CREATE TABLE objetivos_usuarios (
+    id               NUMBER(19,0) GENERATED BY DEFAULT AS IDENTITY,
+    usuario_id       NUMBER(19,0) NOT NULL,
+    objetivo         VARCHAR2(255 CHAR),
+    prazo            NUMBER(10,0) NOT NULL CHECK (prazo >= 1),
+    valor_inicial    FLOAT(53),
+    aporte_mensal    FLOAT(53),
+    patrimonio_atual FLOAT(53),
+    liquidez         VARCHAR2(255 CHAR),
+    setores_evitar   VARCHAR2(1000 CHAR),
+    data_criacao     DATE NOT NULL,
+    CONSTRAINT pk_objetivos_usuarios PRIMARY KEY (id),
+    CONSTRAINT fk_objetivos_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios
+);
+
+CREATE TABLE carteiras_usuarios (
+    id                         NUMBER(19,0) GENERATED BY DEFAULT AS IDENTITY,
+    usuario_id                 NUMBER(19,0) NOT NULL,
+    objetivo_id                NUMBER(19,0) NOT NULL,
+    carteira_conservadora_json CLOB,
+    carteira_agressiva_json    CLOB,
+    carteira_selecionada       VARCHAR2(255 CHAR),
+    CONSTRAINT pk_carteiras_usuarios PRIMARY KEY (id),
+    CONSTRAINT uk_carteiras_usuarios_objetivo UNIQUE (objetivo_id),
+    CONSTRAINT fk_carteiras_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios,
+    CONSTRAINT fk_carteiras_objetivo FOREIGN KEY (objetivo_id) REFERENCES objetivos_usuarios
+);
+
+CREATE TABLE carteira_percentual (
+    id            NUMBER(19,0) GENERATED BY DEFAULT AS IDENTITY,
+    usuario_id    NUMBER(19,0),
+    objetivo_id   NUMBER(19,0),
+    tipo_carteira VARCHAR2(255 CHAR) NOT NULL,
+    segmento      VARCHAR2(255 CHAR),
+    percentual    NUMBER(10,0),
+    CONSTRAINT pk_carteira_percentual PRIMARY KEY (id),
+    CONSTRAINT fk_percentual_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios,
+    CONSTRAINT fk_percentual_objetivo FOREIGN KEY (objetivo_id) REFERENCES objetivos_usuarios
+);
+
+CREATE TABLE carteira_ativo (
+    id               NUMBER(19,0) GENERATED BY DEFAULT AS IDENTITY,
+    usuario_id       NUMBER(19,0),
+    objetivo_id      NUMBER(19,0),
+    tipo_carteira    VARCHAR2(255 CHAR) NOT NULL,
+    segmento         VARCHAR2(255 CHAR),
+    nome_ativo       VARCHAR2(255 CHAR),
+    preco_unitario   FLOAT(53) NOT NULL,
+    quantidade_cotas NUMBER(10,0) NOT NULL,
+    CONSTRAINT pk_carteira_ativo PRIMARY KEY (id),
+    CONSTRAINT fk_ativo_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios,
+    CONSTRAINT fk_ativo_objetivo FOREIGN KEY (objetivo_id) REFERENCES objetivos_usuarios
+);
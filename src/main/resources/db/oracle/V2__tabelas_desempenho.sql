@@ -0,0 +1,72 @@
+-- Tabelas, colunas e índices das mudanças de desempenho. Aplicar, revisado, antes de
+-- subir a versão que os usa: em produção o Hibernate só valida o esquema.
+-- As colunas legadas (objetivos_usuarios.setores_evitar e os JSON de carteiras_usuarios)
+-- ficam; SetoresEvitarMigracao move os setores na inicialização.
+-- Tables, columns and indexes of the performance changes. Apply, reviewed, before
+-- deploying the version that uses them: in production Hibernate only validates the schema.
+-- The legacy columns (objetivos_usuarios.setores_evitar and the carteiras_usuarios JSON)
+-- stay; SetoresEvitarMigracao moves the sectors at startup.
+
+-- Códigos 2FA compartilhados entre réplicas | 2FA codes shared between replicas
+CREATE TABLE two_factor_codes (
+    email       VARCHAR2(255 CHAR) NOT NULL,
+    codigo_hash VARCHAR2(64 CHAR) NOT NULL,
+    expira_em   TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_two_factor_codes PRIMARY KEY (email)
+);
+CREATE INDEX idx_two_factor_codes_expira_em ON two_factor_codes (expira_em);
+
+-- Fila de e-mails | Email outbox
+CREATE TABLE email_outbox (
+    id                NUMBER(19,0) GENERATED BY DEFAULT AS IDENTITY,
+    destinatario      VARCHAR2(255 CHAR) NOT NULL,
+    assunto           VARCHAR2(255 CHAR) NOT NULL,
+    corpo_texto       VARCHAR2(4000 CHAR) NOT NULL,
+    corpo_html        VARCHAR2(4000 CHAR),
+    status            VARCHAR2(20 CHAR) NOT NULL,
+    tentativas        NUMBER(10,0) NOT NULL,
+    proxima_tentativa TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    criado_em         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    ultimo_erro       VARCHAR2(1000 CHAR),
+    versao            NUMBER(19,0),
+    CONSTRAINT pk_email_outbox PRIMARY KEY (id)
+);
+CREATE INDEX idx_email_outbox_pendentes ON email_outbox (status, proxima_tentativa);
+
+-- Setores evitados em tabela própria | Avoided sectors in their own table
+CREATE TABLE objetivo_setores_evitar (
+    objetivo_id NUMBER(19,0) NOT NULL,
+    posicao     NUMBER(10,0) NOT NULL,
+    setor       VARCHAR2(100 CHAR) NOT NULL,
+    CONSTRAINT pk_objetivo_setores_evitar PRIMARY KEY (objetivo_id, posicao),
+    CONSTRAINT fk_setores_objetivo FOREIGN KEY (objetivo_id) REFERENCES objetivos_usuarios
+);
+CREATE INDEX idx_setor_evitado ON objetivo_setores_evitar (setor);
+
+-- Histórico por usuário paginado por id | Per-user history paginated by id
+CREATE INDEX idx_objetivo_usuario_id ON objetivos_usuarios (usuario_id, id);
+
+-- Versão otimista da carteira | Optimistic portfolio version
+ALTER TABLE carteiras_usuarios ADD versao NUMBER(19,0) DEFAULT 0 NOT NULL;
+
+-- Tickers normalizados e itens da carteira | Normalized tickers and portfolio items
+CREATE TABLE tickers (
+    id     NUMBER(10,0) GENERATED BY DEFAULT AS IDENTITY,
+    codigo VARCHAR2(20 CHAR) NOT NULL,
+    CONSTRAINT pk_tickers PRIMARY KEY (id),
+    CONSTRAINT uk_tickers_codigo UNIQUE (codigo)
+);
+
+CREATE TABLE carteira_usuario_itens (
+    id                  NUMBER(19,0) GENERATED BY DEFAULT AS IDENTITY,
+    carteira_usuario_id NUMBER(19,0) NOT NULL,
+    tipo                NUMBER(3,0) NOT NULL CHECK (tipo BETWEEN 0 AND 1),
+    segmento            NUMBER(3,0) NOT NULL CHECK (segmento BETWEEN 0 AND 3),
+    posicao             NUMBER(5,0) NOT NULL,
+    ticker_id           NUMBER(10,0) NOT NULL,
+    CONSTRAINT pk_carteira_usuario_itens PRIMARY KEY (id),
+    CONSTRAINT fk_itens_carteira FOREIGN KEY (carteira_usuario_id) REFERENCES carteiras_usuarios,
+    CONSTRAINT fk_itens_ticker FOREIGN KEY (ticker_id) REFERENCES tickers
+);
+CREATE INDEX idx_item_carteira ON carteira_usuario_itens (carteira_usuario_id);
+CREATE INDEX idx_item_ticker ON carteira_usuario_itens (ticker_id);
@@ -0,0 +1,9 @@
+-- Troca a chave única de carteiras_usuarios.objetivo_id, criada com nome gerado, por uma
+-- com nome fixo: CarteiraOperacaoService reconhece o conflito de geração por esse nome.
+-- Sintaxe só do Oracle (DROP UNIQUE por coluna), por isso separado do V2.
+-- Replaces the unique key on carteiras_usuarios.objetivo_id, created with a generated
+-- name, with one with a fixed name: CarteiraOperacaoService recognises the generation
+-- conflict by that name. Oracle-only syntax (DROP UNIQUE by column), hence apart from V2.
+
+ALTER TABLE carteiras_usuarios DROP UNIQUE (objetivo_id);
+ALTER TABLE carteiras_usuarios ADD CONSTRAINT uk_carteira_objetivo UNIQUE (objetivo_id);
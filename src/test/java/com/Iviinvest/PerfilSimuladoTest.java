@@ -0,0 +1,84 @@
+package com.Iviinvest;
+
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.service.IAService;
+import com.Iviinvest.service.PrecoAtivoService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Perfil "perf" de ponta a ponta: IA e cotações passam pelo servidor simulado, sem rede.
+ * Latências zeradas e sem erros para o teste ser rápido e determinístico.
+ */
+@SpringBootTest(properties = {
+        "simulado.openai.latencia.mediana-ms=0",
+        "simulado.openai.latencia.p99-ms=0",
+        "simulado.openai.taxa-erro=0",
+        "simulado.brapi.latencia.mediana-ms=0",
+        "simulado.brapi.latencia.p99-ms=0",
+        "simulado.brapi.taxa-erro=0",
+        "ia.especulacao.habilitada=false"
+})
+@ActiveProfiles("perf")
+public class PerfilSimuladoTest {
+
+    @Autowired
+    private IAService iaService;
+
+    @Autowired
+    private PrecoAtivoService precoAtivoService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void portaLivre(DynamicPropertyRegistry registry) throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            int porta = socket.getLocalPort();
+            registry.add("simulado.porta", () -> porta);
+        }
+    }
+
+    @Test
+    void deveGerarCarteirasPeloServidorSimulado() {
+        // Arrange
+        ObjetivoUsuario objetivo = new ObjetivoUsuario();
+        objetivo.setObjetivo("Aposentadoria");
+        objetivo.setPrazo(20);
+        objetivo.setLiquidez("baixa");
+        objetivo.setValorInicial(50_000.0);
+        objetivo.setAporteMensal(1_500.0);
+        objetivo.setPatrimonioAtual(120_000.0);
+        objetivo.setSetoresEvitar(List.of("tabaco"));
+
+        // Act
+        JSONObject distribuicao = iaService.gerarDistribuicao(objetivo, true);
+        JSONObject ativos = iaService.gerarAtivos(objetivo, distribuicao);
+
+        // Assert: respostas simuladas (e não a alocação local), já sanitizadas
+        assertEquals(60, distribuicao.getJSONObject("conservadora").getInt("rendaFixa"));
+        assertTrue(ativos.getJSONObject("agressiva").getJSONArray("acoes").toList().contains("PRIO3"));
+        assertTrue(meterRegistry.counter("ia.tokens", "rota", "ativos", "tipo", "prompt").count() > 0);
+    }
+
+    @Test
+    void deveBuscarCotacaoNoServidorSimulado() {
+        // Act
+        double preco = precoAtivoService.buscarPreco("PETR4");
+
+        // Assert
+        assertTrue(preco >= 5, "preço " + preco);
+    }
+}
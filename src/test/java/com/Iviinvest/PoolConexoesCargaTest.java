@@ -0,0 +1,173 @@
+package com.Iviinvest;
+
+import com.Iviinvest.model.CarteiraPercentual;
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.Usuario;
+import com.Iviinvest.repository.CarteiraPercentualRepository;
+import com.Iviinvest.repository.ObjetivoUsuarioRepository;
+import com.Iviinvest.repository.UsuarioRepository;
+import com.Iviinvest.service.ObjetivoUsuarioService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Harness de carga do perfil de produção: usa as configurações de pool, timeouts e
+ * open-in-view do perfil "prod", trocando o Oracle por um H2 em memória no modo Oracle.
+ * <p>
+ * A "chamada à IA" é simulada com uma espera fixa.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:carga;MODE=Oracle;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "DB_POOL_MAX=5",
+        "DB_POOL_TIMEOUT_MS=500"
+})
+@ActiveProfiles("prod")
+public class PoolConexoesCargaTest {
+
+    private static final long LATENCIA_IA_MS = 800;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjetivoUsuarioService objetivoService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ObjetivoUsuarioRepository objetivoRepository;
+
+    @Autowired
+    private CarteiraPercentualRepository percentualRepository;
+
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        usuario = usuarioRepository.findByEmail("carga@teste.com").orElseGet(() -> {
+            Usuario u = new Usuario();
+            u.setEmail("carga@teste.com");
+            u.setSenhaHash("hash");
+            u = usuarioRepository.save(u);
+
+            ObjetivoUsuario o = new ObjetivoUsuario();
+            o.setUsuario(u);
+            o.setPrazo(10);
+            o.setSetoresEvitar(new ArrayList<>(List.of("Tabaco")));
+            objetivoRepository.save(o);
+            return u;
+        });
+    }
+
+    @Test
+    void deveAplicarConfiguracaoDoPoolDeProducao() {
+        HikariDataSource hikari = assertInstanceOf(HikariDataSource.class, dataSource);
+        assertEquals(5, hikari.getMaximumPoolSize());
+        assertEquals(5, hikari.getMinimumIdle());
+        assertEquals(500, hikari.getConnectionTimeout());
+        assertEquals(10_000, hikari.getLeakDetectionThreshold());
+        assertNotNull(meterRegistry.find("hikaricp.connections.usage").timer());
+    }
+
+    @Test
+    void deveAtenderCargaQuandoIaRodaForaDaTransacao() throws Exception {
+        // Arrange: 8x mais requisições simultâneas que conexões
+        int requisicoes = 40;
+        double timeoutsAntes = timeouts();
+
+        // Act
+        List<Throwable> erros = executar(requisicoes, () -> {
+            ObjetivoUsuario objetivo = objetivoService.buscarUltimoPorUsuario(usuario).orElseThrow();
+            objetivo.getSetoresEvitar().size();          // disponível sem open-in-view
+            Thread.sleep(LATENCIA_IA_MS);                 // chamada à IA sem conexão presa
+            CarteiraPercentual cp = new CarteiraPercentual();
+            cp.setUsuario(usuario);
+            cp.setObjetivo(objetivo);
+            cp.setTipoCarteira("conservadora");
+            cp.setSegmento("acoes");
+            cp.setPercentual(10);
+            percentualRepository.save(cp);
+            return null;
+        });
+
+        // Assert
+        assertTrue(erros.isEmpty(), () -> "Falhas sob carga: " + erros);
+        assertEquals(timeoutsAntes, timeouts());
+    }
+
+    @Test
+    void deveFalharRapidoQuandoIaRodaDentroDaTransacao() throws Exception {
+        // Arrange
+        double timeoutsAntes = timeouts();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // Act: cada requisição segura a conexão durante a "chamada à IA"
+        List<Throwable> erros = executar(10, () -> tx.execute(status -> {
+            objetivoRepository.findFirstByUsuarioOrderByIdDesc(usuario);
+            try {
+                Thread.sleep(LATENCIA_IA_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+
+        // Assert: o excesso falha em ~500ms em vez de empilhar
+        assertFalse(erros.isEmpty());
+        assertTrue(timeouts() > timeoutsAntes);
+    }
+
+    private double timeouts() {
+        Counter counter = meterRegistry.find("hikaricp.connections.timeout").counter();
+        return counter != null ? counter.count() : 0.0;
+    }
+
+    private List<Throwable> executar(int requisicoes, Callable<?> tarefa) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(requisicoes);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int i = 0; i < requisicoes; i++) {
+            futuros.add(executor.submit(tarefa));
+        }
+        List<Throwable> erros = new ArrayList<>();
+        for (Future<?> futuro : futuros) {
+            try {
+                futuro.get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                erros.add(e.getCause() != null ? e.getCause() : e);
+            }
+        }
+        executor.shutdown();
+        return erros;
+    }
+}
@@ -0,0 +1,198 @@
+package com.Iviinvest.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import jakarta.servlet.http.Cookie;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dois H2 em memória fazem o papel de primário e réplica; cada um tem uma linha
+ * diferente na tabela {@code origem}, que revela de onde veio a leitura.
+ */
+public class RoteamentoDataSourceTest {
+
+    private static final String SEGREDO = "segredo-compartilhado";
+
+    private DataSource dsPrimario;
+    private DataSource dsReplica;
+    private JdbcTemplate primario;
+    private JdbcTemplate replica;
+    private JdbcTemplate roteado;
+    private TransactionTemplate escrita;
+    private TransactionTemplate leitura;
+
+    @BeforeEach
+    void setUp() {
+        dsPrimario = h2("primario");
+        dsReplica = h2("replica");
+        primario = new JdbcTemplate(dsPrimario);
+        replica = new JdbcTemplate(dsReplica);
+        for (JdbcTemplate banco : List.of(primario, replica)) {
+            banco.execute("CREATE TABLE IF NOT EXISTS origem (nome VARCHAR(20))");
+            banco.execute("DELETE FROM origem");
+        }
+        primario.update("INSERT INTO origem VALUES ('primario')");
+        replica.update("INSERT INTO origem VALUES ('replica')");
+
+        usarInstancia(new ConsistenciaLeitura(Duration.ofMinutes(1), SEGREDO));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void deveLerDaReplicaEmTransacaoSomenteLeitura() {
+        // Arrange
+        autenticar("leitor@teste.com");
+
+        // Act
+        String lido = leitura.execute(status -> origem());
+        String escrito = escrita.execute(status -> origem());
+
+        // Assert
+        assertEquals("replica", lido);
+        assertEquals("primario", escrito);
+    }
+
+    @Test
+    void deveLerDoPrimarioAposEscritaDoProprioUsuario() {
+        // Arrange
+        autenticar("autor@teste.com");
+        escrita.executeWithoutResult(status -> roteado.update("INSERT INTO origem VALUES ('nova')"));
+
+        // Act
+        String autor = leitura.execute(status -> origem());
+        autenticar("outro@teste.com");
+        String outro = leitura.execute(status -> origem());
+
+        // Assert
+        assertEquals("primario", autor);
+        assertEquals("replica", outro);
+        assertEquals(2, primario.queryForObject("SELECT COUNT(*) FROM origem", Integer.class));
+        assertEquals(1, replica.queryForObject("SELECT COUNT(*) FROM origem", Integer.class));
+    }
+
+    @Test
+    void deveManterFluxosAnonimosNoPrimario() {
+        // Act
+        String lido = leitura.execute(status -> origem());
+
+        // Assert
+        assertEquals("primario", lido);
+    }
+
+    @Test
+    void deveLerDoPrimarioEmOutraInstanciaComCookieDaEscrita() {
+        // Arrange: a escrita acontece na instância A
+        autenticar("autor@teste.com");
+        MockHttpServletResponse respostaEscrita = requisicao();
+        escrita.executeWithoutResult(status -> roteado.update("INSERT INTO origem VALUES ('nova')"));
+        Cookie cookie = respostaEscrita.getCookie(ConsistenciaLeitura.COOKIE);
+
+        // Act: a leitura seguinte cai na instância B, que nunca viu a escrita
+        usarInstancia(new ConsistenciaLeitura(Duration.ofMinutes(1), SEGREDO));
+        requisicao(cookie);
+        String comCookie = leitura.execute(status -> origem());
+        requisicao();
+        String semCookie = leitura.execute(status -> origem());
+
+        // Assert
+        assertNotNull(cookie);
+        assertTrue(cookie.isHttpOnly());
+        assertEquals("primario", comCookie);
+        assertEquals("replica", semCookie);
+    }
+
+    @Test
+    void deveIgnorarCookieAdulteradoDeOutroUsuarioOuVencido() {
+        // Arrange
+        Instant agora = Instant.parse("2026-01-01T12:00:00Z");
+        ConsistenciaLeitura instanciaA = new ConsistenciaLeitura(Duration.ofSeconds(5), SEGREDO,
+                Clock.fixed(agora, ZoneOffset.UTC));
+        usarInstancia(instanciaA);
+        autenticar("autor@teste.com");
+        MockHttpServletResponse resposta = requisicao();
+        escrita.executeWithoutResult(status -> roteado.update("INSERT INTO origem VALUES ('nova')"));
+        Cookie valido = resposta.getCookie(ConsistenciaLeitura.COOKIE);
+        Cookie adulterado = new Cookie(ConsistenciaLeitura.COOKIE,
+                (agora.toEpochMilli() + 1) + valido.getValue().substring(valido.getValue().indexOf('.')));
+
+        // Act
+        usarInstancia(new ConsistenciaLeitura(Duration.ofSeconds(5), SEGREDO, Clock.fixed(agora, ZoneOffset.UTC)));
+        requisicao(adulterado);
+        String comAdulterado = leitura.execute(status -> origem());
+        autenticar("outro@teste.com");
+        requisicao(valido);
+        String deOutroUsuario = leitura.execute(status -> origem());
+        autenticar("autor@teste.com");
+        usarInstancia(new ConsistenciaLeitura(Duration.ofSeconds(5), SEGREDO,
+                Clock.fixed(agora.plusSeconds(6), ZoneOffset.UTC)));
+        requisicao(valido);
+        String vencido = leitura.execute(status -> origem());
+
+        // Assert
+        assertEquals("replica", comAdulterado);
+        assertEquals("replica", deOutroUsuario);
+        assertEquals("replica", vencido);
+    }
+
+    private void usarInstancia(ConsistenciaLeitura consistencia) {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new RoteamentoDataSource(dsPrimario, dsReplica, consistencia));
+        DataSourceTransactionManager transacoes = new DataSourceTransactionManager(dataSource);
+        roteado = new JdbcTemplate(dataSource);
+        escrita = new TransactionTemplate(transacoes);
+        leitura = new TransactionTemplate(transacoes);
+        leitura.setReadOnly(true);
+    }
+
+    private static MockHttpServletResponse requisicao(Cookie... cookies) {
+        MockHttpServletRequest requisicao = new MockHttpServletRequest();
+        if (cookies.length > 0) {
+            requisicao.setCookies(cookies);
+        }
+        MockHttpServletResponse resposta = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(requisicao, resposta));
+        return resposta;
+    }
+
+    private String origem() {
+        return roteado.queryForObject("SELECT MIN(nome) FROM origem WHERE nome <> 'nova'", String.class);
+    }
+
+    private static void autenticar(String email) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+
+    private static DataSource h2(String nome) {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:roteamento-" + nome + ";DB_CLOSE_DELAY=-1");
+        ds.setUser("sa");
+        return ds;
+    }
+}
@@ -0,0 +1,53 @@
+package com.Iviinvest.dto;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObjetivoUsuarioDTOTest {
+
+    private static ValidatorFactory fabrica;
+    private static Validator validator;
+
+    @BeforeAll
+    static void setUp() {
+        fabrica = Validation.buildDefaultValidatorFactory();
+        validator = fabrica.getValidator();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        fabrica.close();
+    }
+
+    @Test
+    void deveAceitarSetoresDentroDoLimiteDaColuna() {
+        // Arrange
+        ObjetivoUsuarioDTO dto = new ObjetivoUsuarioDTO();
+        dto.setSetoresEvitar(List.of("Criptomoedas", "x".repeat(100)));
+
+        // Act + Assert
+        assertTrue(validator.validate(dto).isEmpty());
+    }
+
+    @Test
+    void deveRecusarSetorNuloOuMaiorQueAColuna() {
+        // Arrange
+        ObjetivoUsuarioDTO nulo = new ObjetivoUsuarioDTO();
+        nulo.setSetoresEvitar(Arrays.asList("Criptomoedas", null));
+        ObjetivoUsuarioDTO longo = new ObjetivoUsuarioDTO();
+        longo.setSetoresEvitar(List.of("x".repeat(101)));
+
+        // Act + Assert
+        assertEquals(1, validator.validate(nulo).size());
+        assertEquals(1, validator.validate(longo).size());
+    }
+}
@@ -0,0 +1,37 @@
+package com.Iviinvest.perf;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Mede os bytes alocados pela thread atual por chamada, para os benchmarks de alocação
+ * marcados com {@code @Tag("desempenho")}.
+ * <p>
+ * Measures the bytes allocated by the current thread per call, for the allocation
+ * benchmarks tagged {@code @Tag("desempenho")}.
+ */
+public final class MedidorAlocacao {
+
+    private MedidorAlocacao() {
+    }
+
+    /**
+     * Aquece com o mesmo número de chamadas e devolve a média de bytes por chamada.
+     * <p>
+     * Warms up with the same number of calls and returns the average bytes per call.
+     */
+    public static long bytesPorChamada(int iteracoes, Supplier<?> chamada) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < iteracoes; i++) {
+            if (chamada.get() == null) {
+                throw new IllegalStateException("Chamada medida devolveu null");
+            }
+        }
+        long antes = mx.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < iteracoes; i++) {
+            chamada.get();
+        }
+        return (mx.getThreadAllocatedBytes(thread) - antes) / iteracoes;
+    }
+}
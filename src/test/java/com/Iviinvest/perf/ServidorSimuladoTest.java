@@ -0,0 +1,102 @@
+package com.Iviinvest.perf;
+
+import com.Iviinvest.perf.ServidorSimulado.Cenario;
+import com.Iviinvest.perf.ServidorSimulado.Latencia;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServidorSimuladoTest {
+
+    private static final Cenario SEM_ESPERA = new Cenario(new Latencia(0, 0), 0.0, 500, 0);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ServidorSimulado servidor;
+
+    @AfterEach
+    void tearDown() {
+        if (servidor != null) {
+            servidor.close();
+        }
+    }
+
+    @Test
+    void deveSortearLatenciasReproduziveisComMedianaEP99Configurados() {
+        // Arrange
+        Latencia latencia = new Latencia(1200, 6000);
+
+        // Act
+        long[] primeira = sortear(latencia, new Random(42), 20_000);
+        long[] segunda = sortear(latencia, new Random(42), 20_000);
+
+        // Assert
+        assertArrayEquals(primeira, segunda);
+        Arrays.sort(primeira);
+        assertEquals(1200, primeira[10_000], 60);
+        assertEquals(6000, primeira[19_800], 600);
+    }
+
+    @Test
+    void deveEscolherARespostaPeloPromptEInformarConsumo() throws Exception {
+        // Arrange
+        servidor = new ServidorSimulado(0, 42, SEM_ESPERA, SEM_ESPERA).iniciar();
+        String corpo = new JSONObject().put("model", "gpt-4o-mini")
+                .put("messages", new org.json.JSONArray().put(new JSONObject()
+                        .put("role", "user").put("content", "Responda com a chave carteira")))
+                .toString();
+
+        // Act
+        HttpResponse<String> resposta = post("/v1/chat/completions", corpo);
+
+        // Assert
+        assertEquals(200, resposta.statusCode());
+        JSONObject json = new JSONObject(resposta.body());
+        assertTrue(json.getJSONArray("choices").getJSONObject(0).getJSONObject("message")
+                .getString("content").contains("\"carteira\""));
+        assertTrue(json.getJSONObject("usage").getInt("prompt_tokens") > 0);
+    }
+
+    @Test
+    void deveFalharComOStatusConfiguradoEServirCotacao() throws Exception {
+        // Arrange: OpenAI sempre falha, brapi nunca
+        servidor = new ServidorSimulado(0, 42, new Cenario(new Latencia(0, 0), 1.0, 429, 0), SEM_ESPERA).iniciar();
+
+        // Act
+        HttpResponse<String> ia = post("/v1/chat/completions", "{\"messages\":[]}");
+        HttpResponse<String> cotacao = client.send(HttpRequest.newBuilder(uri("/api/quote/PETR4")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Assert
+        assertEquals(429, ia.statusCode());
+        JSONObject resultado = new JSONObject(cotacao.body()).getJSONArray("results").getJSONObject(0);
+        assertEquals("PETR4", resultado.getString("symbol"));
+        assertTrue(resultado.getDouble("regularMarketPrice") >= 5);
+    }
+
+    private static long[] sortear(Latencia latencia, Random random, int quantidade) {
+        return LongStream.range(0, quantidade).map(i -> latencia.sortear(random)).toArray();
+    }
+
+    private HttpResponse<String> post(String caminho, String corpo) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(caminho))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String caminho) {
+        return URI.create("http://localhost:" + servidor.porta() + caminho);
+    }
+}
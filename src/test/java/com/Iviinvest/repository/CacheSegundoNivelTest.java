@@ -0,0 +1,111 @@
+package com.Iviinvest.repository;
+
+import com.Iviinvest.model.CarteiraPercentual;
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.Ticker;
+import com.Iviinvest.model.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cada chamada ao repositório roda em sua própria transação, como nos endpoints.
+ * O cache de segundo nível é local a cada réplica: só o Ticker (imutável) entra nele.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CacheSegundoNivelTest {
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ObjetivoUsuarioRepository objetivoRepository;
+
+    @Autowired
+    private CarteiraPercentualRepository percentualRepository;
+
+    @Autowired
+    private TickerRepository tickerRepository;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private Statistics estatisticas;
+    private Usuario usuario;
+    private ObjetivoUsuario objetivo;
+
+    @BeforeEach
+    void setUp() {
+        usuario = new Usuario();
+        usuario.setEmail("cache@teste.com");
+        usuario.setSenhaHash("hash");
+        usuario = usuarioRepository.save(usuario);
+
+        objetivo = new ObjetivoUsuario();
+        objetivo.setUsuario(usuario);
+        objetivo.setObjetivo("Aposentadoria");
+        objetivo.setPrazo(10);
+        objetivo = objetivoRepository.save(objetivo);
+
+        CarteiraPercentual cp = new CarteiraPercentual();
+        cp.setUsuario(usuario);
+        cp.setObjetivo(objetivo);
+        cp.setTipoCarteira("conservadora");
+        cp.setSegmento("rendaFixa");
+        cp.setPercentual(70);
+        percentualRepository.save(cp);
+
+        emf.getCache().evictAll();
+        estatisticas = emf.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        percentualRepository.deleteAll();
+        objetivoRepository.deleteAll();
+        usuarioRepository.deleteAll();
+        tickerRepository.deleteAll();
+    }
+
+    @Test
+    void deveServirTickerDoCache() {
+        // Arrange
+        Integer id = tickerRepository.save(new Ticker("WEGE3")).getId();
+        emf.getCache().evictAll();
+        tickerRepository.findById(id);
+        long consultasAntes = estatisticas.getPrepareStatementCount();
+
+        // Act
+        Ticker emCache = tickerRepository.findById(id).orElseThrow();
+
+        // Assert
+        assertEquals("WEGE3", emCache.getCodigo());
+        assertEquals(0, estatisticas.getPrepareStatementCount() - consultasAntes);
+        assertTrue(estatisticas.getDomainDataRegionStatistics("tickers").getHitCount() >= 1);
+    }
+
+    @Test
+    void naoDeveGuardarObjetivosNemPercentuaisNoCache() {
+        // Act
+        objetivoRepository.findById(objetivo.getId());
+        objetivoRepository.findFirstByUsuarioOrderByIdDesc(usuario);
+        percentualRepository.findByUsuarioIdAndObjetivoIdAndTipoCarteira(usuario.getId(), objetivo.getId(), "conservadora");
+        percentualRepository.findByUsuarioIdAndObjetivoIdAndTipoCarteira(usuario.getId(), objetivo.getId(), "conservadora");
+
+        // Assert
+        assertFalse(emf.getCache().contains(ObjetivoUsuario.class, objetivo.getId()));
+        assertEquals(0, estatisticas.getSecondLevelCachePutCount());
+        assertEquals(0, estatisticas.getQueryCachePutCount());
+    }
+}
@@ -0,0 +1,36 @@
+package com.Iviinvest.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Aplica os scripts de db/oracle num H2 em modo Oracle e sobe o Hibernate com
+ * ddl-auto=validate, como em produção: entidade sem tabela ou coluna no script falha aqui.
+ * O V3 usa sintaxe só do Oracle e só troca o nome de uma chave, que o validate não confere.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:esquema-oracle;MODE=Oracle;DB_CLOSE_DELAY=-1",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:db/h2-dicionario-oracle.sql,"
+                + "classpath:db/oracle/V1__esquema_base.sql,classpath:db/oracle/V2__tabelas_desempenho.sql,"
+                + "classpath:db/h2-ajustes-oracle.sql",
+        "spring.jpa.database-platform=org.hibernate.dialect.OracleDialect",
+        "spring.jpa.hibernate.ddl-auto=validate"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class EsquemaOracleTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void deveValidarAsEntidadesContraOsScripts() {
+        // Assert: o contexto subiu com validate e as tabelas novas existem
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM carteira_usuario_itens", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM two_factor_codes", Integer.class));
+    }
+}
@@ -0,0 +1,163 @@
+package com.Iviinvest.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitFilterTest {
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RateLimitFilter(true, 3, 60, 2, 300, 1, 900, 2, 60, "10.1.0.0/16, 127.0.0.1");
+    }
+
+    private MockHttpServletResponse enviar(String uri, String ip, String corpo) throws Exception {
+        return enviar(uri, ip, null, corpo);
+    }
+
+    private MockHttpServletResponse enviar(String uri, String ip, String encaminhado, String corpo) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setRemoteAddr(ip);
+        if (encaminhado != null) {
+            request.addHeader("X-Forwarded-For", encaminhado);
+        }
+        request.setContentType("application/json");
+        request.setContent(corpo.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void deveBloquearIpAposEsgotarOrcamentoDoLogin() throws Exception {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, enviar("/api/v1/auth/login", "10.0.0.1", "{\"email\":\"u" + i + "@teste.com\"}").getStatus());
+        }
+
+        // Act
+        MockHttpServletResponse bloqueada = enviar("/api/v1/auth/login", "10.0.0.1", "{\"email\":\"outro@teste.com\"}");
+        MockHttpServletResponse outroIp = enviar("/api/v1/auth/login", "10.0.0.2", "{\"email\":\"novo@teste.com\"}");
+
+        // Assert
+        assertEquals(429, bloqueada.getStatus());
+        assertNotNull(bloqueada.getHeader("Retry-After"));
+        assertTrue(Long.parseLong(bloqueada.getHeader("Retry-After")) >= 1);
+        assertTrue(bloqueada.getContentAsString().contains("TOO_MANY_REQUESTS"));
+        assertEquals(200, outroIp.getStatus());
+    }
+
+    @Test
+    void deveBloquearEmailMesmoVindoDeIpsDiferentes() throws Exception {
+        // Arrange
+        String corpo = "{\"email\":\"Alvo@Teste.com\"}";
+        assertEquals(200, enviar("/api/v1/auth/2fa/send", "10.0.0.1", corpo).getStatus());
+        assertEquals(200, enviar("/api/v1/auth/2fa/send", "10.0.0.2", corpo).getStatus());
+
+        // Act
+        MockHttpServletResponse response = enviar("/api/v1/auth/2fa/send", "10.0.0.3", "{\"email\":\"alvo@teste.com\"}");
+
+        // Assert
+        assertEquals(429, response.getStatus());
+    }
+
+    @Test
+    void deveRepassarCorpoIntactoParaOController() throws Exception {
+        // Arrange
+        String corpo = "{\"email\":\"leitor@teste.com\",\"senha\":\"123\"}";
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/recover/token");
+        request.setContent(corpo.getBytes(StandardCharsets.UTF_8));
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Assert
+        byte[] repassado = chain.getRequest().getInputStream().readAllBytes();
+        assertEquals(corpo, new String(repassado, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void naoDeveLimitarRotasForaDaConfiguracao() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, enviar("/api/v1/auth/register", "10.0.0.9", "{}").getStatus());
+        }
+    }
+
+    @Test
+    void deveLimitarLoginFacial() throws Exception {
+        // Arrange
+        for (int i = 0; i < 2; i++) {
+            assertEquals(200, enviar("/api/v1/auth/login-face", "10.0.0.5", "{\"email\":\"f" + i + "@teste.com\"}").getStatus());
+        }
+
+        // Act
+        MockHttpServletResponse response = enviar("/api/v1/auth/login-face", "10.0.0.5", "{\"email\":\"f9@teste.com\"}");
+
+        // Assert
+        assertEquals(429, response.getStatus());
+    }
+
+    @Test
+    void deveUsarIpEncaminhadoSoPorProxyConfiavel() {
+        // Arrange
+        MockHttpServletRequest direto = requisicao("203.0.113.7", "198.51.100.1");
+        MockHttpServletRequest viaProxy = requisicao("10.1.2.3", "198.51.100.1");
+        MockHttpServletRequest forjado = requisicao("10.1.2.3", "1.1.1.1, 198.51.100.1, 10.1.9.9");
+        MockHttpServletRequest malformado = requisicao("10.1.2.3", "evil.example.com");
+
+        // Act / Assert
+        assertEquals("203.0.113.7", filter.ipCliente(direto));
+        assertEquals("198.51.100.1", filter.ipCliente(viaProxy));
+        assertEquals("198.51.100.1", filter.ipCliente(forjado));
+        assertEquals("10.1.2.3", filter.ipCliente(malformado));
+    }
+
+    @Test
+    void naoDeveEscaparDoLimiteTrocandoXForwardedFor() throws Exception {
+        // Arrange: cliente conectado direto, sem proxy confiável no caminho
+        for (int i = 0; i < 3; i++) {
+            enviar("/api/v1/auth/login", "203.0.113.7", "5.5.5." + i, "{\"email\":\"x" + i + "@teste.com\"}");
+        }
+
+        // Act
+        MockHttpServletResponse response = enviar("/api/v1/auth/login", "203.0.113.7", "5.5.5.99",
+                "{\"email\":\"y@teste.com\"}");
+
+        // Assert
+        assertEquals(429, response.getStatus());
+    }
+
+    @Test
+    void deveSepararClientesAtrasDoMesmoProxy() throws Exception {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            enviar("/api/v1/auth/login", "10.1.0.1", "198.51.100.1", "{\"email\":\"a" + i + "@teste.com\"}");
+        }
+
+        // Act
+        MockHttpServletResponse mesmoCliente = enviar("/api/v1/auth/login", "10.1.0.1", "198.51.100.1",
+                "{\"email\":\"b@teste.com\"}");
+        MockHttpServletResponse outroCliente = enviar("/api/v1/auth/login", "10.1.0.1", "198.51.100.2",
+                "{\"email\":\"c@teste.com\"}");
+
+        // Assert
+        assertEquals(429, mesmoCliente.getStatus());
+        assertEquals(200, outroCliente.getStatus());
+    }
+
+    private static MockHttpServletRequest requisicao(String ip, String encaminhado) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        request.setRemoteAddr(ip);
+        request.addHeader("X-Forwarded-For", encaminhado);
+        return request;
+    }
+}
@@ -0,0 +1,197 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.ObjetivoUsuario;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Casos de referência em {@code src/test/resources/alocacao/golden}: cada arquivo traz um
+ * perfil e a distribuição esperada, ou {@code null} quando o perfil deve ir para a IA.
+ */
+public class AlocacaoLocalServiceTest {
+
+    private SimpleMeterRegistry registry;
+    private AlocacaoLocalService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new SimpleMeterRegistry();
+        service = novoService(registry);
+    }
+
+    static AlocacaoLocalService novoService(SimpleMeterRegistry registry) throws IOException {
+        return new AlocacaoLocalService(new ClassPathResource("alocacao/regras.json"), registry);
+    }
+
+    static List<Resource> casosGolden() throws IOException {
+        return Arrays.asList(new PathMatchingResourcePatternResolver()
+                .getResources("classpath:alocacao/golden/*.json"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("casosGolden")
+    void deveReproduzirCasoGolden(Resource caso) throws IOException {
+        // Arrange
+        JSONObject golden = new JSONObject(caso.getContentAsString(StandardCharsets.UTF_8));
+        JSONObject esperado = golden.optJSONObject("esperado");
+
+        // Act
+        Optional<JSONObject> resultado = service.distribuirPorRegra(objetivo(golden.getJSONObject("perfil")));
+
+        // Assert
+        if (esperado == null) {
+            assertTrue(resultado.isEmpty(), "deveria ficar fora da cobertura: " + resultado);
+        } else {
+            assertTrue(resultado.isPresent(), "deveria estar coberto");
+            assertTrue(esperado.similar(resultado.get()), "esperado " + esperado + ", obtido " + resultado.get());
+        }
+    }
+
+    @Test
+    void deveSomarCemEmTodasAsFaixasMesmoForaDaCobertura() {
+        for (Integer prazo : Arrays.asList(null, 0, 1, 2, 5, 8, 30, 60)) {
+            for (String liquidez : Arrays.asList("Alta", "Média", "Baixa", "Imediata", null)) {
+                for (double valor : List.of(1_000.0, 50_000.0)) {
+                    // Act
+                    JSONObject distribuicao = service.distribuir(objetivo(prazo, liquidez, valor, List.of("Criptomoedas")));
+
+                    // Assert
+                    for (String tipo : List.of("conservadora", "agressiva")) {
+                        JSONObject pct = distribuicao.getJSONObject(tipo);
+                        int soma = pct.keySet().stream().mapToInt(pct::getInt).sum();
+                        assertEquals(100, soma, tipo + " prazo=" + prazo + " liquidez=" + liquidez);
+                        assertEquals(0, pct.getInt("cripto"));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void deveContarPerfisCobertosEForaDaCobertura() {
+        // Act
+        service.distribuirPorRegra(objetivo(5, "Baixa", 20_000.0, List.of()));
+        service.distribuirPorRegra(objetivo(5, "Alta", 20_000.0, List.of()));
+        service.distribuirPorRegra(objetivo(90, "Baixa", 20_000.0, List.of()));
+
+        // Assert
+        assertEquals(2.0, registry.get("alocacao.regras").tag("resultado", "coberto").counter().count());
+        assertEquals(1.0, registry.get("alocacao.regras").tag("resultado", "fora").counter().count());
+    }
+
+    @Test
+    void deveGerarUmAtivoPorSegmentoEmPatrimonioPequeno() {
+        // Arrange
+        ObjetivoUsuario pequeno = objetivo(10, "Baixa", 2_000.0, List.of());
+
+        // Act
+        JSONObject ativos = service.ativos(pequeno, service.distribuir(pequeno));
+
+        // Assert
+        assertFalse(ativos.getJSONObject("agressiva").has("cripto"));
+        assertEquals(1, ativos.getJSONObject("agressiva").getJSONArray("acoes").length());
+    }
+
+    @Test
+    void deveRejeitarTabelaQueNaoSomaCem() {
+        // Arrange
+        Resource invalida = new ByteArrayResource("""
+                {"faixasPrazo":[{"nome":"x","prazoMin":0,"prazoMax":5,
+                  "conservadora":{"rendaFixa":90},"agressiva":{"rendaFixa":100}}],
+                 "liquidez":{},"setoresEvitar":{},"ativosPorSegmento":1,
+                 "patrimonioPequeno":{"abaixoDe":0,"ativosPorSegmento":1,"ajustes":[]},
+                 "ativos":{"rendaFixa":["TESOURO-SELIC"]}}
+                """.getBytes(StandardCharsets.UTF_8));
+
+        // Act + Assert
+        assertThrows(IllegalStateException.class, () -> new AlocacaoLocalService(invalida, registry));
+    }
+
+    @Test
+    void deveRejeitarAjusteComSegmentoDesconhecido() {
+        // Arrange: "fii" em vez de "fiis"
+        Resource invalida = new ByteArrayResource("""
+                {"faixasPrazo":[{"nome":"x","prazoMin":0,"prazoMax":5,
+                  "conservadora":{"rendaFixa":100},"agressiva":{"rendaFixa":50,"fiis":50}}],
+                 "liquidez":{"Alta":[{"de":"fii","para":"rendaFixa","pontos":10}]},
+                 "setoresEvitar":{},"ativosPorSegmento":1,
+                 "patrimonioPequeno":{"abaixoDe":0,"ativosPorSegmento":1,"ajustes":[]},
+                 "ativos":{"rendaFixa":["TESOURO-SELIC"],"fiis":["HGLG11"]}}
+                """.getBytes(StandardCharsets.UTF_8));
+
+        // Act + Assert
+        assertThrows(IllegalStateException.class, () -> new AlocacaoLocalService(invalida, registry));
+    }
+
+    /**
+     * Benchmark simples: média por distribuição sobre os perfis golden, após aquecimento.
+     * Depende da máquina, então fica fora do {@code mvn test} padrão
+     * ({@code mvn test -Dgroups=desempenho -DexcludedGroups=} para rodar).
+     */
+    @Test
+    @Tag("desempenho")
+    void deveDistribuirEmMicrossegundos() throws IOException {
+        // Arrange
+        List<ObjetivoUsuario> perfis = new ArrayList<>();
+        for (Resource caso : casosGolden()) {
+            perfis.add(objetivo(new JSONObject(caso.getContentAsString(StandardCharsets.UTF_8)).getJSONObject("perfil")));
+        }
+        for (int i = 0; i < 20_000; i++) {
+            service.distribuirPorRegra(perfis.get(i % perfis.size()));
+        }
+
+        // Act
+        int iteracoes = 200_000;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteracoes; i++) {
+            service.distribuirPorRegra(perfis.get(i % perfis.size()));
+        }
+        double mediaMicros = (System.nanoTime() - inicio) / 1_000.0 / iteracoes;
+
+        // Assert: a chamada à IA leva segundos; o alvo aqui é ficar abaixo de 50µs mesmo em CI lento
+        assertTrue(mediaMicros < 50, "média de " + mediaMicros + "µs por distribuição");
+    }
+
+    private static ObjetivoUsuario objetivo(JSONObject perfil) {
+        List<String> setores = new ArrayList<>();
+        perfil.getJSONArray("setoresEvitar").forEach(s -> setores.add((String) s));
+        return objetivo(perfil.isNull("prazo") ? null : perfil.getInt("prazo"),
+                perfil.optString("liquidez", null),
+                perfil.getDouble("valorInicial"),
+                setores,
+                perfil.optDouble("patrimonioAtual", 0.0));
+    }
+
+    private static ObjetivoUsuario objetivo(Integer prazo, String liquidez, double valor, List<String> evitar) {
+        return objetivo(prazo, liquidez, valor, evitar, 0.0);
+    }
+
+    private static ObjetivoUsuario objetivo(Integer prazo, String liquidez, double valor, List<String> evitar,
+                                            double patrimonio) {
+        ObjetivoUsuario o = new ObjetivoUsuario();
+        o.setPrazo(prazo);
+        o.setLiquidez(liquidez);
+        o.setValorInicial(valor);
+        o.setPatrimonioAtual(patrimonio);
+        o.setSetoresEvitar(evitar);
+        return o;
+    }
+}
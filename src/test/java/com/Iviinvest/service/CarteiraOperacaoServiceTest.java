@@ -0,0 +1,239 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.CarteiraPercentual;
+import com.Iviinvest.model.CarteiraUsuario;
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.Usuario;
+import com.Iviinvest.repository.CarteiraAtivoRepository;
+import com.Iviinvest.repository.CarteiraPercentualRepository;
+import com.Iviinvest.repository.CarteiraUsuarioRepository;
+import com.Iviinvest.repository.ObjetivoUsuarioRepository;
+import com.Iviinvest.repository.UsuarioRepository;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Roda sem transação de teste para que cada fase de {@code gerarESalvar} faça commit
+ * como em produção.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ObjetivoUsuarioService.class, CarteiraUsuarioService.class, TickerService.class})
+public class CarteiraOperacaoServiceTest {
+
+    private static final String RESPOSTA_IA = """
+            {"carteira": {
+              "conservadora": {"rendaFixa": ["CDB-ITAU"], "acoes": ["WEGE3"]},
+              "agressiva": {"acoes": ["PETR4", "VALE3"]}
+            }}""";
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ObjetivoUsuarioRepository objetivoRepository;
+
+    @Autowired
+    private CarteiraPercentualRepository percentualRepository;
+
+    @Autowired
+    private CarteiraAtivoRepository ativoRepository;
+
+    @Autowired
+    private CarteiraUsuarioRepository carteiraRepository;
+
+    @Autowired
+    private ObjetivoUsuarioService objetivoService;
+
+    @Autowired
+    private CarteiraUsuarioService carteiraUsuarioService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoSpyBean
+    private TickerService tickerService;
+
+    private IAService iaService;
+    private CarteiraOperacaoService service;
+    private Usuario usuario;
+    private final List<Boolean> transacaoAtivaNasChamadasExternas = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        usuario = new Usuario();
+        usuario.setEmail("operacao@teste.com");
+        usuario.setSenhaHash("hash");
+        usuario = usuarioRepository.save(usuario);
+
+        ObjetivoUsuario objetivo = new ObjetivoUsuario();
+        objetivo.setUsuario(usuario);
+        objetivo.setObjetivo("Aposentadoria");
+        objetivo.setPrazo(10);
+        objetivo.setValorInicial(10000.0);
+        objetivo = objetivoRepository.save(objetivo);
+
+        percentual(objetivo, "conservadora", "acoes", 30);
+        percentual(objetivo, "agressiva", "acoes", 80);
+
+        UsuarioService usuarioService = mock(UsuarioService.class);
+        when(usuarioService.referenciaPorEmail(usuario.getEmail())).thenReturn(usuario);
+
+        PrecoAtivoService precoService = mock(PrecoAtivoService.class);
+        when(precoService.buscarPreco(anyString())).thenAnswer(inv -> {
+            registrarTransacao();
+            return 25.0;
+        });
+
+        doAnswer(inv -> {
+            registrarTransacao();
+            return inv.callRealMethod();
+        }).when(tickerService).resolver(any());
+
+        iaService = mock(IAService.class);
+        when(iaService.gerarAtivos(any(), any())).thenAnswer(inv -> {
+            registrarTransacao();
+            return new JSONObject(RESPOSTA_IA).getJSONObject("carteira");
+        });
+
+        service = new CarteiraOperacaoService(
+                usuarioService,
+                objetivoService,
+                percentualRepository,
+                iaService,
+                new CarteiraAtivoService(ativoRepository, precoService),
+                carteiraUsuarioService,
+                transactionTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        carteiraRepository.deleteAll();
+        ativoRepository.deleteAll();
+        percentualRepository.deleteAll();
+        objetivoRepository.deleteAll();
+        usuarioRepository.deleteAll();
+    }
+
+    @Test
+    void deveChamarIaCotacoesETickersForaDaTransacao() throws Exception {
+        // Act
+        var resultado = service.gerarESalvar(usuario.getEmail());
+
+        // Assert
+        assertEquals(List.of("PETR4", "VALE3"), resultado.get("agressiva").get("acoes"));
+        assertEquals(5, transacaoAtivaNasChamadasExternas.size());   // IA + 3 cotações + tickers
+        assertFalse(transacaoAtivaNasChamadasExternas.contains(true));
+        assertEquals(3, ativoRepository.count());
+        assertEquals(0L, carteiraRepository.findAll().get(0).getVersao());
+    }
+
+    @Test
+    void deveRecusarGeracaoQuandoCarteiraMudaDuranteChamadaDaIa() throws Exception {
+        // Arrange: primeira geração grava a carteira; na segunda, outra requisição
+        // altera a carteira enquanto a IA responde
+        service.gerarESalvar(usuario.getEmail());
+        when(iaService.gerarAtivos(any(), any())).thenAnswer(inv -> {
+            CarteiraUsuario concorrente = carteiraRepository.findAll().get(0);
+            concorrente.setCarteiraSelecionada("agressiva");
+            carteiraRepository.save(concorrente);
+            return new JSONObject(RESPOSTA_IA).getJSONObject("carteira");
+        });
+
+        // Act
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> service.gerarESalvar(usuario.getEmail()));
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, erro.getStatusCode());
+        assertEquals(3, ativoRepository.count());
+        assertEquals(1L, carteiraRepository.findAll().get(0).getVersao());
+    }
+
+    @Test
+    void deveRecusarTickerInvalidoDaIaSemConflitoNemGravacao() throws Exception {
+        // Arrange
+        when(iaService.gerarAtivos(any(), any())).thenReturn(new JSONObject(
+                "{\"conservadora\":{\"acoes\":[\"WEGE3\"]},\"agressiva\":{\"acoes\":[\"CODIGO-COM-MAIS-DE-VINTE\"]}}"));
+
+        // Act
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> service.gerarESalvar(usuario.getEmail()));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_GATEWAY, erro.getStatusCode());
+        assertEquals(0, ativoRepository.count());
+        assertEquals(0, carteiraRepository.count());
+    }
+
+    @Test
+    void deveRecusarSegmentoDesconhecidoDaIaSemGravacao() throws Exception {
+        // Arrange
+        when(iaService.gerarAtivos(any(), any())).thenReturn(new JSONObject(
+                "{\"conservadora\":{\"acoes\":[\"WEGE3\"]},\"agressiva\":{\"outros\":[\"PETR4\"]}}"));
+
+        // Act
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> service.gerarESalvar(usuario.getEmail()));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_GATEWAY, erro.getStatusCode());
+        assertEquals(0, ativoRepository.count());
+        assertEquals(0, carteiraRepository.count());
+    }
+
+    @Test
+    void deveReconhecerSomenteAChaveUnicaPorObjetivoComoConflito() throws Exception {
+        // Arrange: carteira já gravada para o objetivo
+        service.gerarESalvar(usuario.getEmail());
+        CarteiraUsuario existente = carteiraRepository.findAll().get(0);
+        CarteiraUsuario duplicada = new CarteiraUsuario();
+        duplicada.setUsuario(usuario);
+        duplicada.setObjetivoUsuario(objetivoRepository.findAll().get(0));
+
+        // Act
+        DataIntegrityViolationException violacao = assertThrows(DataIntegrityViolationException.class,
+                () -> carteiraRepository.saveAndFlush(duplicada));
+
+        // Assert
+        assertNotNull(existente.getId());
+        assertTrue(CarteiraOperacaoService.violouCarteiraUnicaPorObjetivo(violacao));
+        assertFalse(CarteiraOperacaoService.violouCarteiraUnicaPorObjetivo(
+                new DataIntegrityViolationException("value too long for column \"CODIGO CHARACTER VARYING(20)\"")));
+    }
+
+    private void registrarTransacao() {
+        transacaoAtivaNasChamadasExternas.add(TransactionSynchronizationManager.isActualTransactionActive());
+    }
+
+    private void percentual(ObjetivoUsuario objetivo, String tipo, String segmento, int pct) {
+        CarteiraPercentual cp = new CarteiraPercentual();
+        cp.setUsuario(usuario);
+        cp.setObjetivo(objetivo);
+        cp.setTipoCarteira(tipo);
+        cp.setSegmento(segmento);
+        cp.setPercentual(pct);
+        percentualRepository.save(cp);
+    }
+}
@@ -0,0 +1,117 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.CarteiraUsuario;
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.TipoCarteira;
+import com.Iviinvest.model.Usuario;
+import com.Iviinvest.repository.TickerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({CarteiraUsuarioService.class, TickerService.class})
+public class CarteiraUsuarioServiceTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private CarteiraUsuarioService service;
+
+    @Autowired
+    private TickerRepository tickerRepository;
+
+    private CarteiraUsuario novaCarteira(String email) {
+        Usuario u = new Usuario();
+        u.setEmail(email);
+        u.setSenhaHash("hash");
+        em.persist(u);
+
+        ObjetivoUsuario o = new ObjetivoUsuario();
+        o.setUsuario(u);
+        o.setPrazo(5);
+        em.persist(o);
+
+        CarteiraUsuario cu = new CarteiraUsuario();
+        cu.setUsuario(u);
+        cu.setObjetivoUsuario(o);
+        return cu;
+    }
+
+    @Test
+    void deveGravarAtivosEstruturadosECompartilharTickers() {
+        // Arrange
+        CarteiraUsuario primeira = novaCarteira("a@teste.com");
+        CarteiraUsuario segunda = novaCarteira("b@teste.com");
+
+        // Act
+        definir(primeira, TipoCarteira.CONSERVADORA,
+                Map.of("acoes", List.of("WEGE3", "itub4"), "fiis", List.of("HGLG11")));
+        definir(primeira, TipoCarteira.AGRESSIVA, Map.of("acoes", List.of("PETR4", "WEGE3")));
+        service.salvar(primeira);
+        definir(segunda, TipoCarteira.CONSERVADORA, Map.of("acoes", List.of("WEGE3")));
+        service.salvar(segunda);
+        em.flush();
+        em.clear();
+
+        // Assert
+        assertEquals(4, tickerRepository.findByCodigoIn(List.of("WEGE3", "ITUB4", "HGLG11", "PETR4")).size());
+        assertEquals(2, service.contarCarteirasComTicker("wege3"));
+        assertEquals(1, service.contarCarteirasComTicker("ITUB4"));
+        assertEquals(0, service.contarCarteirasComTicker("VALE3"));
+
+        CarteiraUsuario lida = em.find(CarteiraUsuario.class, primeira.getId());
+        Map<String, List<String>> conservadora = service.ativosPorSegmento(lida, TipoCarteira.CONSERVADORA);
+        assertEquals(List.of("WEGE3", "ITUB4"), conservadora.get("acoes"));
+        assertEquals(List.of("HGLG11"), conservadora.get("fiis"));
+    }
+
+    @Test
+    void deveSubstituirApenasOTipoRegerado() {
+        // Arrange
+        CarteiraUsuario cu = novaCarteira("c@teste.com");
+        definir(cu, TipoCarteira.CONSERVADORA, Map.of("acoes", List.of("WEGE3")));
+        definir(cu, TipoCarteira.AGRESSIVA, Map.of("cripto", List.of("BTC")));
+
+        // Act
+        definir(cu, TipoCarteira.CONSERVADORA, Map.of("acoes", List.of("VALE3")));
+
+        // Assert
+        assertEquals(Map.of("acoes", List.of("VALE3")), service.ativosPorSegmento(cu, TipoCarteira.CONSERVADORA));
+        assertEquals(Map.of("cripto", List.of("BTC")), service.ativosPorSegmento(cu, TipoCarteira.AGRESSIVA));
+    }
+
+    @Test
+    void deveRecusarSegmentoDesconhecidoSemAlterarACarteira() {
+        // Arrange
+        CarteiraUsuario cu = novaCarteira("s@teste.com");
+        definir(cu, TipoCarteira.CONSERVADORA, Map.of("acoes", List.of("WEGE3")));
+        Map<String, List<String>> comOutro = Map.of("acoes", List.of("VALE3"), "outro", List.of("X"));
+
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class, () -> service.resolverTickers(List.of(comOutro)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.definirAtivos(cu, TipoCarteira.CONSERVADORA, comOutro, Map.of()));
+        assertEquals(Map.of("acoes", List.of("WEGE3")), service.ativosPorSegmento(cu, TipoCarteira.CONSERVADORA));
+    }
+
+    @Test
+    void deveRecusarCodigoMaiorQueAColuna() {
+        // Act + Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> service.resolverTickers(List.of(Map.of("acoes", List.of("TICKER-INVENTADO-PELA-IA")))));
+        assertTrue(tickerRepository.findByCodigoIn(List.of("TICKER-INVENTADO-PELA-IA")).isEmpty());
+    }
+
+    private void definir(CarteiraUsuario carteira, TipoCarteira tipo, Map<String, List<String>> ativos) {
+        service.definirAtivos(carteira, tipo, ativos, service.resolverTickers(List.of(ativos)));
+    }
+}
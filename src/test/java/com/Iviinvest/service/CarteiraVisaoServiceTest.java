@@ -0,0 +1,126 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.CarteiraAtivo;
+import com.Iviinvest.model.CarteiraPercentual;
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(CarteiraVisaoService.class)
+public class CarteiraVisaoServiceTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private CarteiraVisaoService service;
+
+    private Usuario usuario;
+    private ObjetivoUsuario antigo;
+    private ObjetivoUsuario recente;
+
+    @BeforeEach
+    void setUp() {
+        usuario = new Usuario();
+        usuario.setEmail("visao@teste.com");
+        usuario.setSenhaHash("hash");
+        em.persist(usuario);
+
+        antigo = objetivo("Casa", List.of("Cripto"));
+        recente = objetivo("Aposentadoria", List.of("Tabaco", "Armas"));
+
+        percentual(antigo, "conservadora", "rendaFixa", 90);
+        percentual(recente, "conservadora", "rendaFixa", 60);
+        percentual(recente, "conservadora", "acoes", 40);
+        percentual(recente, "agressiva", "acoes", 80);
+        ativo(recente, "conservadora", "acoes", "WEGE3", 40.0, 5);
+        ativo(recente, "conservadora", "acoes", "ITUB4", 30.0, 2);
+        ativo(recente, "agressiva", "acoes", "PETR4", 35.0, 9);
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void deveCarregarUltimoObjetivoComPercentuaisEAtivosDoTipo() {
+        // Act
+        CarteiraVisaoService.CarteiraVisao visao = service.buscar(usuario.getId(), null, "conservadora").orElseThrow();
+
+        // Assert
+        assertEquals("Aposentadoria", visao.objetivo().getObjetivo());
+        assertEquals(List.of("Tabaco", "Armas"), visao.objetivo().getSetoresEvitar());
+        assertNotNull(visao.objetivo().getDataCriacao());
+        assertEquals(60, visao.carteira().getPercentuais().get("rendaFixa"));
+        assertEquals(40, visao.carteira().getPercentuais().get("acoes"));
+        assertEquals(2, visao.carteira().getAtivos().get("acoes").size());
+        assertFalse(visao.carteira().getAtivos().containsKey("rendaFixa"));
+    }
+
+    @Test
+    void deveCarregarObjetivoInformado() {
+        // Act
+        CarteiraVisaoService.CarteiraVisao visao = service.buscar(usuario.getId(), antigo.getId(), "conservadora").orElseThrow();
+
+        // Assert
+        assertEquals("Casa", visao.objetivo().getObjetivo());
+        assertEquals(90, visao.carteira().getPercentuais().get("rendaFixa"));
+        assertTrue(visao.carteira().getAtivos().isEmpty());
+    }
+
+    @Test
+    void deveRetornarVazioParaObjetivoDeOutroUsuario() {
+        // Arrange
+        Usuario outro = new Usuario();
+        outro.setEmail("outro@teste.com");
+        outro.setSenhaHash("hash");
+        em.persistAndFlush(outro);
+
+        // Act & Assert
+        assertTrue(service.buscar(outro.getId(), null, "conservadora").isEmpty());
+        assertTrue(service.buscar(outro.getId(), recente.getId(), "conservadora").isEmpty());
+    }
+
+    private ObjetivoUsuario objetivo(String nome, List<String> setoresEvitar) {
+        ObjetivoUsuario o = new ObjetivoUsuario();
+        o.setUsuario(usuario);
+        o.setObjetivo(nome);
+        o.setPrazo(10);
+        o.setValorInicial(1000.0);
+        o.setAporteMensal(100.0);
+        o.setLiquidez("Alta");
+        o.setSetoresEvitar(new ArrayList<>(setoresEvitar));
+        return em.persist(o);
+    }
+
+    private void percentual(ObjetivoUsuario o, String tipo, String segmento, int pct) {
+        CarteiraPercentual cp = new CarteiraPercentual();
+        cp.setUsuario(usuario);
+        cp.setObjetivo(o);
+        cp.setTipoCarteira(tipo);
+        cp.setSegmento(segmento);
+        cp.setPercentual(pct);
+        em.persist(cp);
+    }
+
+    private void ativo(ObjetivoUsuario o, String tipo, String segmento, String ticker, double preco, int cotas) {
+        CarteiraAtivo ca = new CarteiraAtivo();
+        ca.setUsuario(usuario);
+        ca.setObjetivo(o);
+        ca.setTipoCarteira(tipo);
+        ca.setSegmento(segmento);
+        ca.setNomeAtivo(ticker);
+        ca.setPrecoUnitario(preco);
+        ca.setQuantidadeCotas(cotas);
+        em.persist(ca);
+    }
+}
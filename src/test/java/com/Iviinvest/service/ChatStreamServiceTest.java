@@ -0,0 +1,213 @@
+package com.Iviinvest.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Usa um HttpServer local no lugar do provedor, enviando eventos SSE com pausas
+ * entre eles.
+ */
+public class ChatStreamServiceTest {
+
+    private static final long PAUSA_MS = 400;
+
+    private HttpServer servidor;
+    private ChatStreamService service;
+    private SimpleMeterRegistry registry;
+    private LimitadorIA limitador;
+    private volatile String corpoRecebido;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        servidor.createContext("/v1/chat/completions", troca -> {
+            corpoRecebido = new String(troca.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            troca.getResponseHeaders().add("Content-Type", "text/event-stream");
+            troca.sendResponseHeaders(200, 0);
+            try (OutputStream out = troca.getResponseBody()) {
+                for (String texto : List.of("Olá", ", ", "investidor")) {
+                    out.write(("data: {\"choices\":[{\"delta\":{\"content\":\"" + texto + "\"}}]}\n\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    Thread.sleep(PAUSA_MS);
+                }
+                out.write(("data: {\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n"
+                        + "data: {\"choices\":[],\"usage\":{\"prompt_tokens\":40,\"completion_tokens\":3}}\n\n"
+                        + "data: [DONE]\n\n").getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException | IOException e) {
+                // Cliente cancelou | Client cancelled
+            }
+        });
+        servidor.createContext("/v1/parado", troca -> {
+            // Provedor que nunca manda os cabeçalhos
+            try {
+                Thread.sleep(3_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            troca.close();
+        });
+        servidor.createContext("/v1/falha", troca -> {
+            troca.sendResponseHeaders(500, -1);
+            troca.close();
+        });
+        servidor.start();
+        service = novoService("/v1/chat/completions");
+    }
+
+    @AfterEach
+    void tearDown() {
+        servidor.stop(0);
+    }
+
+    @Test
+    void deveRepassarDeltasAntesDoFimDaGeracao() throws Exception {
+        // Arrange
+        Coletor coletor = new Coletor();
+        long inicio = System.nanoTime();
+
+        // Act
+        service.transmitir("Por que esta carteira?", null, coletor);
+        assertTrue(coletor.primeiroDelta.await(5, TimeUnit.SECONDS));
+        long primeiroDeltaMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        assertTrue(coletor.fim.await(5, TimeUnit.SECONDS));
+
+        // Assert: o primeiro trecho chega antes das pausas do provedor terminarem
+        assertTrue(primeiroDeltaMs < PAUSA_MS * 3, "primeiro delta em " + primeiroDeltaMs + "ms");
+        assertEquals(List.of("Olá", ", ", "investidor"), coletor.deltas);
+        assertTrue(coletor.concluido);
+        assertNull(coletor.erro);
+    }
+
+    @Test
+    void deveRegistrarConsumoInformadoNoFimDaTransmissao() throws Exception {
+        // Arrange
+        Coletor coletor = new Coletor();
+
+        // Act
+        service.transmitir("Por que esta carteira?", 7L, coletor);
+        assertTrue(coletor.fim.await(5, TimeUnit.SECONDS));
+
+        // Assert
+        assertTrue(new JSONObject(corpoRecebido).getJSONObject("stream_options").getBoolean("include_usage"));
+        assertEquals(40, registry.counter("ia.tokens", "rota", "chat", "tipo", "prompt").count());
+        assertEquals(3, registry.counter("ia.tokens", "rota", "chat", "tipo", "resposta").count());
+        assertEquals(43, registry.counter("ia.tokens.usuario", "usuario", "7").count());
+    }
+
+    @Test
+    void deveRecusarPerguntaForaDoOrcamentoSemOcuparVaga() {
+        // Act
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> service.transmitir("palavra ".repeat(5_000), 7L, new Coletor()));
+
+        // Assert
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, erro.getStatusCode());
+        assertEquals(0, limitador.getEmUso());
+        assertNull(corpoRecebido);
+    }
+
+    @Test
+    void devePararDeReceberDeltasAoCancelar() throws Exception {
+        // Arrange
+        Coletor coletor = new Coletor();
+
+        // Act
+        ChatStreamService.Transmissao transmissao = service.transmitir("Pergunta", null, coletor);
+        assertTrue(coletor.primeiroDelta.await(5, TimeUnit.SECONDS));
+        transmissao.cancelar();
+        Thread.sleep(PAUSA_MS * 3);
+
+        // Assert
+        assertEquals(List.of("Olá"), coletor.deltas);
+        assertFalse(coletor.concluido);
+    }
+
+    @Test
+    void deveAvisarFalhaQuandoProvedorRespondeErro() throws Exception {
+        // Arrange
+        Coletor coletor = new Coletor();
+
+        // Act
+        novoService("/v1/falha").transmitir("Pergunta", null, coletor);
+
+        // Assert
+        assertTrue(coletor.fim.await(5, TimeUnit.SECONDS));
+        assertNotNull(coletor.erro);
+        assertTrue(coletor.deltas.isEmpty());
+    }
+
+    @Test
+    void deveFalharQuandoProvedorNaoRespondeNoPrazo() throws Exception {
+        // Arrange
+        Coletor coletor = new Coletor();
+
+        // Act
+        novoService("/v1/parado", 1).transmitir("Pergunta", null, coletor);
+
+        // Assert
+        assertTrue(coletor.fim.await(5, TimeUnit.SECONDS));
+        Throwable causa = coletor.erro;
+        while (causa != null && !(causa instanceof HttpTimeoutException)) {
+            causa = causa.getCause();
+        }
+        assertNotNull(causa, "erro: " + coletor.erro);
+    }
+
+    private ChatStreamService novoService(String caminho) {
+        return novoService(caminho, 60);
+    }
+
+    private ChatStreamService novoService(String caminho, long timeoutSegundos) {
+        String url = "http://localhost:" + servidor.getAddress().getPort() + caminho;
+        registry = new SimpleMeterRegistry();
+        limitador = new LimitadorIA(4, 1, 8, 0.5, 10, 1000, 1000, registry);
+        return new ChatStreamService("chave-teste", url, "modelo-teste", timeoutSegundos, limitador,
+                new ConsumoTokensIA(800, 1200, 1000, registry));
+    }
+
+    private static class Coletor implements ChatStreamService.Destino {
+
+        final List<String> deltas = new CopyOnWriteArrayList<>();
+        final CountDownLatch primeiroDelta = new CountDownLatch(1);
+        final CountDownLatch fim = new CountDownLatch(1);
+        volatile boolean concluido;
+        volatile Throwable erro;
+
+        @Override
+        public void delta(String texto) {
+            deltas.add(texto);
+            primeiroDelta.countDown();
+        }
+
+        @Override
+        public void concluir() {
+            concluido = true;
+            fim.countDown();
+        }
+
+        @Override
+        public void falhar(Throwable erro) {
+            this.erro = erro;
+            fim.countDown();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.service.ConsumoTokensIA.PromptAjustado;
+import com.Iviinvest.service.ConsumoTokensIA.Rota;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsumoTokensIATest {
+
+    private SimpleMeterRegistry registry;
+    private ConsumoTokensIA consumo;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        consumo = new ConsumoTokensIA(800, 1200, 20, registry);
+    }
+
+    @Test
+    void devePromptsPadraoCaberNoOrcamentoSemCortes() {
+        // Arrange: objetivo típico, com os orçamentos padrão
+        ConsumoTokensIA padrao = new ConsumoTokensIA(800, 1200, 1000, registry);
+        IAService ia = new IAService(null, null, null, padrao);
+        ObjetivoUsuario objetivo = new ObjetivoUsuario();
+        objetivo.setObjetivo("Aposentadoria");
+        objetivo.setPrazo(20);
+        objetivo.setLiquidez("baixa");
+        objetivo.setValorInicial(50_000.0);
+        objetivo.setAporteMensal(1_500.0);
+        objetivo.setPatrimonioAtual(120_000.0);
+        objetivo.setSetoresEvitar(List.of("tabaco", "armas", "jogos"));
+        JSONObject distribuicao = new JSONObject("{\"conservadora\":{\"rendaFixa\":70,\"acoes\":20,\"fiis\":10},"
+                + "\"agressiva\":{\"rendaFixa\":30,\"acoes\":40,\"fiis\":20,\"cripto\":10}}");
+
+        // Act
+        int distrib = EstimadorTokens.estimar(ia.gerarPromptDistribuicao(objetivo));
+        int ativos = EstimadorTokens.estimar(ia.gerarPromptAtivos(objetivo, distribuicao, "ambas"));
+
+        // Assert: folga para setores e distribuições maiores
+        assertTrue(distrib < 800 * 3 / 4, "distribuição: " + distrib);
+        assertTrue(ativos < 1200 * 3 / 4, "ativos: " + ativos);
+    }
+
+    @Test
+    void deveCortarSecoesOpcionaisNaOrdemDeclaradaAteCaber() {
+        // Arrange: 20 tokens de orçamento no chat
+        PromptIA prompt = new PromptIA()
+                .opcional("contexto longo que não é essencial para a resposta do modelo ")
+                .fixa("Pergunta: quanto investir? ")
+                .opcional("dica curta ")
+                .fixa("Responda em JSON.");
+
+        // Act
+        PromptAjustado ajustado = consumo.ajustar(Rota.CHAT, prompt);
+
+        // Assert
+        assertEquals("Pergunta: quanto investir? dica curta Responda em JSON.", ajustado.texto());
+        assertTrue(ajustado.tokensEstimados() <= 20);
+        assertEquals(1.0, registry.counter("ia.prompt.cortes", "rota", "chat").count());
+    }
+
+    @Test
+    void deveRecusarCom413QuandoAsSecoesFixasPassamDoOrcamento() {
+        // Arrange
+        PromptIA prompt = new PromptIA()
+                .fixa("Pergunta: " + "quanto devo investir em renda fixa este mês? ".repeat(5))
+                .opcional("Responda de forma clara.");
+
+        // Act
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> consumo.ajustar(Rota.CHAT, prompt));
+
+        // Assert
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatusCode());
+    }
+
+    @Test
+    void deveRegistrarConsumoPorRotaEUsuario() {
+        // Arrange
+        PromptAjustado prompt = new PromptAjustado(Rota.ATIVOS, "...", 800);
+
+        // Act
+        consumo.registrarUso(prompt, 7L, 812, 214);
+        consumo.registrarUso(prompt, null, 790, 180);
+
+        // Assert
+        assertEquals(1602.0, registry.counter("ia.tokens", "rota", "ativos", "tipo", "prompt").count());
+        assertEquals(394.0, registry.counter("ia.tokens", "rota", "ativos", "tipo", "resposta").count());
+        assertEquals(1026.0, registry.counter("ia.tokens.usuario", "usuario", "7").count());
+        assertEquals(100.125, registry.summary("ia.tokens.estimativa.precisao").mean(), 0.001);
+    }
+}
@@ -0,0 +1,162 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.TwoFactorCode;
+import com.Iviinvest.repository.TwoFactorCodeRepository;
+import com.Iviinvest.util.HashUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sem a transação do teste: cada operação do store comita, como entre réplicas.
+ */
+@DataJpaTest(properties = "twofactor.store=database")
+@Import(DatabaseTwoFactorCodeStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DatabaseTwoFactorCodeStoreTest {
+
+    @Autowired
+    private DatabaseTwoFactorCodeStore store;
+
+    @Autowired
+    private TwoFactorCodeRepository repository;
+
+    private Instant agora;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        agora = Instant.now();
+    }
+
+    @Test
+    void deveGuardarApenasOHashDoCodigo() {
+        // Act
+        store.salvar("a@teste.com", "123456", agora.plusSeconds(300));
+
+        // Assert
+        TwoFactorCode salvo = repository.findById("a@teste.com").orElseThrow();
+        assertNotEquals("123456", salvo.getCodigoHash());
+        assertEquals(HashUtil.sha256("a@teste.com:123456"), salvo.getCodigoHash());
+    }
+
+    @Test
+    void deveConsumirCodigoUmaUnicaVez() {
+        // Arrange
+        store.salvar("a@teste.com", "123456", agora.plusSeconds(300));
+
+        // Act
+        boolean errado = store.consumir("a@teste.com", "654321", agora);
+        boolean primeira = store.consumir("a@teste.com", "123456", agora);
+        boolean segunda = store.consumir("a@teste.com", "123456", agora);
+
+        // Assert
+        assertFalse(errado);
+        assertTrue(primeira);
+        assertFalse(segunda);
+        assertFalse(repository.existsById("a@teste.com"));
+    }
+
+    @Test
+    void deveRecusarCodigoExpirado() {
+        // Arrange
+        store.salvar("a@teste.com", "123456", agora.plusSeconds(300));
+
+        // Act
+        boolean aceito = store.consumir("a@teste.com", "123456", agora.plusSeconds(301));
+
+        // Assert
+        assertFalse(aceito);
+    }
+
+    @Test
+    void deveSubstituirCodigoAnteriorDoMesmoEmail() {
+        // Arrange
+        store.salvar("a@teste.com", "111111", agora.plusSeconds(300));
+
+        // Act
+        store.salvar("a@teste.com", "222222", agora.plusSeconds(300));
+
+        // Assert
+        assertEquals(1, repository.count());
+        assertFalse(store.consumir("a@teste.com", "111111", agora));
+        assertTrue(store.consumir("a@teste.com", "222222", agora));
+    }
+
+    @Test
+    void deveAceitarGravacoesConcorrentesDoMesmoEmail() throws Exception {
+        // Arrange
+        int threads = 8;
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> gravacoes = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            String codigo = String.format("%06d", i);
+            gravacoes.add(executor.submit(() -> {
+                largada.await();
+                store.salvar("concorrente@teste.com", codigo, agora.plusSeconds(300));
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> gravacao : gravacoes) {
+            gravacao.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert: nenhuma falhou e sobrou exatamente um código válido
+        assertEquals(1, repository.count());
+        int aceitos = 0;
+        for (int i = 0; i < threads; i++) {
+            if (store.consumir("concorrente@teste.com", String.format("%06d", i), agora)) aceitos++;
+        }
+        assertEquals(1, aceitos);
+    }
+
+    @Test
+    void deveVarrerExpiradosEmLote() {
+        // Arrange
+        repository.save(new TwoFactorCode("vencido@teste.com", "x", agora.minusSeconds(1)));
+        repository.save(new TwoFactorCode("valido@teste.com", "y", agora.plusSeconds(300)));
+
+        // Act
+        int removidos = repository.deleteExpirados(agora);
+
+        // Assert
+        assertEquals(1, removidos);
+        assertFalse(repository.existsById("vencido@teste.com"));
+        assertTrue(repository.existsById("valido@teste.com"));
+    }
+
+    @Test
+    void deveVarrerExpiradosDuranteAsGravacoes() {
+        // Arrange
+        repository.save(new TwoFactorCode("vencido@teste.com", "x", agora.minusSeconds(1)));
+
+        // Act: a varredura roda a cada 256 gravações
+        for (int i = 0; i < 256; i++) {
+            store.salvar("usuario" + i + "@teste.com", "123456", agora.plusSeconds(300));
+        }
+
+        // Assert
+        assertFalse(repository.existsById("vencido@teste.com"));
+        assertEquals(256, repository.count());
+    }
+}
@@ -0,0 +1,139 @@
+package com.Iviinvest.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeduplicacaoRequisicoesTest {
+
+    private SimpleMeterRegistry registry;
+    private DeduplicacaoRequisicoes deduplicacao;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        deduplicacao = new DeduplicacaoRequisicoes(30, 5, registry);
+    }
+
+    @Test
+    void deveAnexarRequisicoesIguaisAChamadaEmAndamento() throws Exception {
+        // Arrange: a primeira chamada fica presa até todas as repetições chegarem
+        AtomicInteger chamadas = new AtomicInteger();
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        List<Future<String>> respostas = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            respostas.add(pool.submit(() -> deduplicacao.executar("ana@x.com", "chat", "Por que PETR4?", null, () -> {
+                chamadas.incrementAndGet();
+                liberar.await();
+                return "resposta";
+            })));
+        }
+        while (contagem("executada") + contagem("anexada") < 5) {
+            Thread.sleep(5);
+        }
+        liberar.countDown();
+
+        // Assert
+        for (Future<String> resposta : respostas) {
+            assertEquals("resposta", resposta.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        assertEquals(1, chamadas.get());
+        assertEquals(4.0, contagem("anexada"));
+    }
+
+    @Test
+    void deveRepetirResultadoConcluidoSomenteParaOMesmoUsuarioEEntrada() throws Exception {
+        // Arrange
+        AtomicInteger chamadas = new AtomicInteger();
+
+        // Act
+        String primeira = deduplicacao.executar("ana@x.com", "chat", "Por que PETR4?", null, () -> "r" + chamadas.incrementAndGet());
+        String repetida = deduplicacao.executar("ana@x.com", "chat", "Por que PETR4?", null, () -> "r" + chamadas.incrementAndGet());
+        String outroUsuario = deduplicacao.executar("bia@x.com", "chat", "Por que PETR4?", null, () -> "r" + chamadas.incrementAndGet());
+        String outraPergunta = deduplicacao.executar("ana@x.com", "chat", "E VALE3?", null, () -> "r" + chamadas.incrementAndGet());
+
+        // Assert
+        assertEquals("r1", primeira);
+        assertEquals("r1", repetida);
+        assertEquals("r2", outroUsuario);
+        assertEquals("r3", outraPergunta);
+        assertEquals(1.0, contagem("repetida"));
+    }
+
+    @Test
+    void deveRecusarIdempotencyKeyReusadaComOutraEntrada() throws Exception {
+        // Arrange
+        deduplicacao.executar("ana@x.com", "ativos/gerar", "42:{acoes=60}", "chave-1", () -> "ativos");
+
+        // Act
+        String mesmaChave = deduplicacao.executar("ana@x.com", "ativos/gerar", "42:{acoes=60}", "chave-1", () -> "outros");
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> deduplicacao.executar("ana@x.com", "ativos/gerar", "42:{acoes=70}", "chave-1", () -> "outros"));
+
+        // Assert
+        assertEquals("ativos", mesmaChave);
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+    }
+
+    @Test
+    void deveRepassarFalhaSemGuardarParaAsProximas() throws Exception {
+        // Arrange
+        ResponseStatusException sobrecarga = new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "IA ocupada");
+
+        // Act
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> deduplicacao.executar("ana@x.com", "percentuais/gerar", "42:false", null, () -> {
+                    throw sobrecarga;
+                }));
+        String novaTentativa = deduplicacao.executar("ana@x.com", "percentuais/gerar", "42:false", null, () -> "ok");
+
+        // Assert
+        assertSame(sobrecarga, e);
+        assertEquals("ok", novaTentativa);
+        assertEquals(2.0, contagem("executada"));
+    }
+
+    @Test
+    void deveRecusarPerguntaRepetidaEnquantoATransmissaoDura() throws Exception {
+        // Arrange
+        Runnable liberar = deduplicacao.reservar("ana@x.com", "chat", "Por que PETR4?", null);
+
+        // Act
+        ResponseStatusException outraTransmissao = assertThrows(ResponseStatusException.class,
+                () -> deduplicacao.reservar("ana@x.com", "chat", "Por que PETR4?", null));
+        ResponseStatusException semStream = assertThrows(ResponseStatusException.class,
+                () -> deduplicacao.executar("ana@x.com", "chat", "Por que PETR4?", null, () -> "resposta"));
+        Runnable outroUsuario = deduplicacao.reservar("bia@x.com", "chat", "Por que PETR4?", null);
+        liberar.run();
+        liberar.run();
+        Runnable depois = deduplicacao.reservar("ana@x.com", "chat", "Por que PETR4?", null);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, outraTransmissao.getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, semStream.getStatusCode());
+        assertNotNull(outroUsuario);
+        assertNotNull(depois);
+        assertEquals(2.0, contagem("recusada"));
+    }
+
+    private double contagem(String resultado) {
+        return registry.counter("ia.deduplicacao", "resultado", resultado).count();
+    }
+}
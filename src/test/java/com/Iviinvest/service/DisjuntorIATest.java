@@ -0,0 +1,174 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.ObjetivoUsuario;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DisjuntorIATest {
+
+    private final AtomicInteger chamadasAoProvedor = new AtomicInteger();
+    private SimpleMeterRegistry registry;
+    private long agoraNanos;
+    private DisjuntorIA disjuntor;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // janela 10, mínimo 4 chamadas, 50% de falhas, lenta a partir de 1s, 30s aberto, 2 testes
+        disjuntor = new DisjuntorIA(10, 4, 0.5, 1000, 30_000, 2, registry, () -> agoraNanos);
+    }
+
+    @Test
+    void deveAbrirAposFalhasEResponderComAlternativaSemChamarProvedor() {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            disjuntor.executar(this::falhar, () -> "local");
+        }
+        chamadasAoProvedor.set(0);
+
+        // Act
+        String resposta = disjuntor.executar(this::responder, () -> "local");
+
+        // Assert
+        assertEquals(DisjuntorIA.Estado.ABERTO, disjuntor.getEstado());
+        assertEquals("local", resposta);
+        assertEquals(0, chamadasAoProvedor.get());
+        assertEquals(1.0, registry.get("ia.disjuntor.estado").gauge().value());
+        assertEquals(1.0, registry.get("ia.disjuntor.transicoes")
+                .tag("de", "FECHADO").tag("para", "ABERTO").counter().count());
+        assertEquals(5.0, registry.get("ia.disjuntor.alternativa").counter().count());
+    }
+
+    @Test
+    void deveContarChamadaLentaComoFalha() {
+        // Act: provedor responde, mas demora 2s em cada chamada
+        for (int i = 0; i < 4; i++) {
+            String resposta = disjuntor.executar(() -> {
+                agoraNanos += TimeUnit.SECONDS.toNanos(2);
+                return "ia";
+            }, () -> "local");
+            assertEquals("ia", resposta);
+        }
+
+        // Assert
+        assertEquals(DisjuntorIA.Estado.ABERTO, disjuntor.getEstado());
+    }
+
+    @Test
+    void deveFecharQuandoChamadasDeTesteDaoCerto() {
+        // Arrange
+        abrir();
+        agoraNanos += TimeUnit.SECONDS.toNanos(31);
+
+        // Act
+        String primeira = disjuntor.executar(this::responder, () -> "local");
+        DisjuntorIA.Estado aposPrimeira = disjuntor.getEstado();
+        disjuntor.executar(this::responder, () -> "local");
+
+        // Assert
+        assertEquals("ia", primeira);
+        assertEquals(DisjuntorIA.Estado.SEMI_ABERTO, aposPrimeira);
+        assertEquals(DisjuntorIA.Estado.FECHADO, disjuntor.getEstado());
+        assertEquals(1.0, registry.get("ia.disjuntor.transicoes")
+                .tag("de", "SEMI_ABERTO").tag("para", "FECHADO").counter().count());
+    }
+
+    @Test
+    void deveReabrirQuandoChamadaDeTesteFalha() {
+        // Arrange
+        abrir();
+        agoraNanos += TimeUnit.SECONDS.toNanos(31);
+
+        // Act
+        String resposta = disjuntor.executar(this::falhar, () -> "local");
+
+        // Assert
+        assertEquals("local", resposta);
+        assertEquals(DisjuntorIA.Estado.ABERTO, disjuntor.getEstado());
+        assertEquals(1.0, registry.get("ia.disjuntor.transicoes")
+                .tag("de", "SEMI_ABERTO").tag("para", "ABERTO").counter().count());
+    }
+
+    @Test
+    void naoDeveAbrirPorRecusasDoLimitador() {
+        // Act: fila do limitador cheia em todas as chamadas
+        for (int i = 0; i < 10; i++) {
+            String resposta = disjuntor.executar(this::recusar, () -> "local");
+            assertEquals("local", resposta);
+        }
+
+        // Assert
+        assertEquals(DisjuntorIA.Estado.FECHADO, disjuntor.getEstado());
+        assertEquals(10.0, registry.get("ia.disjuntor.alternativa").counter().count());
+    }
+
+    @Test
+    void naoDeveGastarChamadaDeTesteComRecusaDoLimitador() {
+        // Arrange
+        abrir();
+        agoraNanos += TimeUnit.SECONDS.toNanos(31);
+
+        // Act: duas recusas e depois as duas chamadas de teste
+        disjuntor.executar(this::recusar, () -> "local");
+        disjuntor.executar(this::recusar, () -> "local");
+        String primeira = disjuntor.executar(this::responder, () -> "local");
+        disjuntor.executar(this::responder, () -> "local");
+
+        // Assert
+        assertEquals("ia", primeira);
+        assertEquals(DisjuntorIA.Estado.FECHADO, disjuntor.getEstado());
+    }
+
+    @Test
+    void deveResponderEmPoucosMilissegundosComDisjuntorAberto() throws Exception {
+        // Arrange: disjuntor real (relógio do sistema) aberto por um provedor que não responde
+        DisjuntorIA real = new DisjuntorIA(10, 4, 0.5, 1000, 30_000, 2, new SimpleMeterRegistry(), System::nanoTime);
+        for (int i = 0; i < 4; i++) {
+            real.executar(this::falhar, () -> "local");
+        }
+        AlocacaoLocalService alocacao = AlocacaoLocalServiceTest.novoService(new SimpleMeterRegistry());
+        ObjetivoUsuario objetivo = new ObjetivoUsuario();
+        objetivo.setPrazo(5);
+        objetivo.setValorInicial(10_000.0);
+
+        // Act
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            real.executar(() -> {
+                Thread.sleep(60_000);
+                return null;
+            }, () -> alocacao.distribuir(objetivo));
+        }
+        long mediaMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio) / 1000;
+
+        // Assert
+        assertTrue(mediaMicros < 5_000, "média de " + mediaMicros + "µs por resposta");
+    }
+
+    private void abrir() {
+        for (int i = 0; i < 4; i++) {
+            disjuntor.executar(this::falhar, () -> "local");
+        }
+        assertEquals(DisjuntorIA.Estado.ABERTO, disjuntor.getEstado());
+    }
+
+    private String responder() {
+        chamadasAoProvedor.incrementAndGet();
+        return "ia";
+    }
+
+    private String recusar() {
+        throw new LimitadorIA.Rejeicao();
+    }
+
+    private String falhar() {
+        chamadasAoProvedor.incrementAndGet();
+        throw new IllegalStateException("HTTP 503");
+    }
+}
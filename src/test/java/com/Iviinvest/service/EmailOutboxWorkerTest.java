@@ -0,0 +1,175 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.EmailOutbox;
+import com.Iviinvest.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmailOutboxWorkerTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailOutboxRepository repository;
+
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        emailService = new EmailService(repository);
+    }
+
+    private static JavaMailSenderImpl mailSender(int porta) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(porta);
+        return sender;
+    }
+
+    @Test
+    void deveEnviarLoteEnfileiradoERemoverDaOutbox() throws Exception {
+        // Arrange
+        EmailOutboxWorker worker = new EmailOutboxWorker(repository, mailSender(ServerSetupTest.SMTP.getPort()));
+        emailService.enviar("a@teste.com", "Recuperação", "Token: 123");
+        emailService.enviar("b@teste.com", "Recuperação", "Token: 456");
+        emailService.enviarHtml("c@teste.com", "Código", "Código: 999999", "Código: <b>999999</b>");
+
+        // Act
+        worker.processarPendentes();
+
+        // Assert
+        MimeMessage[] recebidas = greenMail.getReceivedMessages();
+        assertEquals(3, recebidas.length);
+        MimeMessage codigo = null;
+        for (MimeMessage recebida : recebidas) {
+            if ("Código".equals(recebida.getSubject())) codigo = recebida;
+        }
+        assertNotNull(codigo);
+        assertTrue(codigo.getContentType().startsWith("multipart/"));
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    void deveReagendarComBackoffQuandoSmtpIndisponivel() {
+        // Arrange
+        EmailOutboxWorker worker = new EmailOutboxWorker(repository, mailSender(ServerSetupTest.SMTP.getPort() + 900));
+        emailService.enviar("a@teste.com", "Recuperação", "Token: 123");
+        Instant antes = Instant.now();
+
+        // Act
+        worker.processarPendentes();
+
+        // Assert
+        List<EmailOutbox> pendentes = repository.findAll();
+        assertEquals(1, pendentes.size());
+        EmailOutbox email = pendentes.get(0);
+        assertEquals(EmailOutbox.PENDENTE, email.getStatus());
+        assertEquals(1, email.getTentativas());
+        assertNotNull(email.getUltimoErro());
+        assertTrue(email.getProximaTentativa().isAfter(antes.plusSeconds(4)));
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void naoDeveReservarMensagemJaReservadaPorOutroWorker() {
+        // Arrange
+        EmailOutboxWorker worker = new EmailOutboxWorker(repository, mailSender(ServerSetupTest.SMTP.getPort()));
+        emailService.enviar("a@teste.com", "Recuperação", "Token: 123");
+        Instant agora = Instant.now();
+
+        // Act
+        List<EmailOutbox> primeira = worker.reservarLote(agora);
+        List<EmailOutbox> segunda = worker.reservarLote(agora);
+
+        // Assert
+        assertEquals(1, primeira.size());
+        assertTrue(segunda.isEmpty());
+    }
+
+    @Test
+    void deveEnviarNaOrdemDosIds() throws Exception {
+        // Arrange
+        EmailOutboxWorker worker = new EmailOutboxWorker(repository, mailSender(ServerSetupTest.SMTP.getPort()));
+        for (int i = 1; i <= 10; i++) {
+            emailService.enviar("ordem@teste.com", "Mensagem " + i, "Corpo " + i);
+        }
+
+        // Act
+        worker.processarPendentes();
+
+        // Assert
+        MimeMessage[] recebidas = greenMail.getReceivedMessages();
+        assertEquals(10, recebidas.length);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Mensagem " + (i + 1), recebidas[i].getSubject());
+        }
+    }
+
+    @Test
+    void deveRemoverCorpoQuandoDesistirDaMensagem() {
+        // Arrange: já na última tentativa, com o SMTP fora do ar
+        EmailOutboxWorker worker = new EmailOutboxWorker(repository, mailSender(ServerSetupTest.SMTP.getPort() + 900));
+        emailService.enviarHtml("a@teste.com", "Código", "Código: 999999", "Código: <b>999999</b>");
+        EmailOutbox email = repository.findAll().get(0);
+        email.setTentativas(7);
+        repository.save(email);
+
+        // Act
+        worker.processarPendentes();
+
+        // Assert
+        EmailOutbox falhou = repository.findAll().get(0);
+        assertEquals(EmailOutbox.FALHOU, falhou.getStatus());
+        assertEquals(EmailOutbox.CORPO_REMOVIDO, falhou.getCorpoTexto());
+        assertNull(falhou.getCorpoHtml());
+    }
+
+    @Test
+    void deveApagarFalhasAntigas() {
+        // Arrange
+        EmailOutboxWorker worker = new EmailOutboxWorker(repository, mailSender(ServerSetupTest.SMTP.getPort()));
+        Instant agora = Instant.now();
+        Long antiga = salvarFalha(agora.minus(Duration.ofDays(8))).getId();
+        Long recente = salvarFalha(agora.minus(Duration.ofDays(1))).getId();
+        emailService.enviar("pendente@teste.com", "Recuperação", "Token: 123");
+
+        // Act
+        int apagadas = worker.limparFalhas(agora);
+
+        // Assert
+        assertEquals(1, apagadas);
+        assertFalse(repository.existsById(antiga));
+        assertTrue(repository.existsById(recente));
+        assertEquals(2, repository.count());
+    }
+
+    private EmailOutbox salvarFalha(Instant criadoEm) {
+        EmailOutbox email = new EmailOutbox();
+        email.setDestinatario("falha@teste.com");
+        email.setAssunto("Código");
+        email.setCorpoTexto(EmailOutbox.CORPO_REMOVIDO);
+        email.setStatus(EmailOutbox.FALHOU);
+        email.setCriadoEm(criadoEm);
+        email.setProximaTentativa(criadoEm);
+        return repository.save(email);
+    }
+}
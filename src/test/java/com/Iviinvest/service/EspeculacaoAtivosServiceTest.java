@@ -0,0 +1,124 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.Usuario;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class EspeculacaoAtivosServiceTest {
+
+    private static final String ATIVOS = """
+            {"conservadora":{"rendaFixa":["TESOURO-SELIC"],"acoes":["WEGE3"]},
+             "agressiva":{"acoes":["PETR4","VALE3"],"cripto":["HASH11"]}}
+            """;
+
+    private IAService iaService;
+    private SimpleMeterRegistry registry;
+    private EspeculacaoAtivosService service;
+    private ObjetivoUsuario objetivo;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        iaService = mock(IAService.class);
+        when(iaService.iaDisponivel()).thenReturn(true);
+        when(iaService.especularAtivos(any(), any())).thenReturn(new JSONObject(ATIVOS));
+        when(iaService.gerarAtivos(any(), any())).thenReturn(new JSONObject("{\"conservadora\":{},\"agressiva\":{}}"));
+
+        registry = new SimpleMeterRegistry();
+        service = novoService(300);
+
+        Usuario usuario = new Usuario();
+        usuario.setId(7L);
+        objetivo = new ObjetivoUsuario();
+        objetivo.setId(42L);
+        objetivo.setUsuario(usuario);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.encerrar();
+    }
+
+    @Test
+    void deveUsarAtivosEspeculadosQuandoDistribuicaoEhAMesma() throws Exception {
+        // Arrange: percentuais como saem da IA; o app devolve com outra ordem e 0% explícito
+        JSONObject gerada = new JSONObject("{\"conservadora\":{\"rendaFixa\":70,\"acoes\":30},\"agressiva\":{\"acoes\":60,\"cripto\":40}}");
+        JSONObject devolvida = new JSONObject("{\"agressiva\":{\"cripto\":40.0,\"acoes\":60,\"fiis\":0},\"conservadora\":{\"acoes\":30,\"rendaFixa\":70}}");
+
+        // Act
+        service.iniciar(objetivo, gerada);
+        JSONObject ativos = service.gerarAtivos(objetivo, devolvida);
+
+        // Assert
+        assertEquals(EspeculacaoAtivosService.canonica(gerada), EspeculacaoAtivosService.canonica(devolvida));
+        assertTrue(new JSONObject(ATIVOS).similar(ativos));
+        verify(iaService, times(1)).especularAtivos(any(), any());
+        verify(iaService, never()).gerarAtivos(any(), any());
+        assertEquals(1.0, contador("acerto") + contador("aguardada"));
+    }
+
+    @Test
+    void deveAguardarEspeculacaoEmAndamentoEmVezDeChamarIaDeNovo() throws Exception {
+        // Arrange
+        when(iaService.especularAtivos(any(), any())).thenAnswer(inv -> {
+            Thread.sleep(300);
+            return new JSONObject(ATIVOS);
+        });
+        JSONObject distribuicao = new JSONObject("{\"conservadora\":{\"rendaFixa\":100},\"agressiva\":{\"acoes\":100}}");
+
+        // Act
+        service.iniciar(objetivo, distribuicao);
+        JSONObject ativos = service.gerarAtivos(objetivo, distribuicao);
+
+        // Assert
+        assertTrue(new JSONObject(ATIVOS).similar(ativos));
+        verify(iaService, never()).gerarAtivos(any(), any());
+        assertEquals(1.0, contador("aguardada"));
+    }
+
+    @Test
+    void deveChamarIaEContarDesperdicioQuandoDistribuicaoMuda() {
+        // Arrange: validade zero, a especulação sai do cache sem ser usada
+        service.encerrar();
+        service = novoService(0);
+        JSONObject gerada = new JSONObject("{\"conservadora\":{\"rendaFixa\":100},\"agressiva\":{\"acoes\":100}}");
+        JSONObject editada = new JSONObject("{\"conservadora\":{\"rendaFixa\":90,\"fiis\":10},\"agressiva\":{\"acoes\":100}}");
+
+        // Act
+        service.iniciar(objetivo, gerada);
+        service.gerarAtivos(objetivo, editada);
+
+        // Assert
+        verify(iaService, times(1)).gerarAtivos(any(), any());
+        assertEquals(1.0, contador("iniciada"));
+        assertEquals(1.0, contador("desperdicada"));
+    }
+
+    @Test
+    void deveNaoEspecularComDisjuntorAberto() throws Exception {
+        // Arrange
+        when(iaService.iaDisponivel()).thenReturn(false);
+
+        // Act
+        service.iniciar(objetivo, new JSONObject("{\"conservadora\":{\"rendaFixa\":100}}"));
+
+        // Assert
+        verify(iaService, never()).especularAtivos(any(), any());
+        assertEquals(0.0, contador("iniciada"));
+    }
+
+    private EspeculacaoAtivosService novoService(long validadeSegundos) {
+        return new EspeculacaoAtivosService(iaService, true, 2, 10, validadeSegundos, 5, registry);
+    }
+
+    private double contador(String resultado) {
+        return registry.get("ia.especulacao").tag("resultado", resultado).counter().count();
+    }
+}
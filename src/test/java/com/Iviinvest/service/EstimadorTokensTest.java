@@ -0,0 +1,38 @@
+package com.Iviinvest.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EstimadorTokensTest {
+
+    @Test
+    void deveContarPalavrasComEspacoIncluido() {
+        // Act + Assert: 9 palavras e o ponto, como no tokenizador do modelo
+        assertEquals(10, EstimadorTokens.estimar("The quick brown fox jumps over the lazy dog."));
+        assertEquals(0, EstimadorTokens.estimar(""));
+    }
+
+    @Test
+    void deveSepararCamelCaseENumerosEmGruposDeTres() {
+        // Act + Assert
+        assertEquals(2, EstimadorTokens.estimar("rendaFixa"));
+        assertEquals(2, EstimadorTokens.estimar("250000"));
+        assertEquals(4, EstimadorTokens.estimar("\"acoes\": 40"));
+    }
+
+    @Test
+    void deveFicarNaFaixaUsualDeCaracteresPorTokenEmPortugues() {
+        // Arrange
+        String texto = """
+                Distribua o capital entre os quatro segmentos acima com base em princípios de finanças pessoais,
+                considerando a capacidade de risco, a necessidade de liquidez e o potencial de diversificação.
+                """;
+
+        // Act
+        int tokens = EstimadorTokens.estimar(texto);
+
+        // Assert: português fica entre 3 e 5 caracteres por token
+        assertTrue(tokens > texto.length() / 5 && tokens < texto.length() / 3, tokens + " tokens");
+    }
+}
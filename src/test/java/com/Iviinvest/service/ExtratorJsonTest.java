@@ -0,0 +1,138 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.perf.MedidorAlocacao;
+import com.fasterxml.jackson.core.JsonPointer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Usa respostas gravadas da OpenAI e da brapi em {@code src/test/resources/payloads}.
+ */
+public class ExtratorJsonTest {
+
+    private static final JsonPointer CONTEUDO = JsonPointer.compile("/choices/0/message/content");
+    private static final JsonPointer PRECO = JsonPointer.compile("/results/0/regularMarketPrice");
+
+    @Test
+    void deveExtrairConteudoDaRespostaDaIa() throws IOException {
+        // Arrange
+        byte[] payload = payload("openai-chat-completion.json");
+
+        // Act
+        String conteudo = ExtratorJson.valores(new ByteArrayInputStream(payload), List.of(CONTEUDO)).get(CONTEUDO);
+
+        // Assert: mesmo valor que o caminho antigo, via DOM
+        assertEquals(conteudoViaDom(payload), conteudo);
+        assertTrue(conteudo.startsWith("```json"));
+    }
+
+    @Test
+    void deveExtrairPrecoDepoisDeCamposIgnorados() throws IOException {
+        // Act
+        OptionalDouble preco = ExtratorJson.numero(new ByteArrayInputStream(payload("brapi-quote.json")), PRECO);
+
+        // Assert
+        assertEquals(37.01, preco.orElseThrow());
+    }
+
+    @Test
+    void deveRetornarVazioQuandoCaminhoNaoExiste() throws IOException {
+        // Arrange
+        byte[] semResultados = "{\"results\":[],\"error\":true}".getBytes(StandardCharsets.UTF_8);
+        byte[] erroIa = "{\"error\":{\"message\":\"Invalid API key\",\"type\":\"invalid_request_error\"}}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        // Act + Assert
+        assertTrue(ExtratorJson.numero(new ByteArrayInputStream(semResultados), PRECO).isEmpty());
+        assertTrue(ExtratorJson.valores(new ByteArrayInputStream(erroIa), List.of(CONTEUDO)).isEmpty());
+    }
+
+    @Test
+    void deveExtrairConteudoEConsumoNaMesmaPassada() throws IOException {
+        // Arrange
+        JsonPointer tokensPrompt = JsonPointer.compile("/usage/prompt_tokens");
+        JsonPointer tokensResposta = JsonPointer.compile("/usage/completion_tokens");
+        ByteArrayInputStream corpo = new ByteArrayInputStream(payload("openai-chat-completion.json"));
+
+        // Act
+        Map<JsonPointer, String> valores = ExtratorJson.valores(corpo, List.of(CONTEUDO, tokensPrompt, tokensResposta));
+
+        // Assert
+        assertEquals(conteudoViaDom(payload("openai-chat-completion.json")), valores.get(CONTEUDO));
+        assertEquals("812", valores.get(tokensPrompt));
+        assertEquals("214", valores.get(tokensResposta));
+        assertEquals(0, corpo.available());
+    }
+
+    @Test
+    void deveConsumirOCorpoInteiro() throws IOException {
+        // Arrange
+        ByteArrayInputStream corpo = new ByteArrayInputStream(payload("brapi-quote.json"));
+
+        // Act
+        ExtratorJson.numero(corpo, PRECO);
+
+        // Assert: corpo drenado, a conexão pode voltar ao pool
+        assertEquals(0, corpo.available());
+    }
+
+    /**
+     * Benchmark de alocação: bytes alocados por chamada, streaming contra o caminho
+     * antigo (corpo em String + árvore org.json), sobre as respostas gravadas. Fica fora
+     * do {@code mvn test} padrão ({@code mvn test -Dgroups=desempenho -DexcludedGroups=}).
+     */
+    @Test
+    @Tag("desempenho")
+    void deveAlocarMenosQueOCaminhoComDom() throws IOException {
+        // Arrange
+        byte[] ia = payload("openai-chat-completion.json");
+        byte[] cotacao = payload("brapi-quote.json");
+
+        // Act
+        long domIa = MedidorAlocacao.bytesPorChamada(5_000, () -> conteudoViaDom(ia));
+        long streamingIa = MedidorAlocacao.bytesPorChamada(5_000,
+                () -> extrair(() -> ExtratorJson.valores(new ByteArrayInputStream(ia), List.of(CONTEUDO))));
+        long domCotacao = MedidorAlocacao.bytesPorChamada(5_000, () -> new JSONObject(new String(cotacao, StandardCharsets.UTF_8))
+                .getJSONArray("results").getJSONObject(0).optDouble("regularMarketPrice", 0.0));
+        long streamingCotacao = MedidorAlocacao.bytesPorChamada(5_000,
+                () -> extrair(() -> ExtratorJson.numero(new ByteArrayInputStream(cotacao), PRECO)));
+
+        // Assert
+        assertTrue(streamingIa * 2 < domIa, "IA: streaming " + streamingIa + "B, DOM " + domIa + "B");
+        assertTrue(streamingCotacao * 4 < domCotacao, "cotação: streaming " + streamingCotacao + "B, DOM " + domCotacao + "B");
+    }
+
+    private static String conteudoViaDom(byte[] payload) {
+        return new JSONObject(new String(payload, StandardCharsets.UTF_8))
+                .getJSONArray("choices").getJSONObject(0)
+                .getJSONObject("message").getString("content");
+    }
+
+    private static Object extrair(ChamadaIO chamada) {
+        try {
+            return chamada.executar();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] payload(String nome) throws IOException {
+        return new ClassPathResource("payloads/" + nome).getContentAsByteArray();
+    }
+
+    @FunctionalInterface
+    private interface ChamadaIO {
+        Object executar() throws IOException;
+    }
+}
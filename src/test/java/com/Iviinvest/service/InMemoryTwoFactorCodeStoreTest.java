@@ -0,0 +1,105 @@
+package com.Iviinvest.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryTwoFactorCodeStoreTest {
+
+    private final Instant agora = Instant.now();
+
+    @Test
+    void deveConsumirCodigoUmaUnicaVez() {
+        // Arrange
+        InMemoryTwoFactorCodeStore store = new InMemoryTwoFactorCodeStore(10);
+        store.salvar("a@teste.com", "123456", agora.plusSeconds(300));
+
+        // Act
+        boolean errado = store.consumir("a@teste.com", "654321", agora);
+        boolean primeira = store.consumir("a@teste.com", "123456", agora);
+        boolean segunda = store.consumir("a@teste.com", "123456", agora);
+
+        // Assert
+        assertFalse(errado);
+        assertTrue(primeira);
+        assertFalse(segunda);
+    }
+
+    @Test
+    void deveRecusarCodigoExpirado() {
+        // Arrange
+        InMemoryTwoFactorCodeStore store = new InMemoryTwoFactorCodeStore(10);
+        store.salvar("a@teste.com", "123456", agora.plusSeconds(300));
+
+        // Act
+        boolean aceito = store.consumir("a@teste.com", "123456", agora.plusSeconds(301));
+
+        // Assert
+        assertFalse(aceito);
+    }
+
+    @Test
+    void deveSubstituirCodigoAnteriorDoMesmoEmail() {
+        // Arrange
+        InMemoryTwoFactorCodeStore store = new InMemoryTwoFactorCodeStore(10);
+        store.salvar("a@teste.com", "111111", agora.plusSeconds(300));
+
+        // Act
+        store.salvar("a@teste.com", "222222", agora.plusSeconds(300));
+
+        // Assert
+        assertFalse(store.consumir("a@teste.com", "111111", agora));
+        assertTrue(store.consumir("a@teste.com", "222222", agora));
+    }
+
+    @Test
+    void deveVarrerExpiradosAntesDeRecusarPorCapacidade() {
+        // Arrange: capacidade cheia, mas só com códigos vencidos
+        InMemoryTwoFactorCodeStore store = new InMemoryTwoFactorCodeStore(2);
+        store.salvar("vencido1@teste.com", "111111", agora.minusSeconds(1));
+        store.salvar("vencido2@teste.com", "222222", agora.minusSeconds(1));
+
+        // Act
+        store.salvar("novo@teste.com", "333333", agora.plusSeconds(300));
+
+        // Assert
+        assertTrue(store.consumir("novo@teste.com", "333333", agora));
+    }
+
+    @Test
+    void deveRecusarComCapacidadeCheiaDeCodigosValidos() {
+        // Arrange
+        InMemoryTwoFactorCodeStore store = new InMemoryTwoFactorCodeStore(2);
+        store.salvar("a@teste.com", "111111", agora.plusSeconds(300));
+        store.salvar("b@teste.com", "222222", agora.plusSeconds(300));
+
+        // Act
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> store.salvar("c@teste.com", "333333", agora.plusSeconds(300)));
+
+        // Assert
+        assertEquals(503, erro.getStatusCode().value());
+        assertDoesNotThrow(() -> store.salvar("a@teste.com", "444444", agora.plusSeconds(300)));
+    }
+
+    @Test
+    void deveVarrerNoMaximoUmaVezPorIntervaloComCapacidadeCheia() throws InterruptedException {
+        // Arrange: a primeira recusa varre; o código de b vence logo depois
+        InMemoryTwoFactorCodeStore store = new InMemoryTwoFactorCodeStore(2);
+        store.salvar("a@teste.com", "111111", Instant.now().plusSeconds(300));
+        store.salvar("b@teste.com", "222222", Instant.now().plusMillis(200));
+        assertThrows(ResponseStatusException.class,
+                () -> store.salvar("c@teste.com", "333333", Instant.now().plusSeconds(300)));
+        Thread.sleep(300);
+
+        // Act: ainda dentro do intervalo, não varre de novo
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> store.salvar("c@teste.com", "333333", Instant.now().plusSeconds(300)));
+
+        // Assert
+        assertEquals(503, erro.getStatusCode().value());
+    }
+}
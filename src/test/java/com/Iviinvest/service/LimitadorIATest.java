@@ -0,0 +1,168 @@
+package com.Iviinvest.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimitadorIATest {
+
+    private static LimitadorIA limitador(int inicial, long esperaMs) {
+        return new LimitadorIA(inicial, 1, 64, 0.5, 100, esperaMs, esperaMs, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void deveAjustarLimiteConformeRespostaDoProvedor() {
+        // Arrange
+        LimitadorIA limitador = limitador(8, 0);
+
+        // Act
+        limitador.adquirir(OperacaoIA.CARTEIRA).liberar(LimitadorIA.Resultado.SOBRECARGA);
+        double aposSobrecarga = limitador.getLimite();
+        for (int i = 0; i < 4; i++) {
+            limitador.adquirir(OperacaoIA.CARTEIRA).liberar(LimitadorIA.Resultado.SUCESSO);
+        }
+
+        // Assert
+        assertEquals(4.0, aposSobrecarga);
+        assertEquals(4.92, limitador.getLimite(), 0.01);   // +1/limite por sucesso
+        assertEquals(0, limitador.getEmUso());
+    }
+
+    @Test
+    void devePriorizarCarteiraSobreChatNaFila() throws Exception {
+        // Arrange: uma única vaga ocupada, chat chega antes da carteira
+        LimitadorIA limitador = limitador(1, 5000);
+        LimitadorIA.Permissao ocupada = limitador.adquirir(OperacaoIA.CARTEIRA);
+        List<OperacaoIA> atendidas = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        executor.submit(() -> atender(limitador, OperacaoIA.CHAT, atendidas));
+        aguardarFila(limitador, 1);
+        executor.submit(() -> atender(limitador, OperacaoIA.CARTEIRA, atendidas));
+        aguardarFila(limitador, 2);
+
+        // Act
+        ocupada.liberar(LimitadorIA.Resultado.IGNORADO);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals(List.of(OperacaoIA.CARTEIRA, OperacaoIA.CHAT), atendidas);
+    }
+
+    @Test
+    void deveReservarVagasParaCarteiraQuandoChatLotaSuaFracao() {
+        // Arrange
+        LimitadorIA limitador = limitador(4, 0);
+        limitador.adquirir(OperacaoIA.CHAT);
+        limitador.adquirir(OperacaoIA.CHAT);
+
+        // Act
+        ResponseStatusException erro = assertThrows(ResponseStatusException.class,
+                () -> limitador.adquirir(OperacaoIA.CHAT));
+        LimitadorIA.Permissao carteira = limitador.adquirir(OperacaoIA.CARTEIRA);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, erro.getStatusCode());
+        assertNotNull(carteira);
+        assertEquals(3, limitador.getEmUso());
+    }
+
+    @Test
+    void deveEspecularSomenteComVagaLivreSemEsperar() {
+        // Arrange
+        long prazoFilaMs = 30_000;
+        LimitadorIA limitador = limitador(2, prazoFilaMs);
+        limitador.adquirir(OperacaoIA.ESPECULACAO);
+        long inicio = System.nanoTime();
+
+        // Act: a última vaga fica para chamadas interativas
+        assertThrows(ResponseStatusException.class, () -> limitador.adquirir(OperacaoIA.ESPECULACAO));
+        long esperouMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        LimitadorIA.Permissao carteira = limitador.adquirir(OperacaoIA.CARTEIRA);
+
+        // Assert: relativo ao prazo da fila, para não depender da velocidade da máquina
+        assertTrue(esperouMs < prazoFilaMs / 2, "esperou " + esperouMs + "ms");
+        assertNotNull(carteira);
+        assertEquals(2, limitador.getEmUso());
+    }
+
+    @Test
+    void deveRejeitarQuandoPrazoDaFilaVence() {
+        // Arrange
+        LimitadorIA limitador = limitador(1, 150);
+        limitador.adquirir(OperacaoIA.CARTEIRA);
+        long inicio = System.nanoTime();
+
+        // Act
+        assertThrows(ResponseStatusException.class, () -> limitador.adquirir(OperacaoIA.CARTEIRA));
+        long esperouMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        // Assert
+        assertTrue(esperouMs >= 140 && esperouMs < 2000, "esperou " + esperouMs + "ms");
+        assertEquals(0, limitador.getTamanhoFila());
+    }
+
+    @Test
+    void deveManterVazaoNaCapacidadeDoProvedor() throws Exception {
+        // Arrange: provedor aguenta 5 chamadas simultâneas; acima disso responde 503
+        int capacidadeProvedor = 5;
+        AtomicInteger emVoo = new AtomicInteger();
+        AtomicInteger sucessos = new AtomicInteger();
+        AtomicInteger sobrecargas = new AtomicInteger();
+        LimitadorIA limitador = limitador(16, 30_000);
+        ExecutorService executor = Executors.newFixedThreadPool(40);
+
+        // Act
+        for (int i = 0; i < 400; i++) {
+            executor.submit(() -> {
+                try {
+                    limitador.executar(OperacaoIA.CARTEIRA, () -> {
+                        try {
+                            if (emVoo.incrementAndGet() > capacidadeProvedor) {
+                                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+                            }
+                            Thread.sleep(5);
+                            return null;
+                        } finally {
+                            emVoo.decrementAndGet();
+                        }
+                    });
+                    sucessos.incrementAndGet();
+                } catch (Exception e) {
+                    sobrecargas.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        // Assert: sem o limitador, quase todas as 40 chamadas simultâneas falhariam
+        assertEquals(400, sucessos.get() + sobrecargas.get());
+        assertTrue(sobrecargas.get() < 400 * 0.25, "sobrecargas: " + sobrecargas.get());
+        assertTrue(limitador.getLimite() <= capacidadeProvedor * 2, "limite: " + limitador.getLimite());
+    }
+
+    private static void atender(LimitadorIA limitador, OperacaoIA operacao, List<OperacaoIA> atendidas) {
+        LimitadorIA.Permissao permissao = limitador.adquirir(operacao);
+        atendidas.add(operacao);
+        permissao.liberar(LimitadorIA.Resultado.IGNORADO);
+    }
+
+    private static void aguardarFila(LimitadorIA limitador, int tamanho) throws InterruptedException {
+        for (int i = 0; i < 100 && limitador.getTamanhoFila() < tamanho; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(tamanho, limitador.getTamanhoFila());
+    }
+}
@@ -0,0 +1,187 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.dto.ObjetivoHistoricoItemDTO;
+import com.Iviinvest.dto.ObjetivoUsuarioDTO;
+import com.Iviinvest.dto.PaginaCursorDTO;
+import com.Iviinvest.model.CarteiraAtivo;
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.Usuario;
+import com.Iviinvest.repository.CarteiraAtivoRepository;
+import com.Iviinvest.repository.ObjetivoUsuarioRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Garante o número exato de consultas das leituras usadas pelos endpoints.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ObjetivoUsuarioService.class, CarteiraVisaoService.class})
+public class ObjetivoUsuarioServiceTest {
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private ObjetivoUsuarioService objetivoService;
+
+    @Autowired
+    private CarteiraVisaoService carteiraVisaoService;
+
+    @Autowired
+    private CarteiraAtivoRepository carteiraAtivoRepository;
+
+    @Autowired
+    private ObjetivoUsuarioRepository objetivoRepository;
+
+    private Usuario usuario;
+    private ObjetivoUsuario ultimo;
+    private Statistics estatisticas;
+
+    @BeforeEach
+    void setUp() {
+        usuario = new Usuario();
+        usuario.setEmail("consultas@teste.com");
+        usuario.setSenhaHash("hash");
+        em.persist(usuario);
+
+        for (int i = 1; i <= 5; i++) {
+            ObjetivoUsuario o = new ObjetivoUsuario();
+            o.setUsuario(usuario);
+            o.setObjetivo("Objetivo " + i);
+            o.setPrazo(i);
+            o.setValorInicial(1000.0 * i);
+            o.setSetoresEvitar(new ArrayList<>(List.of("Setor " + i, "Comum")));
+            ultimo = em.persist(o);
+
+            CarteiraAtivo ca = new CarteiraAtivo();
+            ca.setUsuario(usuario);
+            ca.setObjetivo(o);
+            ca.setTipoCarteira("conservadora");
+            ca.setSegmento("acoes");
+            ca.setNomeAtivo("WEGE3");
+            ca.setPrecoUnitario(40.0);
+            ca.setQuantidadeCotas(i);
+            em.persist(ca);
+        }
+        em.flush();
+        em.clear();
+
+        estatisticas = em.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+    }
+
+    @Test
+    void deveBuscarSetoresEmLotesQueCabemNaListaInDoOracle() {
+        // Arrange: 5 do setUp + LOTE_IN = dois lotes
+        for (int i = 0; i < ObjetivoUsuarioService.LOTE_IN; i++) {
+            ObjetivoUsuario o = new ObjetivoUsuario();
+            o.setUsuario(usuario);
+            o.setObjetivo("Extra " + i);
+            o.setPrazo(1);
+            o.setSetoresEvitar(new ArrayList<>(List.of("Extra " + i)));
+            em.persist(o);
+        }
+        em.flush();
+        em.clear();
+        estatisticas.clear();
+
+        // Act
+        List<ObjetivoUsuarioDTO> historico = objetivoService.paraDTOs(
+                objetivoRepository.listarResumosPorUsuario(usuario.getId(), Limit.of(ObjetivoUsuarioService.LOTE_IN + 5)));
+
+        // Assert
+        assertEquals(ObjetivoUsuarioService.LOTE_IN + 5, historico.size());
+        assertTrue(historico.stream().noneMatch(dto -> dto.getSetoresEvitar().isEmpty()));
+        assertEquals(List.of("Setor 1", "Comum"), historico.get(historico.size() - 1).getSetoresEvitar());
+        assertEquals(3, estatisticas.getPrepareStatementCount());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+    }
+
+    @Test
+    void deveBuscarUltimoObjetivoComSetoresEmDuasConsultas() {
+        // Act
+        ObjetivoUsuarioDTO dto = objetivoService.buscarUltimoDTOPorUsuario(usuario).orElseThrow();
+
+        // Assert
+        assertEquals("Objetivo 5", dto.getObjetivo());
+        assertEquals(List.of("Setor 5", "Comum"), dto.getSetoresEvitar());
+        assertEquals(LocalDate.now(), dto.getDataCriacao());
+        assertEquals(2, estatisticas.getPrepareStatementCount());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+    }
+
+    @Test
+    void deveCarregarVisaoDaCarteiraEmUmaConsulta() {
+        // Act
+        carteiraVisaoService.buscar(usuario.getId(), null, "conservadora").orElseThrow();
+
+        // Assert
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+    }
+
+    @Test
+    void devePaginarHistoricoPorCursorComUmaConsultaPorPagina() {
+        // Act
+        PaginaCursorDTO<ObjetivoHistoricoItemDTO> primeira = objetivoService.buscarHistoricoPaginado(usuario, null, 2);
+        PaginaCursorDTO<ObjetivoHistoricoItemDTO> segunda = objetivoService.buscarHistoricoPaginado(usuario, primeira.proximoCursor(), 2);
+        PaginaCursorDTO<ObjetivoHistoricoItemDTO> ultima = objetivoService.buscarHistoricoPaginado(usuario, segunda.proximoCursor(), 2);
+
+        // Assert
+        assertEquals(List.of("Objetivo 5", "Objetivo 4"), primeira.itens().stream().map(ObjetivoHistoricoItemDTO::objetivo).toList());
+        assertEquals(List.of("Objetivo 3", "Objetivo 2"), segunda.itens().stream().map(ObjetivoHistoricoItemDTO::objetivo).toList());
+        assertEquals(List.of("Objetivo 1"), ultima.itens().stream().map(ObjetivoHistoricoItemDTO::objetivo).toList());
+        assertNull(ultima.proximoCursor());
+        assertEquals(3, estatisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    void deveBuscarDetalheApenasDoProprioUsuario() {
+        // Arrange
+        Usuario outro = new Usuario();
+        outro.setEmail("outro@teste.com");
+        outro.setSenhaHash("hash");
+        em.persistAndFlush(outro);
+
+        // Act & Assert
+        assertEquals(List.of("Setor 5", "Comum"),
+                objetivoService.buscarDetalhePorUsuario(usuario, ultimo.getId()).orElseThrow().getSetoresEvitar());
+        assertTrue(objetivoService.buscarDetalhePorUsuario(outro, ultimo.getId()).isEmpty());
+    }
+
+    @Test
+    void deveFiltrarUsuariosPorSetorEvitado() {
+        // Act & Assert
+        assertEquals(List.of(usuario.getId()), objetivoService.buscarUsuariosQueEvitamSetor("Comum"));
+        assertEquals(List.of(usuario.getId()), objetivoService.buscarUsuariosQueEvitamSetor("Setor 3"));
+        assertTrue(objetivoService.buscarUsuariosQueEvitamSetor("Tabaco").isEmpty());
+    }
+
+    @Test
+    void naoDeveCarregarAssociacoesAoListarAtivos() {
+        // Arrange
+        ObjetivoUsuario referencia = em.getEntityManager().getReference(ObjetivoUsuario.class, ultimo.getId());
+
+        // Act
+        List<CarteiraAtivo> ativos = carteiraAtivoRepository.findByObjetivoAndTipoCarteira(referencia, "conservadora");
+
+        // Assert
+        assertEquals(1, ativos.size());
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+        assertEquals(1, estatisticas.getEntityLoadCount());
+    }
+}
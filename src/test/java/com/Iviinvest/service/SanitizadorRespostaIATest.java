@@ -0,0 +1,212 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.perf.MedidorAlocacao;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Corpus de respostas do modelo em {@code src/test/resources/sanitizador/corpus}, mais
+ * um fuzz com semente fixa que estraga JSON válido do jeito que o modelo costuma estragar.
+ */
+public class SanitizadorRespostaIATest {
+
+    // Jackson sem nenhuma tolerância: só aceita JSON estrito
+    private static final ObjectMapper ESTRITO = new ObjectMapper();
+
+    static List<Resource> corpus() throws IOException {
+        return Arrays.asList(new PathMatchingResourcePatternResolver()
+                .getResources("classpath:sanitizador/corpus/*.txt"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("corpus")
+    void deveProduzirJsonEstritoParaTodoOCorpus(Resource caso) throws IOException {
+        // Arrange
+        String resposta = caso.getContentAsString(StandardCharsets.UTF_8);
+
+        // Act
+        String objeto = SanitizadorRespostaIA.extrairObjeto(resposta);
+
+        // Assert
+        JsonNode json = ESTRITO.readTree(objeto);
+        assertTrue(json.isObject());
+    }
+
+    @Test
+    void deveCorrigirZerosEVirgulasSemMexerEmStrings() throws IOException {
+        // Act
+        JsonNode zeros = ESTRITO.readTree(SanitizadorRespostaIA.extrairObjeto(ler("03-zeros-do-modelo.txt")));
+        JsonNode virgulas = ESTRITO.readTree(SanitizadorRespostaIA.extrairObjeto(ler("04-virgulas-finais.txt")));
+        JsonNode strings = ESTRITO.readTree(SanitizadorRespostaIA.extrairObjeto(ler("06-chaves-dentro-de-string.txt")));
+
+        // Assert
+        assertEquals(0, zeros.at("/conservadora/cripto").intValue());
+        assertEquals(5, zeros.at("/agressiva/cripto").intValue());
+        assertEquals(2, virgulas.at("/carteira/conservadora/acoes").size());
+        assertEquals("A carteira usa a chave {rendaFixa} e listas [a, b,] sem problemas; "
+                + "valores como 05, e vírgulas, },] ficam como estão.", strings.get("explanation").textValue());
+    }
+
+    @Test
+    void deveRecusarRespostaSemObjetoCompletoCom502() {
+        // Act
+        ResponseStatusException semObjeto = assertThrows(ResponseStatusException.class,
+                () -> SanitizadorRespostaIA.extrairObjeto("Desculpe, não consigo ajudar com isso."));
+        ResponseStatusException truncada = assertThrows(ResponseStatusException.class,
+                () -> SanitizadorRespostaIA.extrairObjeto("```json\n{\"conservadora\":{\"rendaFixa\": 70,"));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_GATEWAY, semObjeto.getStatusCode());
+        assertEquals(HttpStatus.BAD_GATEWAY, truncada.getStatusCode());
+    }
+
+    @Test
+    void deveRecuperarJsonOriginalDepoisDeDefeitosAleatorios() throws IOException {
+        Random random = new Random(20240620L);
+        for (int i = 0; i < 2_000; i++) {
+            // Arrange
+            JsonNode original = objetoAleatorio(random, 0);
+            String estragado = estragar(ESTRITO.writerWithDefaultPrettyPrinter().writeValueAsString(original), random);
+
+            // Act
+            String objeto = SanitizadorRespostaIA.extrairObjeto(estragado);
+
+            // Assert
+            assertEquals(original, ESTRITO.readTree(objeto), "entrada: " + estragado);
+        }
+    }
+
+    @Test
+    void deveFalharSomenteCom502ParaEntradasArbitrarias() {
+        Random random = new Random(7L);
+        String alfabeto = "{}[],:\"\\0123456789 \n`abcjson-.";
+        for (int i = 0; i < 20_000; i++) {
+            char[] lixo = new char[random.nextInt(40)];
+            for (int j = 0; j < lixo.length; j++) {
+                lixo[j] = alfabeto.charAt(random.nextInt(alfabeto.length()));
+            }
+            try {
+                SanitizadorRespostaIA.extrairObjeto(new String(lixo));
+            } catch (ResponseStatusException e) {
+                assertEquals(HttpStatus.BAD_GATEWAY, e.getStatusCode());
+            }
+        }
+    }
+
+    /**
+     * Benchmark: bytes alocados por resposta do corpus, contra as três chamadas
+     * {@code replaceAll} usadas antes. Fica fora do {@code mvn test} padrão
+     * ({@code mvn test -Dgroups=desempenho -DexcludedGroups=} para rodar).
+     */
+    @Test
+    @Tag("desempenho")
+    void deveAlocarMenosQueAsTresRegex() throws IOException {
+        // Arrange
+        List<String> respostas = new ArrayList<>();
+        for (Resource caso : corpus()) {
+            respostas.add(caso.getContentAsString(StandardCharsets.UTF_8));
+        }
+
+        // Act
+        long regex = bytesPorResposta(respostas, r -> r
+                .replaceAll("(?i)^```json\\s*", "")
+                .replaceAll("^```\\s*", "")
+                .replaceAll("\\s*```$", "")
+                .trim());
+        long sanitizador = bytesPorResposta(respostas, SanitizadorRespostaIA::extrairObjeto);
+
+        // Assert
+        assertTrue(sanitizador * 2 < regex, "sanitizador " + sanitizador + "B, regex " + regex + "B");
+    }
+
+    private static long bytesPorResposta(List<String> respostas, Function<String, String> limpar) {
+        long porRodada = MedidorAlocacao.bytesPorChamada(2_000, () -> {
+            respostas.forEach(limpar::apply);
+            return respostas;
+        });
+        return porRodada / respostas.size();
+    }
+
+    private static JsonNode objetoAleatorio(Random random, int nivel) {
+        ObjectNode objeto = JsonNodeFactory.instance.objectNode();
+        int campos = 1 + random.nextInt(4);
+        for (int i = 0; i < campos; i++) {
+            objeto.set("campo" + i, valorAleatorio(random, nivel + 1));
+        }
+        return objeto;
+    }
+
+    private static JsonNode valorAleatorio(Random random, int nivel) {
+        int tipo = random.nextInt(nivel < 3 ? 7 : 5);
+        return switch (tipo) {
+            case 0 -> JsonNodeFactory.instance.numberNode(random.nextInt(101));
+            case 1 -> JsonNodeFactory.instance.numberNode(-random.nextInt(20));
+            case 2 -> JsonNodeFactory.instance.textNode(List.of("PETR4", "a, b,]", "{x}", "05", "\"q\"", "ações").get(random.nextInt(6)));
+            case 3 -> JsonNodeFactory.instance.booleanNode(random.nextBoolean());
+            case 4 -> JsonNodeFactory.instance.nullNode();
+            case 5 -> objetoAleatorio(random, nivel);
+            default -> {
+                ArrayNode lista = JsonNodeFactory.instance.arrayNode();
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    lista.add(valorAleatorio(random, nivel + 1));
+                }
+                yield lista;
+            }
+        };
+    }
+
+    // Zeros à esquerda em inteiros, vírgulas antes de } e ], cercas e texto ao redor
+    private static String estragar(String json, Random random) {
+        StringBuilder sb = new StringBuilder();
+        boolean emString = false;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"' && (i == 0 || json.charAt(i - 1) != '\\')) {
+                emString = !emString;
+            }
+            if (!emString && (c == '}' || c == ']') && random.nextInt(3) == 0
+                    && sb.length() > 0 && sb.charAt(sb.length() - 1) != '{' && sb.charAt(sb.length() - 1) != '[') {
+                sb.append(',');
+            }
+            if (!emString && Character.isDigit(c) && random.nextInt(3) == 0) {
+                char anterior = sb.length() > 0 ? sb.charAt(sb.length() - 1) : ' ';
+                if (anterior == ' ' || anterior == '-') {
+                    sb.append('0');
+                }
+            }
+            sb.append(c);
+        }
+        return switch (random.nextInt(3)) {
+            case 0 -> "```json\n" + sb + "\n```";
+            case 1 -> "Segue o JSON:\n" + sb + "\nQualquer dúvida, estou à disposição.";
+            default -> sb.toString();
+        };
+    }
+
+    private static String ler(String nome) throws IOException {
+        return new PathMatchingResourcePatternResolver()
+                .getResource("classpath:sanitizador/corpus/" + nome)
+                .getContentAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,141 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.model.ObjetivoUsuario;
+import com.Iviinvest.model.Usuario;
+import com.Iviinvest.repository.ObjetivoUsuarioRepository;
+import com.Iviinvest.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({SetoresEvitarMigracao.class, ObjetivoUsuarioService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SetoresEvitarMigracaoTest {
+
+    @Autowired
+    private SetoresEvitarMigracao migracao;
+
+    @Autowired
+    private ObjetivoUsuarioService objetivoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ObjetivoUsuarioRepository objetivoRepository;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("ALTER TABLE objetivos_usuarios DROP COLUMN IF EXISTS setores_evitar");
+        objetivoRepository.deleteAll();
+        usuarioRepository.deleteAll();
+    }
+
+    @Test
+    void naoDeveFazerNadaSemColunaLegada() {
+        assertEquals(0, migracao.migrar());
+    }
+
+    @Test
+    void deveMigrarJsonLegadoParaTabelaDeSetores() {
+        // Arrange
+        Usuario usuario = novoUsuario("legado@teste.com");
+        ObjetivoUsuario objetivo = novoObjetivo(usuario);
+        jdbcTemplate.execute("ALTER TABLE objetivos_usuarios ADD COLUMN setores_evitar VARCHAR(1000)");
+        jdbcTemplate.update("UPDATE objetivos_usuarios SET setores_evitar = ? WHERE id = ?",
+                "[\"Criptomoedas\",\"Tabaco\"]", objetivo.getId());
+
+        // Act
+        int migrados = migracao.migrar();
+        int novamente = migracao.migrar();
+
+        // Assert
+        assertEquals(1, migrados);
+        assertEquals(0, novamente);
+        assertEquals(List.of("Criptomoedas", "Tabaco"),
+                objetivoService.buscarUltimoDTOPorUsuario(usuario).orElseThrow().getSetoresEvitar());
+    }
+
+    @Test
+    void deveDescartarNulosECortarSetoresMaioresQueAColuna() {
+        // Arrange
+        Usuario usuario = novoUsuario("invalidos@teste.com");
+        ObjetivoUsuario objetivo = novoObjetivo(usuario);
+        jdbcTemplate.execute("ALTER TABLE objetivos_usuarios ADD COLUMN setores_evitar VARCHAR(1000)");
+        jdbcTemplate.update("UPDATE objetivos_usuarios SET setores_evitar = ? WHERE id = ?",
+                "[null, \" \", \" Tabaco \", \"" + "x".repeat(150) + "\"]", objetivo.getId());
+
+        // Act
+        int migrados = migracao.migrar();
+
+        // Assert
+        assertEquals(1, migrados);
+        assertEquals(List.of("Tabaco", "x".repeat(100)),
+                objetivoService.buscarUltimoDTOPorUsuario(usuario).orElseThrow().getSetoresEvitar());
+    }
+
+    @Test
+    void deveMigrarUmaSoVezComDuasInstanciasAoMesmoTempo() throws Exception {
+        // Arrange
+        Usuario usuario = novoUsuario("replicas@teste.com");
+        jdbcTemplate.execute("ALTER TABLE objetivos_usuarios ADD COLUMN setores_evitar VARCHAR(1000)");
+        for (int i = 0; i < 200; i++) {
+            jdbcTemplate.update("UPDATE objetivos_usuarios SET setores_evitar = ? WHERE id = ?",
+                    "[\"Setor " + i + "\",\"Comum\"]", novoObjetivo(usuario).getId());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch largada = new CountDownLatch(1);
+
+        // Act
+        List<Future<Integer>> instancias = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            instancias.add(executor.submit(() -> {
+                largada.await();
+                return migracao.migrar();
+            }));
+        }
+        largada.countDown();
+        int total = 0;
+        for (Future<Integer> instancia : instancias) {
+            total += instancia.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(200, total);
+        assertEquals(400, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM objetivo_setores_evitar", Integer.class));
+    }
+
+    private Usuario novoUsuario(String email) {
+        Usuario usuario = new Usuario();
+        usuario.setEmail(email);
+        usuario.setSenhaHash("hash");
+        return usuarioRepository.save(usuario);
+    }
+
+    private ObjetivoUsuario novoObjetivo(Usuario usuario) {
+        ObjetivoUsuario objetivo = new ObjetivoUsuario();
+        objetivo.setUsuario(usuario);
+        objetivo.setPrazo(5);
+        return objetivoRepository.save(objetivo);
+    }
+}
@@ -0,0 +1,78 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.perf.MedidorAlocacao;
+import com.Iviinvest.util.TemplateEmail;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class TwoFactorServiceTest {
+
+    @Test
+    void deveInformarNoEmailAValidadeConfigurada() {
+        // Arrange
+        EmailService emailService = mock(EmailService.class);
+        TwoFactorService service = new TwoFactorService(new InMemoryTwoFactorCodeStore(10), emailService, 120);
+        ArgumentCaptor<String> texto = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> html = ArgumentCaptor.forClass(String.class);
+
+        // Act
+        service.generateAndSendToken("a@teste.com");
+
+        // Assert
+        verify(emailService).enviarHtml(eq("a@teste.com"), anyString(),
+                texto.capture(), html.capture());
+        assertTrue(texto.getValue().contains("O código expira em 2 minutos."));
+        assertTrue(html.getValue().contains("O código expira em 2 minutos."));
+        assertFalse(texto.getValue().contains("{{"));
+        assertFalse(html.getValue().contains("{{"));
+    }
+
+    @Test
+    void deveDescreverValidadeEmMinutosOuSegundos() {
+        // Act + Assert
+        assertEquals("5 minutos", TwoFactorService.descreverValidade(300));
+        assertEquals("1 minuto", TwoFactorService.descreverValidade(60));
+        assertEquals("90 segundos", TwoFactorService.descreverValidade(90));
+    }
+
+    /**
+     * Benchmark de alocação: bytes por e-mail (texto e HTML) com o template pré-compilado,
+     * contra substituir os marcadores no arquivo a cada envio. Fica fora do {@code mvn test}
+     * padrão ({@code mvn test -Dgroups=desempenho -DexcludedGroups=} para rodar).
+     */
+    @Test
+    @Tag("desempenho")
+    void deveRenderizarAlocandoPoucoMaisQueAMensagem() throws IOException {
+        // Arrange
+        Map<String, String> fixos = Map.of("{{validade}}", "5 minutos");
+        TemplateEmail texto = TemplateEmail.carregar("templates/email/codigo-verificacao.txt", "{{codigo}}", fixos);
+        TemplateEmail html = TemplateEmail.carregar("templates/email/codigo-verificacao.html", "{{codigo}}", fixos);
+        String arquivoTexto = new ClassPathResource("templates/email/codigo-verificacao.txt").getContentAsString(StandardCharsets.UTF_8);
+        String arquivoHtml = new ClassPathResource("templates/email/codigo-verificacao.html").getContentAsString(StandardCharsets.UTF_8);
+        int tamanhoMensagem = texto.renderizar("123456").length() + html.renderizar("123456").length();
+
+        // Act
+        long precompilado = MedidorAlocacao.bytesPorChamada(20_000, () -> texto.renderizar("123456"))
+                + MedidorAlocacao.bytesPorChamada(20_000, () -> html.renderizar("123456"));
+        long substituicao = MedidorAlocacao.bytesPorChamada(20_000,
+                () -> arquivoTexto.replace("{{validade}}", "5 minutos").replace("{{codigo}}", "123456"))
+                + MedidorAlocacao.bytesPorChamada(20_000,
+                () -> arquivoHtml.replace("{{validade}}", "5 minutos").replace("{{codigo}}", "123456"));
+
+        // Assert: só o buffer do tamanho exato e a String de cada mensagem
+        assertTrue(precompilado * 3 < substituicao * 2, "pré-compilado " + precompilado + "B, replace " + substituicao + "B");
+        assertTrue(precompilado < 3L * tamanhoMensagem, "pré-compilado " + precompilado + "B para " + tamanhoMensagem + " caracteres");
+    }
+}
@@ -0,0 +1,141 @@
+package com.Iviinvest.service;
+
+import com.Iviinvest.dto.LoginDTO;
+import com.Iviinvest.dto.UserRegisterDTO;
+import com.Iviinvest.dto.UsuarioResumo;
+import com.Iviinvest.model.Usuario;
+import com.Iviinvest.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Garante que o cache e-mail → usuário nunca devolve dados antigos depois de uma alteração.
+ * Sem a transação do teste, para que os commits (e o afterCommit) aconteçam de fato.
+ */
+@DataJpaTest
+@Import({UsuarioService.class, UsuarioServiceCacheTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class UsuarioServiceCacheTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager(UsuarioService.CACHE_USUARIOS_POR_EMAIL);
+        }
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private UsuarioRepository repository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        cacheManager.getCache(UsuarioService.CACHE_USUARIOS_POR_EMAIL).clear();
+
+        usuario = new Usuario();
+        usuario.setEmail("cache@teste.com");
+        usuario.setSenhaHash(passwordEncoder.encode("senha-antiga"));
+        usuario.setPerfilInvestidor("conservador");
+        usuario = repository.save(usuario);
+    }
+
+    @Test
+    void deveMostrarPerfilAlteradoNaProximaBusca() {
+        // Arrange
+        assertEquals("conservador", usuarioService.referenciaPorEmail("cache@teste.com").getPerfilInvestidor());
+
+        // Act
+        usuarioService.atualizarPerfilInvestidorPorEmail("cache@teste.com", "arrojado");
+
+        // Assert
+        assertEquals("arrojado", usuarioService.referenciaPorEmail("cache@teste.com").getPerfilInvestidor());
+    }
+
+    @Test
+    void deveMostrarEmailESenhaAlteradosNaProximaBusca() {
+        // Arrange
+        usuarioService.referenciaPorEmail("cache@teste.com");
+        UserRegisterDTO dto = new UserRegisterDTO();
+        dto.setEmail("novo@teste.com");
+        dto.setSenha("senha-nova");
+
+        // Act
+        usuarioService.atualizar(usuario.getId(), dto);
+
+        // Assert
+        assertThrows(RuntimeException.class, () -> usuarioService.referenciaPorEmail("cache@teste.com"));
+        assertEquals(usuario.getId(), usuarioService.referenciaPorEmail("novo@teste.com").getId());
+        assertNotNull(usuarioService.autenticar(new LoginDTO("novo@teste.com", "senha-nova")));
+    }
+
+    @Test
+    void deveEntregarCopiaSemDadosSensiveis() {
+        // Act
+        Usuario primeira = usuarioService.referenciaPorEmail("cache@teste.com");
+        primeira.setPerfilInvestidor("alterado-por-engano");
+        Usuario segunda = usuarioService.referenciaPorEmail("cache@teste.com");
+
+        // Assert
+        assertNotSame(primeira, segunda);
+        assertEquals("conservador", segunda.getPerfilInvestidor());
+        assertNull(segunda.getSenhaHash());
+        assertInstanceOf(UsuarioResumo.class,
+                cacheManager.getCache(UsuarioService.CACHE_USUARIOS_POR_EMAIL).get("cache@teste.com").get());
+    }
+
+    @Test
+    void deveInvalidarSoDepoisDoCommit() {
+        // Arrange
+        usuarioService.referenciaPorEmail("cache@teste.com");
+        var cache = cacheManager.getCache(UsuarioService.CACHE_USUARIOS_POR_EMAIL);
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            usuarioService.atualizarPerfilInvestidorPorEmail("cache@teste.com", "moderado");
+            // Ainda não commitado: a entrada antiga continua lá
+            assertNotNull(cache.get("cache@teste.com"));
+        });
+
+        // Assert
+        assertNull(cache.get("cache@teste.com"));
+        assertEquals("moderado", usuarioService.referenciaPorEmail("cache@teste.com").getPerfilInvestidor());
+    }
+}
@@ -0,0 +1,4 @@
+-- O H2 em modo Oracle grava DATE como TIMESTAMP(0), e o validate esperaria DATE como no
+-- Oracle de verdade; volta a coluna para DATE fora do modo Oracle. Só para o EsquemaOracleTest.
+SET MODE REGULAR;
+ALTER TABLE objetivos_usuarios ALTER COLUMN data_criacao SET DATA TYPE DATE;
@@ -0,0 +1,10 @@
+-- Visão do dicionário do Oracle que o Hibernate consulta ao validar o esquema com o
+-- OracleDialect; só para o EsquemaOracleTest, que roda num H2 em modo Oracle.
+CREATE VIEW IF NOT EXISTS all_sequences AS
+SELECT sequence_schema AS sequence_owner,
+       sequence_name,
+       minimum_value AS min_value,
+       maximum_value AS max_value,
+       increment AS increment_by,
+       base_value AS last_number
+  FROM information_schema.sequences;